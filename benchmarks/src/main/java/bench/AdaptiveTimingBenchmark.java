@@ -0,0 +1,74 @@
+package bench;
+
+import logging.EventLog;
+import logging.LogLevel;
+import model.Direction;
+import model.Intersection;
+import model.PhasePlan;
+import model.VehicleType;
+import service.AdaptiveTiming;
+import service.ExecutionMode;
+import service.TrafficManager;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Adaptive timing at city scale: N running DISCRETE_EVENT intersections get a simulated minute
+// of traffic plus extra, skewed demand on one axis, then one Webster batch retimes them all.
+// Reports the batch time (target: under a second for 100k) and a few resulting plans.
+// Usage: java -cp core/target/classes:benchmarks/target/classes bench.AdaptiveTimingBenchmark [intersections] [rounds]
+public class AdaptiveTimingBenchmark {
+    
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        EventLog.get().setLevel(LogLevel.WARN);
+        
+        TrafficManager manager = new TrafficManager(ExecutionMode.DISCRETE_EVENT, 42L);
+        List<Intersection> intersections = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            manager.addIntersection("A" + i, "Grid");
+            intersections.add(manager.getIntersections().get("A" + i));
+        }
+        manager.startAll();
+        // Batches are run by hand below; the scheduled one only sets the first baseline
+        manager.enableAdaptiveTiming(24 * 3_600_000L, 1800);
+        AdaptiveTiming timing = manager.getAdaptiveTiming();
+        manager.runSimulation(1);
+        
+        Random random = new Random(42);
+        for (int round = 0; round < rounds; round++) {
+            manager.runSimulation(60_000);
+            // Skew: each intersection gets 0-20 extra vehicles on one axis
+            for (int i = 0; i < count; i++) {
+                Intersection intersection = intersections.get(i);
+                Direction approach = i % 2 == 0 ? Direction.NORTH : Direction.EAST;
+                long now = intersection.getClock().currentTimeMillis();
+                for (int extra = random.nextInt(21); extra > 0; extra--) {
+                    intersection.incrementVehicleCount(approach, VehicleType.CAR, now);
+                }
+            }
+            int changed = timing.recompute();
+            console.println("round " + round + ": intersections=" + timing.getLastRecomputed() + " retimed=" + changed
+                + " batchMs=" + timing.getLastBatchMillis());
+        }
+        
+        for (int i = 0; i < 3; i++) {
+            console.println("  A" + i + ": " + manager.getIntersections().get("A" + i).getVehicleCount() + " vehicles");
+        }
+        double[] light = {0.05, 0.05, 0.05, 0.05};
+        double[] heavyNorthSouth = {0.4, 0.35, 0.1, 0.1};
+        console.println("  webster(light)      = " + webster(light));
+        console.println("  webster(heavy N-S)  = " + webster(heavyNorthSouth));
+        manager.shutdown(1000);
+    }
+    
+    private static String webster(double[] flowRatios) {
+        return String.valueOf(AdaptiveTiming.webster(PhasePlan.DEFAULT, flowRatios));
+    }
+}
@@ -0,0 +1,114 @@
+package bench;
+
+import logging.EventLog;
+import logging.EventType;
+import model.Car;
+import model.Direction;
+import model.EmergencyVehicle;
+import model.Intersection;
+import model.Vehicle;
+import model.VehicleType;
+import service.ExecutionMode;
+import service.TrafficManager;
+import service.TrafficSimulator;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+// GC pressure of the arrival path: the previous simulator arrival (string ID, Car or
+// EmergencyVehicle object, Direction.values() copy) against TrafficSimulator.step(), both
+// feeding the same managed intersections with statistics attached. Reports time and bytes
+// allocated per arrival on the arriving thread plus collections and GC time per phase.
+// Usage: java -cp core/target/classes:benchmarks/target/classes bench.ArrivalAllocationBenchmark [intersections] [arrivals]
+public class ArrivalAllocationBenchmark {
+    
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int arrivals = args.length > 1 ? Integer.parseInt(args[1]) : 20_000_000;
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        
+        TrafficManager manager = new TrafficManager(ExecutionMode.DISCRETE_EVENT, 42L);
+        manager.enableStatistics(300_000, 5);
+        List<Intersection> intersections = new ArrayList<>(count);
+        List<TrafficSimulator> simulators = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            manager.addIntersection("INT" + i, "Zone " + (i % 10));
+            Intersection intersection = manager.getIntersections().get("INT" + i);
+            intersections.add(intersection);
+            simulators.add(new TrafficSimulator(intersection, new SplittableRandom(i)));
+        }
+        
+        Random random = new Random(42);
+        int[] counters = new int[count];
+        for (int round = 0; round < 3; round++) {
+            measure(console, "previousPath", arrivals, () -> {
+                for (int i = 0; i < arrivals; i++) {
+                    int index = i % count;
+                    previousArrival(intersections.get(index), random, ++counters[index]);
+                }
+            });
+            measure(console, "packedPath  ", arrivals, () -> {
+                for (int i = 0; i < arrivals; i++) {
+                    simulators.get(i % count).step();
+                }
+            });
+        }
+        manager.shutdown(1000);
+    }
+    
+    // TrafficSimulator.simulateVehicleArrival as it was before vehicles were packed
+    private static void previousArrival(Intersection intersection, Random random, int vehicleCounter) {
+        String vehicleId = intersection.getIntersectionId() + "_V" + vehicleCounter;
+        long now = intersection.getClock().currentTimeMillis();
+        Vehicle vehicle;
+        if (random.nextInt(10) == 0) {
+            vehicle = new EmergencyVehicle(vehicleId, now);
+        } else {
+            vehicle = new Car(vehicleId, now);
+        }
+        vehicle.setCurrentIntersection(intersection.getIntersectionId());
+        vehicle.setApproach(Direction.values()[random.nextInt(4)]);
+        intersection.incrementVehicleCount(vehicle.getApproach(), vehicle.getVehicleType(), vehicle.getEntryTime());
+        EventLog.log(EventType.VEHICLE_ARRIVAL, now, intersection, vehicleCounter,
+                     EventType.arrivalDetails(vehicle.getVehicleType(), vehicle.getApproach()));
+    }
+    
+    private static void measure(PrintStream console, String label, int arrivals, Runnable body) {
+        long collections = gcCount();
+        long gcMillis = gcMillis();
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        body.run();
+        long nanos = System.nanoTime() - start;
+        console.println(label + ": nsPerArrival=" + nanos / arrivals
+            + " bytesPerArrival=" + String.format("%.2f", (double) (allocatedBytes() - allocated) / arrivals)
+            + " collections=" + (gcCount() - collections) + " gcMillis=" + (gcMillis() - gcMillis));
+    }
+    
+    private static long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, bean.getCollectionCount());
+        }
+        return total;
+    }
+    
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, bean.getCollectionTime());
+        }
+        return total;
+    }
+    
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,82 @@
+package bench;
+
+import util.CSVFileHandler;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+// Compares the streaming CSV reader with the previous load-everything-and-split approach
+// on a signals-style file, reporting time and bytes allocated by the reading thread.
+// Usage: java -cp core/target/classes:benchmarks/target/classes bench.CSVBenchmark [rows]
+public class CSVBenchmark {
+    
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 4_000_000;
+        File file = File.createTempFile("signals", ".csv");
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        
+        long start = System.nanoTime();
+        long allocated = allocatedBytes();
+        CSVFileHandler.writeRecords(file.getPath(), out -> {
+            out.record("SignalID", "Direction", "State", "Duration");
+            for (int i = 0; i < rows; i++) {
+                out.field("INT" + (i >> 2)).field("NORTH").field("RED").field(30).endRecord();
+            }
+        });
+        report(console, "streamingWrite", rows, start, allocated);
+        
+        for (int round = 0; round < 3; round++) {
+            start = System.nanoTime();
+            allocated = allocatedBytes();
+            long[] sum = new long[1];
+            CSVFileHandler.forEachRecord(file.getPath(), record -> {
+                if (record.getRecordNumber() > 0) {
+                    sum[0] += record.getInt(3);
+                }
+            });
+            report(console, "streamingRead", rows, start, allocated);
+            
+            start = System.nanoTime();
+            allocated = allocatedBytes();
+            List<String[]> records = readAllAndSplit(file);
+            long legacySum = 0;
+            for (int i = 1; i < records.size(); i++) {
+                legacySum += Integer.parseInt(records.get(i)[3]);
+            }
+            report(console, "splitRead", rows, start, allocated);
+            if (legacySum != sum[0]) {
+                throw new IllegalStateException("Readers disagree: " + legacySum + " vs " + sum[0]);
+            }
+        }
+        file.delete();
+    }
+    
+    private static List<String[]> readAllAndSplit(File file) throws IOException {
+        List<String[]> records = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                records.add(line.split(","));
+            }
+        }
+        return records;
+    }
+    
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    
+    private static void report(PrintStream out, String name, int rows, long startNanos, long allocatedBefore) {
+        long millis = (System.nanoTime() - startNanos) / 1_000_000;
+        long megabytes = (allocatedBytes() - allocatedBefore) / (1024 * 1024);
+        out.println(name + ": rows=" + rows + " ms=" + millis + " allocatedMb=" + megabytes);
+    }
+}
@@ -0,0 +1,234 @@
+package bench;
+
+import cluster.ClusterCoordinator;
+import cluster.HashRing;
+import cluster.ShardServer;
+import service.ExecutionMode;
+import service.TrafficManager;
+import service.TrafficReport;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Cluster mode across real JVMs on one box: starts shard nodes as separate processes of the
+// app (-Dtraffic.shard.port), routes adds through the coordinator, starts everything, merges
+// reports, then joins one more node and checks that exactly the intersections whose ring
+// owner changed moved, all of them to the new node. Finally, in one JVM, a join whose second
+// import fails must leave every intersection on exactly one node, and the retry must lose no
+// arrival counted in between.
+// Usage: java -cp core/target/classes:benchmarks/target/classes bench.ClusterBenchmark [intersections] [nodes]
+public class ClusterBenchmark {
+    
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int nodeCount = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        
+        List<Process> processes = new ArrayList<>();
+        List<String> nodes = new ArrayList<>();
+        try {
+            for (int i = 0; i <= nodeCount; i++) {
+                int port = freePort();
+                processes.add(startNode(port));
+                nodes.add("127.0.0.1:" + port);
+            }
+            for (String node : nodes) {
+                awaitListening(node);
+            }
+            String joining = nodes.remove(nodes.size() - 1);
+            
+            try (ClusterCoordinator cluster = new ClusterCoordinator(nodes)) {
+                long start = System.nanoTime();
+                for (int i = 0; i < count; i++) {
+                    cluster.addIntersection("C" + i, "District " + (i % 50));
+                }
+                long addMicros = (System.nanoTime() - start) / 1000;
+                cluster.startAll();
+                Thread.sleep(2000);
+                System.out.println("nodes=" + nodeCount + " intersections=" + count + " usPerAdd=" + addMicros / count
+                    + " sizes=" + cluster.getNodeSizes().values());
+                
+                start = System.nanoTime();
+                TrafficReport report = cluster.getReport();
+                System.out.println("merged report in " + (System.nanoTime() - start) / 1_000_000 + " ms: intersections="
+                    + report.getTotalIntersections() + " vehicles=" + report.getTotalVehicles() + " locations="
+                    + report.getTotalLocations() + " busiest=" + report.getBusiestIntersections().get(0));
+                
+                HashRing before = cluster.getRing();
+                HashRing after = before.withNode(joining);
+                int expected = 0;
+                int betweenOldNodes = 0;
+                for (int i = 0; i < count; i++) {
+                    String owner = after.nodeFor("C" + i);
+                    if (owner.equals(joining)) {
+                        expected++;
+                    } else if (!owner.equals(before.nodeFor("C" + i))) {
+                        betweenOldNodes++;
+                    }
+                }
+                start = System.nanoTime();
+                int moved = cluster.addNode(joining);
+                Map<String, Integer> sizes = cluster.getNodeSizes();
+                System.out.println("join: moved=" + moved + " expected=" + expected + " betweenOldNodes=" + betweenOldNodes + " ("
+                    + String.format("%.1f%%", 100.0 * moved / count) + ") in " + (System.nanoTime() - start) / 1_000_000
+                    + " ms, sizes=" + sizes.values() + " total=" + sizes.values().stream().mapToInt(Integer::intValue).sum());
+                
+                TrafficReport rebalanced = cluster.getReport();
+                System.out.println("after join: intersections=" + rebalanced.getTotalIntersections() + " vehicles="
+                    + rebalanced.getTotalVehicles() + " (vehicles keep counting while running)");
+                cluster.shutdownAll();
+            }
+            for (Process process : processes) {
+                process.waitFor();
+            }
+        } finally {
+            for (Process process : processes) {
+                process.destroy();
+            }
+        }
+        checkFailedJoin(Math.min(count, 2000));
+    }
+    
+    // The joining node refuses the share of the second existing node, so its first IMPORT
+    // succeeds and its second fails
+    private static void checkFailedJoin(int count) throws Exception {
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        Set<String> refused = ConcurrentHashMap.newKeySet();
+        List<TrafficManager> managers = new ArrayList<>();
+        List<ShardServer> servers = new ArrayList<>();
+        List<String> nodes = new ArrayList<>();
+        try {
+            for (int i = 0; i < 3; i++) {
+                TrafficManager manager = i < 2 ? new TrafficManager(ExecutionMode.TIMER_WHEEL) : refusing(refused);
+                ShardServer server = new ShardServer(manager, 0);
+                server.start();
+                managers.add(manager);
+                servers.add(server);
+                nodes.add("127.0.0.1:" + server.getPort());
+            }
+            String joining = nodes.remove(2);
+            TrafficManager joiningManager = managers.get(2);
+            
+            try (ClusterCoordinator cluster = new ClusterCoordinator(nodes)) {
+                for (int i = 0; i < count; i++) {
+                    String id = "F" + i;
+                    cluster.addIntersection(id, "District " + (i % 50));
+                    if (cluster.nodeFor(id).equals(nodes.get(1))) {
+                        refused.add(id);
+                    }
+                }
+                cluster.startAll();
+                Thread.sleep(500);
+                
+                boolean failed = false;
+                try {
+                    cluster.addNode(joining);
+                } catch (IOException e) {
+                    failed = true;
+                }
+                int held = joiningManager.getRegistry().size();
+                Map<String, Long> counted = vehicleCounts(managers);
+                long stopped = managers.get(0).getRegistry().handles().stream().filter(h -> !h.isRunning()).count()
+                    + managers.get(1).getRegistry().handles().stream().filter(h -> !h.isRunning()).count();
+                if (!failed || held != 0 || counted.size() != count || stopped != 0) {
+                    throw new IllegalStateException("Failed join left failed=" + failed + " heldByJoining=" + held
+                        + " distinct=" + counted.size() + " of " + count + " stopped=" + stopped);
+                }
+                
+                Thread.sleep(500);
+                refused.clear();
+                int moved = cluster.addNode(joining);
+                Map<String, Long> after = vehicleCounts(managers);
+                int lost = 0;
+                for (Map.Entry<String, Long> entry : counted.entrySet()) {
+                    Long now = after.get(entry.getKey());
+                    if (now == null || now < entry.getValue()) {
+                        lost++;
+                    }
+                }
+                if (after.size() != count || lost != 0 || joiningManager.getRegistry().size() != moved) {
+                    throw new IllegalStateException("Retried join left distinct=" + after.size() + " of " + count
+                        + " lost=" + lost + " moved=" + moved + " heldByJoining=" + joiningManager.getRegistry().size());
+                }
+                console.println("failed join: joining node held 0, all " + count + " still running; retry moved=" + moved
+                    + " lost=0");
+            }
+        } finally {
+            for (ShardServer server : servers) {
+                server.close();
+            }
+            for (TrafficManager manager : managers) {
+                manager.shutdown(5000);
+            }
+            System.setOut(console);
+        }
+    }
+    
+    private static TrafficManager refusing(Set<String> refused) {
+        return new TrafficManager(ExecutionMode.TIMER_WHEEL) {
+            @Override
+            public boolean importIntersection(String id, String location, long vehicleCount) {
+                if (refused.contains(id)) {
+                    throw new IllegalStateException("import refused for " + id);
+                }
+                return super.importIntersection(id, location, vehicleCount);
+            }
+        };
+    }
+    
+    // Every intersection's count across the nodes; an ID held by two nodes is an error
+    private static Map<String, Long> vehicleCounts(List<TrafficManager> managers) {
+        Map<String, Long> counts = new HashMap<>();
+        for (TrafficManager manager : managers) {
+            manager.getRegistry().intersections().forEach((id, intersection) -> {
+                if (counts.put(id, intersection.getVehicleCount()) != null) {
+                    throw new IllegalStateException(id + " is held by two nodes");
+                }
+            });
+        }
+        return counts;
+    }
+    
+    // Each node runs in its own scratch directory so it starts empty and saves apart
+    private static Process startNode(int port) throws IOException {
+        File directory = Files.createTempDirectory("shard-" + port).toFile();
+        String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+        ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+            "-Dtraffic.shard.port=" + port, "-Dtraffic.execution=TIMER_WHEEL", "-Dtraffic.journal.dir=",
+            "-Dtraffic.log.level=WARN", "main.TrafficSignalApp");
+        builder.directory(directory);
+        builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        return builder.start();
+    }
+    
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+    
+    private static void awaitListening(String node) throws InterruptedException {
+        int port = Integer.parseInt(node.substring(node.lastIndexOf(':') + 1));
+        for (int attempt = 0; attempt < 300; attempt++) {
+            try {
+                new Socket("127.0.0.1", port).close();
+                return;
+            } catch (IOException e) {
+                Thread.sleep(100);
+            }
+        }
+        throw new IllegalStateException("Shard node " + node + " did not start");
+    }
+}
@@ -0,0 +1,103 @@
+package bench;
+
+import model.Intersection;
+import model.SignalState;
+import model.TrafficSignal;
+import service.ExecutionMode;
+import service.TrafficManager;
+import util.CSVFileHandler;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+// Time-to-ready for a large deployment: writes intersections.csv / signals.csv for N
+// intersections, then restores them with the parallel loader and with a serial single-pass
+// reader that builds the same objects, and checks that counts and signal states survived.
+// Usage: java -cp core/target/classes:benchmarks/target/classes bench.ColdStartBenchmark [intersections]
+public class ColdStartBenchmark {
+    private static final SignalState[] STATES = SignalState.values();
+    
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        File intersections = File.createTempFile("intersections", ".csv");
+        File signals = File.createTempFile("signals", ".csv");
+        
+        CSVFileHandler.writeRecords(intersections.getPath(), out -> {
+            out.record("IntersectionID", "Location", "VehicleCount");
+            for (int i = 0; i < count; i++) {
+                out.field("INT" + i).field("Main St, Block " + i).field(i % 1000).endRecord();
+            }
+        });
+        CSVFileHandler.writeRecords(signals.getPath(), out -> {
+            out.record("SignalID", "Direction", "State", "Duration");
+            String[] suffixes = {"N", "S", "E", "W"};
+            String[] directions = {"NORTH", "SOUTH", "EAST", "WEST"};
+            for (int i = 0; i < count; i++) {
+                for (int d = 0; d < 4; d++) {
+                    SignalState state = STATES[(i + d) % STATES.length];
+                    out.field("INT" + i + "_" + suffixes[d]).field(directions[d]).field(state.name())
+                        .field(state.getDefaultDuration()).endRecord();
+                }
+            }
+        });
+        
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            Map<String, Intersection> serial = new HashMap<>();
+            CSVFileHandler.forEachRecord(intersections.getPath(), record -> {
+                if (record.getRecordNumber() > 0) {
+                    Intersection intersection = new Intersection(record.getString(0), record.getString(1));
+                    intersection.restoreVehicleCount(record.getLong(2));
+                    serial.put(intersection.getIntersectionId(), intersection);
+                }
+            });
+            CSVFileHandler.forEachRecord(signals.getPath(), record -> {
+                if (record.getRecordNumber() > 0) {
+                    String id = record.getString(0);
+                    Intersection intersection = serial.get(id.substring(0, id.lastIndexOf('_')));
+                    intersection.getSignals().get(indexOf(record.getString(1)))
+                        .restore(SignalState.valueOf(record.getString(2)), record.getInt(3), 0);
+                }
+            });
+            System.out.println("serial: intersections=" + serial.size() + " ms=" + (System.nanoTime() - start) / 1_000_000);
+            
+            TrafficManager manager = new TrafficManager(ExecutionMode.DISCRETE_EVENT);
+            start = System.nanoTime();
+            manager.loadData(intersections.getPath(), signals.getPath());
+            System.out.println("parallel: intersections=" + manager.getIntersections().size()
+                + " ms=" + (System.nanoTime() - start) / 1_000_000);
+            verify(manager.getIntersections(), count);
+        }
+        intersections.delete();
+        signals.delete();
+    }
+    
+    private static int indexOf(String direction) {
+        switch (direction) {
+            case "NORTH": return 0;
+            case "SOUTH": return 1;
+            case "EAST": return 2;
+            default: return 3;
+        }
+    }
+    
+    private static void verify(Map<String, Intersection> intersections, int count) {
+        if (intersections.size() != count) {
+            throw new IllegalStateException("Expected " + count + " intersections, got " + intersections.size());
+        }
+        for (int i = 0; i < count; i++) {
+            Intersection intersection = intersections.get("INT" + i);
+            if (intersection.getVehicleCount() != i % 1000
+                    || !intersection.getLocation().equals("Main St, Block " + i)) {
+                throw new IllegalStateException("Wrong intersection restored: " + intersection);
+            }
+            for (int d = 0; d < 4; d++) {
+                TrafficSignal signal = intersection.getSignals().get(d);
+                if (signal.getCurrentState() != STATES[(i + d) % STATES.length]) {
+                    throw new IllegalStateException("Wrong signal restored: " + signal);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package bench;
+
+import logging.EventLog;
+import logging.LogLevel;
+import model.Intersection;
+import service.ExecutionMode;
+import service.TrafficManager;
+import util.InvalidSignalException;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+// Runs a simulated day for N intersections on the virtual clock and prints a checksum;
+// the same seed must always produce the same checksum.
+// Usage: java -cp core/target/classes:benchmarks/target/classes bench.DiscreteEventBenchmark [intersections] [hours] [seed]
+public class DiscreteEventBenchmark {
+    
+    public static void main(String[] args) throws InvalidSignalException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int hours = args.length > 1 ? Integer.parseInt(args[1]) : 24;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+        
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        EventLog.get().setLevel(LogLevel.WARN); // keep preemptions, skip per-arrival lines
+        
+        TrafficManager manager = new TrafficManager(ExecutionMode.DISCRETE_EVENT, seed);
+        for (int i = 0; i < count; i++) {
+            String id = "SIM" + i;
+            manager.addIntersection(id, "Grid");
+            manager.startIntersection(id);
+        }
+        
+        long startNanos = System.nanoTime();
+        long events = manager.runSimulation(hours * 3_600_000L);
+        long wallMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        
+        long vehicles = 0;
+        long checksum = 17;
+        for (int i = 0; i < count; i++) {
+            Intersection intersection = manager.getIntersections().get("SIM" + i);
+            vehicles += intersection.getVehicleCount();
+            checksum = checksum * 31 + intersection.getVehicleCount();
+        }
+        
+        System.setOut(console);
+        System.out.println("intersections=" + count
+                + " simulatedHours=" + hours
+                + " seed=" + seed
+                + " events=" + events
+                + " vehicles=" + vehicles
+                + " checksum=" + Long.toHexString(checksum)
+                + " wallMs=" + wallMillis
+                + " speedup=" + (wallMillis == 0 ? "inf" : String.valueOf(hours * 3_600_000L / wallMillis)) + "x");
+    }
+}
@@ -0,0 +1,75 @@
+package bench;
+
+import logging.EventLog;
+import logging.EventType;
+import logging.LogLevel;
+import model.Direction;
+import model.Intersection;
+import model.VehicleType;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+
+// Compares the old println-per-arrival path with the asynchronous EventLog, both writing to a file.
+// Usage: java -cp core/target/classes:benchmarks/target/classes bench.EventLogBenchmark [threads] [eventsPerThread]
+public class EventLogBenchmark {
+    
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int events = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        Intersection intersection = new Intersection("BENCH", "Grid");
+        
+        File printlnFile = File.createTempFile("println", ".log");
+        try (PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream(printlnFile), 1 << 16))) {
+            long nanos = run(threads, () -> {
+                for (int i = 0; i < events; i++) {
+                    out.println("Vehicle " + intersection.getIntersectionId() + "_V" + i + " (" + VehicleType.CAR
+                        + ") arrived at " + intersection.getIntersectionId());
+                }
+            });
+            report("println", threads, events, nanos, nanos, 0);
+        }
+        
+        File logFile = File.createTempFile("eventlog", ".log");
+        EventLog log = new EventLog(logFile.getPath(), LogLevel.INFO, 1, 1 << 20, Long.MAX_VALUE, 1, false);
+        long details = EventType.arrivalDetails(VehicleType.CAR, Direction.NORTH);
+        long start = System.nanoTime();
+        long producerNanos = run(threads, () -> {
+            for (int i = 0; i < events; i++) {
+                log.publish(EventType.VEHICLE_ARRIVAL, 0, intersection, i, details);
+            }
+        });
+        log.flush();
+        long totalNanos = System.nanoTime() - start;
+        report("eventlog", threads, events, producerNanos, totalNanos, log.getDroppedCount());
+        log.close();
+        
+        printlnFile.delete();
+        logFile.delete();
+    }
+    
+    private static long run(int threads, Runnable body) throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Thread(body);
+        }
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return System.nanoTime() - start;
+    }
+    
+    private static void report(String path, int threads, int events, long producerNanos, long totalNanos, long dropped) {
+        long total = (long) threads * events;
+        System.out.println(path + ": threads=" + threads + " events=" + total
+            + " producerEventsPerSec=" + (total * 1_000_000_000L / producerNanos)
+            + " endToEndEventsPerSec=" + (total * 1_000_000_000L / totalNanos)
+            + " dropped=" + dropped);
+    }
+}
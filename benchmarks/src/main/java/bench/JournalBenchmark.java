@@ -0,0 +1,78 @@
+package bench;
+
+import journal.EventJournal;
+import journal.JournalReplayer;
+import model.Direction;
+import model.Intersection;
+import model.SignalState;
+import model.VehicleType;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+// Measures sustained journal ingest from several threads, then replays the journal.
+// Usage: java -cp core/target/classes:benchmarks/target/classes bench.JournalBenchmark [threads] [eventsPerThread] [intersections]
+public class JournalBenchmark {
+    
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int events = args.length > 1 ? Integer.parseInt(args[1]) : 5_000_000;
+        int count = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        Path directory = Files.createTempDirectory("journal-bench");
+        
+        Intersection[] intersections = new Intersection[count];
+        EventJournal journal = new EventJournal(directory.toString());
+        for (int i = 0; i < count; i++) {
+            intersections[i] = new Intersection("J" + i, "Grid");
+            intersections[i].setIndex(i);
+            journal.defineIntersection(intersections[i], 0);
+        }
+        
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < events; i++) {
+                    Intersection intersection = intersections[(i + offset) % count];
+                    if ((i & 7) == 0) {
+                        journal.onSignalChange(intersection, i & 3, SignalState.RED, SignalState.GREEN, i);
+                    } else {
+                        journal.onVehicleArrival(intersection, Direction.NORTH, VehicleType.CAR, i);
+                    }
+                }
+            });
+        }
+        
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        journal.close();
+        long ingestNanos = System.nanoTime() - start;
+        
+        start = System.nanoTime();
+        Map<String, Intersection> replayed = JournalReplayer.replay(directory.toString(), Long.MAX_VALUE);
+        long replayNanos = System.nanoTime() - start;
+        long vehicles = 0;
+        for (Intersection intersection : replayed.values()) {
+            vehicles += intersection.getVehicleCount();
+        }
+        
+        long total = (long) threads * events;
+        System.out.println("threads=" + threads + " events=" + total
+            + " ingestEventsPerSec=" + (total * 1_000_000_000L / ingestNanos)
+            + " replayEventsPerSec=" + (total * 1_000_000_000L / replayNanos)
+            + " replayedIntersections=" + replayed.size()
+            + " replayedVehicles=" + vehicles);
+        
+        for (File file : directory.toFile().listFiles()) {
+            file.delete();
+        }
+        directory.toFile().delete();
+    }
+}
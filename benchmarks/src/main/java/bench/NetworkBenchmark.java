@@ -0,0 +1,48 @@
+package bench;
+
+import logging.EventLog;
+import logging.LogLevel;
+import network.NetworkSimulation;
+import network.RoadNetwork;
+import service.PhasePlans;
+
+// Region-partitioned network simulation: the same seeded city grid run with 1, 2, 4, ...
+// regions, comparing wall time (speedup over one region), the vehicles that crossed region
+// boundaries, and totals that should barely move with the partition.
+// Usage: java -cp core/target/classes:benchmarks/target/classes bench.NetworkBenchmark [rows] [cols] [simulatedMinutes] [maxRegions]
+public class NetworkBenchmark {
+    private static final int TRAVEL_SECONDS = 20;
+    private static final double ENTRIES_PER_HOUR = 600;
+    
+    public static void main(String[] args) throws InterruptedException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 316;
+        int cols = args.length > 1 ? Integer.parseInt(args[1]) : 316;
+        int minutes = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int maxRegions = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        EventLog.get().setLevel(LogLevel.WARN);
+        
+        RoadNetwork network = RoadNetwork.grid(rows, cols, TRAVEL_SECONDS);
+        System.out.println("grid=" + rows + "x" + cols + " intersections=" + network.size() + " links=" + network.getLinkCount()
+            + " simulatedMinutes=" + minutes + " cores=" + Runtime.getRuntime().availableProcessors());
+        
+        PhasePlans plans = new PhasePlans();
+        long baselineMillis = 0;
+        for (int regions = 1; regions <= maxRegions; regions *= 2) {
+            try (NetworkSimulation simulation = new NetworkSimulation(network, regions, plans::planFor, 1800, ENTRIES_PER_HOUR, 42L)) {
+                long start = System.nanoTime();
+                simulation.runUntil(minutes * 60_000L);
+                long wallMillis = (System.nanoTime() - start) / 1_000_000;
+                if (regions == 1) {
+                    baselineMillis = wallMillis;
+                }
+                System.out.println("regions=" + regions + " boundaryLinks=" + simulation.getPartition().getBoundaryLinks()
+                    + " windowMs=" + simulation.getWindowMillis() + " wallMs=" + wallMillis
+                    + String.format(" speedup=%.2f", (double) baselineMillis / Math.max(wallMillis, 1))
+                    + " events=" + simulation.getEventsProcessed() + " transfers=" + simulation.getTransfers());
+                System.out.println("  entered=" + simulation.getEntered() + " exited=" + simulation.getExited()
+                    + " queued=" + simulation.getQueued() + " dropped=" + simulation.getDropped()
+                    + String.format(" averageDelay=%.1fs", simulation.getAverageDelayMillis() / 1000));
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package bench;
+
+import model.Direction;
+import model.Intersection;
+import model.PhasePlan;
+import model.SignalSnapshot;
+import model.SignalState;
+import service.PhasePlans;
+import service.PreemptionMetrics;
+import service.SignalController;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Random;
+
+// Compiled phase plans: drives controllers tick by tick through every plan in the plans file,
+// with random emergency preemptions and a plan swap every few cycles, checking after each tick
+// that no north-south green coexists with an east-west green and that no signal goes straight
+// from green to red. Then swaps between every ordered pair of plans, including one whose last
+// phase holds a green over the cycle wrap, and rejects any green to red across a swap.
+// Reports the cost and allocation of a tick.
+// Usage: java -cp core/target/classes:benchmarks/target/classes bench.PhasePlanBenchmark [plansFile] [ticks]
+public class PhasePlanBenchmark {
+    
+    public static void main(String[] args) throws Exception {
+        String plansFile = args.length > 0 ? args[0] : "phase_plans.csv";
+        int ticks = args.length > 1 ? Integer.parseInt(args[1]) : 5_000_000;
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        System.setProperty("traffic.log.level", "ERROR");
+        
+        PhasePlans plans = PhasePlans.load(plansFile, "missing-assignments.csv");
+        // South keeps its green from the last phase into the first, so the wrap has no yellow for it
+        PhasePlan lagging = new PhasePlan("LAGGING", Arrays.asList(
+            new PhasePlan.Phase(EnumSet.of(Direction.NORTH, Direction.SOUTH), 25, 5, 0),
+            new PhasePlan.Phase(EnumSet.of(Direction.EAST, Direction.WEST), 25, 5, 1),
+            new PhasePlan.Phase(EnumSet.of(Direction.SOUTH), 10, 4, 1)));
+        PhasePlan[] all = {plans.get("DEFAULT"), plans.get("PROTECTED_TURNS"), plans.get("SPLIT"), lagging};
+        for (PhasePlan plan : all) {
+            console.println(plan + " -> " + plan.getTable().size() + " steps (" + plan.getTable().getCycleLength() + " in cycle)");
+        }
+        
+        Intersection intersection = new Intersection("PLAN", "Bench");
+        SignalController controller = new SignalController(intersection, new PreemptionMetrics(), all[0]);
+        Random random = new Random(42);
+        SignalSnapshot previous = intersection.snapshotSignals();
+        long conflicts = 0;
+        long skippedYellows = 0;
+        long preemptions = 0;
+        for (int i = 0; i < ticks; i++) {
+            if (random.nextInt(50) == 0) {
+                controller.requestPreemption(Direction.values()[random.nextInt(4)]);
+                preemptions++;
+            }
+            if (i % 1000 == 0) {
+                controller.setPlan(all[(i / 1000) % all.length]);
+            }
+            controller.step();
+            SignalSnapshot current = intersection.snapshotSignals();
+            boolean northSouth = current.getState(Direction.NORTH) == SignalState.GREEN || current.getState(Direction.SOUTH) == SignalState.GREEN;
+            boolean eastWest = current.getState(Direction.EAST) == SignalState.GREEN || current.getState(Direction.WEST) == SignalState.GREEN;
+            if (northSouth && eastWest) {
+                conflicts++;
+            }
+            skippedYellows += greenToRed(previous, current);
+            previous = current;
+        }
+        console.println("checked: ticks=" + ticks + " preemptions=" + preemptions + " conflictingGreens=" + conflicts
+            + " greenToRed=" + skippedYellows + " " + controller.getPreemptionMetrics());
+        
+        // Every ordered pair, swapped at a random point of the outgoing cycle and run until well past the wrap
+        long swaps = 0;
+        long swapGreenToRed = 0;
+        for (PhasePlan from : all) {
+            for (PhasePlan to : all) {
+                for (int round = 0; round < 100; round++) {
+                    Intersection swapped = new Intersection("SWAP", "Bench");
+                    SignalController swapController = new SignalController(swapped, new PreemptionMetrics(), from);
+                    SignalSnapshot before = swapped.snapshotSignals();
+                    int lead = random.nextInt(2 * from.getTable().size()) + 1;
+                    int run = lead + 3 * (from.getTable().size() + to.getTable().size());
+                    for (int i = 0; i < run; i++) {
+                        if (i == lead) {
+                            swapController.setPlan(to);
+                        }
+                        swapController.step();
+                        SignalSnapshot after = swapped.snapshotSignals();
+                        swapGreenToRed += greenToRed(before, after);
+                        before = after;
+                    }
+                    swaps++;
+                }
+            }
+        }
+        console.println("swaps: checked=" + swaps + " greenToRed=" + swapGreenToRed);
+        
+        // Tick cost alone: no snapshots, no preemptions
+        for (int round = 0; round < 3; round++) {
+            long allocated = allocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < ticks; i++) {
+                controller.step();
+            }
+            long nanos = System.nanoTime() - start;
+            console.println("tick: nsPerTick=" + nanos / ticks + " bytesPerTick="
+                + String.format("%.3f", (double) (allocatedBytes() - allocated) / ticks));
+        }
+        if (conflicts != 0 || skippedYellows != 0 || swapGreenToRed != 0) {
+            throw new IllegalStateException("Unsafe transition");
+        }
+    }
+    
+    private static int greenToRed(SignalSnapshot previous, SignalSnapshot current) {
+        int count = 0;
+        for (int signal = 0; signal < current.size(); signal++) {
+            if (previous.getState(signal) == SignalState.GREEN && current.getState(signal) == SignalState.RED) {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,36 @@
+package bench;
+
+import service.ExecutionMode;
+import service.TrafficManager;
+import util.InvalidSignalException;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+// Runs N active intersections and prints the emergency preemption latency histograms.
+// Usage: java -cp core/target/classes:benchmarks/target/classes bench.PreemptionBenchmark [intersections] [seconds] [mode]
+public class PreemptionBenchmark {
+    
+    public static void main(String[] args) throws InvalidSignalException, InterruptedException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+        ExecutionMode mode = args.length > 2 ? ExecutionMode.valueOf(args[2]) : ExecutionMode.TIMER_WHEEL;
+        
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        
+        TrafficManager manager = new TrafficManager(mode);
+        for (int i = 0; i < count; i++) {
+            String id = "PRE" + i;
+            manager.addIntersection(id, "Grid");
+            manager.startIntersection(id);
+        }
+        
+        Thread.sleep(seconds * 1000L);
+        manager.shutdown(10_000);
+        
+        System.setOut(console);
+        System.out.println("mode=" + mode + " intersections=" + count + " seconds=" + seconds);
+        System.out.println(manager.getPreemptionMetrics());
+    }
+}
@@ -0,0 +1,76 @@
+package bench;
+
+import logging.EventLog;
+import logging.LogLevel;
+import model.Direction;
+import model.Intersection;
+import service.ExecutionMode;
+import service.TrafficManager;
+import service.TrafficQueues;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.Collection;
+
+// Per-approach queues at city scale: the same seeded DISCRETE_EVENT run with and without
+// queues, comparing wall time, then throughput, delay and queue lengths from the queued run
+// and the heap the queues retain.
+// Usage: java -cp core/target/classes:benchmarks/target/classes bench.QueueBenchmark [intersections] [simulatedMinutes]
+public class QueueBenchmark {
+    
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int minutes = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        EventLog.get().setLevel(LogLevel.WARN);
+        
+        run(console, count, minutes, false);
+        run(console, count, minutes, true);
+    }
+    
+    private static void run(PrintStream console, int count, int minutes, boolean withQueues) {
+        TrafficManager manager = new TrafficManager(ExecutionMode.DISCRETE_EVENT, 42L);
+        for (int i = 0; i < count; i++) {
+            manager.addIntersection("Q" + i, "Grid");
+        }
+        long heapBefore = usedHeap();
+        if (withQueues) {
+            manager.enableQueues(1800);
+        }
+        long queueBytes = usedHeap() - heapBefore;
+        manager.startAll();
+        
+        long start = System.nanoTime();
+        long events = manager.runSimulation(minutes * 60_000L);
+        long wallMillis = (System.nanoTime() - start) / 1_000_000;
+        console.println((withQueues ? "queues:    " : "no queues: ") + "intersections=" + count + " simulatedMinutes=" + minutes
+            + " events=" + events + " wallMs=" + wallMillis + " nsPerEvent=" + wallMillis * 1_000_000 / Math.max(events, 1));
+        if (!withQueues) {
+            return;
+        }
+        
+        TrafficQueues queues = manager.getQueues();
+        Collection<Intersection> all = manager.getIntersections().values();
+        long arrivals = 0;
+        int longest = 0;
+        for (Intersection intersection : all) {
+            arrivals += intersection.getVehicleCount();
+            for (Direction direction : Direction.values()) {
+                longest = Math.max(longest, queues.getMaxQueueLength(intersection, direction));
+            }
+        }
+        console.println("  arrivals=" + arrivals + " discharged=" + queues.getDischarged(all) + " waiting=" + queues.getQueueLength(all)
+            + " dropped=" + queues.getDropped() + " longestQueue=" + longest
+            + String.format(" averageDelay=%.1fs", queues.getAverageDelayMillis(all) / 1000));
+        console.println("  queueHeap=" + queueBytes / 1024 / 1024 + "MB (" + queueBytes / count + " bytes/intersection)");
+    }
+    
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,75 @@
+package bench;
+
+import service.ExecutionMode;
+import service.IntersectionHandle;
+import service.TrafficManager;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+// Concurrent registry use at scale: N API threads all try to add every intersection, and
+// exactly one add per ID must win; the whole registry is then started and stopped with the
+// parallel bulk operations, checking every handle's state after each.
+// Usage: java -Xmx4g -cp core/target/classes:benchmarks/target/classes bench.RegistryBenchmark [intersections] [threads]
+public class RegistryBenchmark {
+    
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        System.setProperty("traffic.log.level", "ERROR");
+        
+        TrafficManager manager = new TrafficManager(ExecutionMode.TIMER_WHEEL, 42L);
+        int[] added = new int[threads];
+        CountDownLatch done = new CountDownLatch(threads);
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int slice = t;
+            new Thread(() -> {
+                // Every thread offers every ID, each starting at a different offset
+                int offset = (int) ((long) count * slice / threads);
+                for (int n = 0; n < count; n++) {
+                    int i = (offset + n) % count;
+                    if (manager.addIntersection("INT" + i, "Zone " + (i % 1000))) {
+                        added[slice]++;
+                    }
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        long addMillis = (System.nanoTime() - start) / 1_000_000;
+        int totalAdded = 0;
+        for (int a : added) {
+            totalAdded += a;
+        }
+        console.println("concurrentAdd: threads=" + threads + " attempts=" + (long) count * threads
+            + " added=" + totalAdded + " registered=" + manager.getRegistry().size() + " ms=" + addMillis);
+        if (totalAdded != count || manager.getRegistry().size() != count) {
+            throw new IllegalStateException("Expected exactly " + count + " successful adds");
+        }
+        
+        start = System.nanoTime();
+        manager.startAll();
+        console.println("startAll: ms=" + (System.nanoTime() - start) / 1_000_000 + " running=" + count(manager, true));
+        
+        start = System.nanoTime();
+        manager.stopAll();
+        console.println("stopAll: ms=" + (System.nanoTime() - start) / 1_000_000 + " stopped=" + count(manager, false));
+        manager.shutdown(1000);
+    }
+    
+    private static int count(TrafficManager manager, boolean running) {
+        List<IntersectionHandle> matching = new ArrayList<>();
+        for (IntersectionHandle handle : manager.getRegistry().handles()) {
+            if (handle.isRunning() == running) {
+                matching.add(handle);
+            }
+        }
+        return matching.size();
+    }
+}
@@ -0,0 +1,76 @@
+package bench;
+
+import model.Direction;
+import model.Intersection;
+import model.VehicleType;
+import service.ExecutionMode;
+import service.TrafficManager;
+import service.TrafficReport;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+// Report cost against the number of intersections: the incrementally maintained report next
+// to the previous stream passes (sum, max, sort by ID), plus arrival throughput with the
+// aggregator attached. The top-K result is checked against a full sort.
+// Usage: java -cp core/target/classes:benchmarks/target/classes bench.ReportBenchmark [intersections] [arrivals]
+public class ReportBenchmark {
+    
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int arrivals = args.length > 1 ? Integer.parseInt(args[1]) : 20_000_000;
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        
+        TrafficManager manager = new TrafficManager(ExecutionMode.DISCRETE_EVENT);
+        for (int i = 0; i < count; i++) {
+            manager.addIntersection("INT" + i, "Zone " + (i % 1000));
+        }
+        List<Intersection> all = new ArrayList<>(manager.getIntersections().values());
+        Direction[] directions = Direction.values();
+        
+        SplittableRandom random = new SplittableRandom(42);
+        long start = System.nanoTime();
+        for (int i = 0; i < arrivals; i++) {
+            // Skewed load so a stable set of hot intersections exists
+            int index = random.nextInt(4) == 0 ? random.nextInt(100) : random.nextInt(count);
+            all.get(index).incrementVehicleCount(directions[i & 3], VehicleType.CAR);
+        }
+        long arrivalNanos = System.nanoTime() - start;
+        console.println("arrivals=" + arrivals + " nsPerArrival=" + arrivalNanos / arrivals);
+        
+        for (int round = 0; round < 5; round++) {
+            start = System.nanoTime();
+            TrafficReport report = manager.getReport();
+            long incrementalNanos = System.nanoTime() - start;
+            
+            start = System.nanoTime();
+            long total = all.stream().mapToLong(Intersection::getVehicleCount).sum();
+            Intersection busiest = all.stream().max(Comparator.comparingLong((Intersection i) -> i.getVehicleCount())).get();
+            List<Intersection> sorted = new ArrayList<>(all);
+            sorted.sort(Comparator.comparing(Intersection::getIntersectionId));
+            long streamNanos = System.nanoTime() - start;
+            
+            console.println("incrementalReport us=" + incrementalNanos / 1000 + " streamReport us=" + streamNanos / 1000);
+            if (report.getTotalVehicles() != total
+                    || report.getBusiestIntersections().get(0).getVehicles() != busiest.getVehicleCount()) {
+                throw new IllegalStateException("Report disagrees with full scan");
+            }
+        }
+        
+        List<Intersection> byCount = new ArrayList<>(all);
+        byCount.sort(Comparator.comparingLong((Intersection i) -> i.getVehicleCount()).reversed());
+        List<TrafficReport.Entry> top = manager.getReport().getBusiestIntersections();
+        for (int i = 0; i < top.size(); i++) {
+            if (top.get(i).getVehicles() != byCount.get(i).getVehicleCount()) {
+                throw new IllegalStateException("Top-K rank " + i + " is " + top.get(i) + ", expected "
+                    + byCount.get(i));
+            }
+        }
+        console.println("topK verified: " + top);
+    }
+}
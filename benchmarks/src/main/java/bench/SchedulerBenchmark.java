@@ -0,0 +1,62 @@
+package bench;
+
+import model.Intersection;
+import service.ExecutionMode;
+import service.TrafficManager;
+import util.InvalidSignalException;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+
+// Starts N intersections in the given execution mode and reports threads, heap, start-up time
+// and delivered arrivals.
+// Usage: java -Xmx4g -cp core/target/classes:benchmarks/target/classes bench.SchedulerBenchmark [intersections] [seconds] [mode]
+public class SchedulerBenchmark {
+    
+    public static void main(String[] args) throws InvalidSignalException, InterruptedException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 60;
+        ExecutionMode mode = args.length > 2 ? ExecutionMode.valueOf(args[2]) : ExecutionMode.TIMER_WHEEL;
+        
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        
+        TrafficManager manager = new TrafficManager(mode);
+        long startNanos = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            String id = "BENCH" + i;
+            manager.addIntersection(id, "Grid");
+            manager.startIntersection(id);
+        }
+        long startupMillis = (System.nanoTime() - startNanos) / 1_000_000;
+        
+        Thread.sleep(seconds * 1000L);
+        
+        long vehicles = 0;
+        for (Intersection intersection : manager.getIntersections().values()) {
+            vehicles += intersection.getVehicleCount();
+        }
+        int threads = ManagementFactory.getThreadMXBean().getThreadCount();
+        int peakThreads = ManagementFactory.getThreadMXBean().getPeakThreadCount();
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long heapMb = memory.getHeapMemoryUsage().getUsed() / (1024 * 1024);
+        manager.shutdown(10_000);
+        
+        System.setOut(console);
+        // Arrivals are uniform over 2-5 s, so a healthy scheduler delivers about N * seconds / 3.5
+        long expected = (long) (count * (seconds / 3.5));
+        System.out.println("mode=" + mode
+                + " intersections=" + count
+                + " seconds=" + seconds
+                + " cpus=" + Runtime.getRuntime().availableProcessors()
+                + " startupMs=" + startupMillis
+                + " liveThreads=" + threads
+                + " peakThreads=" + peakThreads
+                + " heapUsedMb=" + heapMb
+                + " vehicles=" + vehicles
+                + " expectedVehicles~" + expected);
+    }
+}
@@ -0,0 +1,101 @@
+package bench;
+
+import model.Intersection;
+import model.SignalState;
+import model.SignalStore;
+import util.Clock;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Retained heap of signal state at city scale. For each size it measures the signals alone
+// (four TrafficSignal objects in a list per intersection, as Intersection builds them, against
+// one SignalStore) and then whole intersections built both ways, after which a phase change
+// and a read are run over every compact intersection.
+// Usage: java -Xmx5g -cp core/target/classes:benchmarks/target/classes bench.SignalFootprintBenchmark [signals...]
+public class SignalFootprintBenchmark {
+    private static final SignalState[] NS_GREEN = {SignalState.GREEN, SignalState.GREEN, SignalState.RED, SignalState.RED};
+    // Keeps the measured structure reachable while the heap is sampled
+    private static Object retained;
+    
+    public static void main(String[] args) {
+        int[] sizes = args.length > 0 ? new int[args.length] : new int[] {1_000_000, 10_000_000};
+        for (int i = 0; i < args.length; i++) {
+            sizes[i] = Integer.parseInt(args[i]);
+        }
+        
+        for (int signals : sizes) {
+            int intersections = signals / 4;
+            System.out.println("--- " + signals + " signals (" + intersections + " intersections)");
+            
+            long base = usedHeap();
+            List<List<model.TrafficSignal>> objects = new ArrayList<>(intersections);
+            for (int i = 0; i < intersections; i++) {
+                List<model.TrafficSignal> group = new ArrayList<>(4);
+                for (String direction : new String[] {"N", "S", "E", "W"}) {
+                    group.add(new model.TrafficSignal("INT" + i + "_" + direction, direction, Clock.SYSTEM));
+                }
+                objects.add(group);
+            }
+            retained = objects;
+            report("signal objects", usedHeap() - base - listOverhead(intersections), signals);
+            objects = null;
+            retained = null;
+            
+            base = usedHeap();
+            retained = new SignalStore(signals);
+            report("signal store", usedHeap() - base, signals);
+            retained = null;
+            
+            base = usedHeap();
+            Intersection[] built = new Intersection[intersections];
+            for (int i = 0; i < intersections; i++) {
+                built[i] = new Intersection("INT" + i, "Zone " + (i % 1000));
+            }
+            retained = built;
+            report("intersections, signal objects", usedHeap() - base, signals);
+            built = null;
+            retained = null;
+            
+            base = usedHeap();
+            built = new Intersection[intersections];
+            SignalStore store = new SignalStore(signals);
+            for (int i = 0; i < intersections; i++) {
+                built[i] = new Intersection("INT" + i, "Zone " + (i % 1000), Clock.SYSTEM, store);
+            }
+            retained = built;
+            report("intersections, signal store", usedHeap() - base, signals);
+            
+            long start = System.nanoTime();
+            int green = 0;
+            for (Intersection intersection : built) {
+                intersection.changeSignalStates(NS_GREEN);
+                if (intersection.getSignalState(0) == SignalState.GREEN) {
+                    green++;
+                }
+            }
+            long nanos = System.nanoTime() - start;
+            System.out.printf("  phase change + read over compact intersections: %.1f ns/intersection (%d green)%n",
+                (double) nanos / intersections, green);
+            built = null;
+            retained = null;
+        }
+    }
+    
+    // The outer list of the object layout, which the store does not need either
+    private static long listOverhead(int intersections) {
+        return 16L + 4L * intersections;
+    }
+    
+    private static void report(String label, long bytes, int signals) {
+        System.out.printf("  %-32s %,14d bytes  %6.1f bytes/signal%n", label, bytes, (double) bytes / signals);
+    }
+    
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,95 @@
+package bench;
+
+import model.Direction;
+import model.Intersection;
+import model.SignalSnapshot;
+import model.SignalState;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Torn reads: a writer flips one intersection between N-S green and E-W green as fast as it
+// can while readers check for both axes green at once, reading the four signals one by one
+// and through the intersection's seqlock snapshot. The snapshot must never show a conflict.
+// Usage: java -cp core/target/classes:benchmarks/target/classes bench.SnapshotBenchmark [readers] [seconds]
+public class SnapshotBenchmark {
+    private static final SignalState[] NS_GREEN = {SignalState.GREEN, SignalState.GREEN, SignalState.RED, SignalState.RED};
+    private static final SignalState[] EW_GREEN = {SignalState.RED, SignalState.RED, SignalState.GREEN, SignalState.GREEN};
+    
+    public static void main(String[] args) throws Exception {
+        int readers = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        Intersection intersection = new Intersection("SNAP", "Bench");
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong writes = new AtomicLong();
+        AtomicLong writerBytes = new AtomicLong();
+        
+        Thread writer = new Thread(() -> {
+            long allocated = allocatedBytes();
+            long count = 0;
+            while (running.get()) {
+                intersection.changeSignalStates((count++ & 1) == 0 ? NS_GREEN : EW_GREEN);
+            }
+            writerBytes.set(allocatedBytes() - allocated);
+            writes.set(count);
+        });
+        
+        AtomicLong plainReads = new AtomicLong();
+        AtomicLong plainConflicts = new AtomicLong();
+        AtomicLong snapshotReads = new AtomicLong();
+        AtomicLong snapshotConflicts = new AtomicLong();
+        Thread[] readerThreads = new Thread[readers];
+        for (int r = 0; r < readers; r++) {
+            readerThreads[r] = new Thread(() -> {
+                long reads = 0;
+                long conflicts = 0;
+                long snapshots = 0;
+                long snapshotConflictCount = 0;
+                while (running.get()) {
+                    boolean northGreen = intersection.getSignals().get(Direction.NORTH.getSignalIndex()).getCurrentState() == SignalState.GREEN;
+                    boolean eastGreen = intersection.getSignals().get(Direction.EAST.getSignalIndex()).getCurrentState() == SignalState.GREEN;
+                    reads++;
+                    if (northGreen && eastGreen) {
+                        conflicts++;
+                    }
+                    
+                    SignalSnapshot snapshot = intersection.snapshotSignals();
+                    snapshots++;
+                    if (snapshot.getState(Direction.NORTH) == SignalState.GREEN
+                            && snapshot.getState(Direction.EAST) == SignalState.GREEN) {
+                        snapshotConflictCount++;
+                    }
+                }
+                plainReads.addAndGet(reads);
+                plainConflicts.addAndGet(conflicts);
+                snapshotReads.addAndGet(snapshots);
+                snapshotConflicts.addAndGet(snapshotConflictCount);
+            });
+        }
+        
+        writer.start();
+        for (Thread reader : readerThreads) {
+            reader.start();
+        }
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        writer.join();
+        for (Thread reader : readerThreads) {
+            reader.join();
+        }
+        
+        System.out.println("writer: phaseChanges=" + writes.get() + " nsPerChange=" + seconds * 1_000_000_000L / Math.max(writes.get(), 1)
+            + " bytesPerChange=" + String.format("%.3f", (double) writerBytes.get() / Math.max(writes.get(), 1)));
+        System.out.println("perSignalReads: reads=" + plainReads.get() + " bothAxesGreen=" + plainConflicts.get());
+        System.out.println("snapshotReads: reads=" + snapshotReads.get() + " bothAxesGreen=" + snapshotConflicts.get());
+        if (snapshotConflicts.get() != 0) {
+            throw new IllegalStateException("Snapshot showed conflicting greens");
+        }
+    }
+    
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+            .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,319 @@
+package bench;
+
+import logging.EventLog;
+import logging.LogLevel;
+import model.Intersection;
+import model.SignalState;
+import service.ExecutionMode;
+import service.TrafficManager;
+import stream.StateStreamServer;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+// Dashboard fan-out: a timer-wheel city streams to many WebSocket clients read from one
+// selector. A few clients decode every frame into a mirror of the city; one client stops
+// reading for a while and must be resynchronised by a keyframe instead of buffering without
+// bound. After the simulation stops, every mirror must equal the manager's state exactly.
+// Reports delta bytes per tick against a full-state frame, which is what polling would cost.
+// Usage: java -cp core/target/classes:benchmarks/target/classes bench.StateStreamBenchmark [intersections] [clients] [seconds]
+public class StateStreamBenchmark {
+    private static final int MIRRORS = 3;
+    private static final SignalState[] CODES = {SignalState.RED, SignalState.YELLOW, SignalState.GREEN};
+    
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int clientCount = args.length > 1 ? Integer.parseInt(args[1]) : 2000;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        EventLog.get().setLevel(LogLevel.WARN);
+        
+        TrafficManager manager = new TrafficManager(ExecutionMode.TIMER_WHEEL, 42L);
+        manager.enableCompactSignals(count);
+        for (int i = 0; i < count; i++) {
+            manager.addIntersection("S" + i, "Zone " + i % 100);
+        }
+        manager.startAll();
+        
+        try (StateStreamServer server = new StateStreamServer(manager, 0, StateStreamServer.DEFAULT_TICK_MILLIS, 256 << 10);
+             Selector selector = Selector.open()) {
+            server.start();
+            List<Client> clients = new ArrayList<>();
+            for (int i = 0; i < clientCount; i++) {
+                Client client = new Client(i < MIRRORS);
+                client.channel = SocketChannel.open(new InetSocketAddress("127.0.0.1", server.getPort()));
+                client.channel.configureBlocking(false);
+                client.channel.write(ByteBuffer.wrap(handshake().getBytes(StandardCharsets.ISO_8859_1)));
+                client.channel.register(selector, SelectionKey.OP_READ, client);
+                clients.add(client);
+            }
+            
+            // The stalled client: connected like the rest but not read for most of the run
+            Socket stalled = new Socket("127.0.0.1", server.getPort());
+            stalled.setReceiveBufferSize(64 << 10);
+            stalled.getOutputStream().write(handshake().getBytes(StandardCharsets.ISO_8859_1));
+            Client stalledMirror = new Client(true);
+            
+            long start = System.nanoTime();
+            long end = start + seconds * 1_000_000_000L;
+            while (System.nanoTime() < end) {
+                poll(selector, 50);
+            }
+            long runNanos = System.nanoTime() - start;
+            long resyncsBeforeDrain = server.getResyncCount();
+            
+            manager.stopAll();
+            Thread.sleep(3 * StateStreamServer.DEFAULT_TICK_MILLIS);
+            long quietSince = System.nanoTime();
+            while (System.nanoTime() - quietSince < 1_000_000_000L) {
+                if (poll(selector, 50) > 0) {
+                    quietSince = System.nanoTime();
+                }
+            }
+            drainBlocking(stalled, stalledMirror);
+            
+            Client mirror = clients.get(0);
+            long totalBytes = 0;
+            for (Client client : clients) {
+                totalBytes += client.bytes;
+            }
+            int mismatches = 0;
+            for (int i = 0; i < MIRRORS; i++) {
+                mismatches += compare(manager, clients.get(i));
+            }
+            int stalledMismatches = compare(manager, stalledMirror);
+            console.println("intersections=" + count + " clients=" + clientCount + " seconds=" + seconds
+                + " streams=" + server.getStreamCount());
+            console.println(String.format("deltas=%d avgDeltaBytes=%d avgRecords=%d keyframeBytes=%d deltaToFull=%.3f",
+                mirror.deltas, mirror.deltaBytes / Math.max(1, mirror.deltas), mirror.deltaRecords / Math.max(1, mirror.deltas),
+                mirror.keyframeBytes, (double) mirror.deltaBytes / Math.max(1, mirror.deltas) / Math.max(1, mirror.keyframeBytes)));
+            console.println(String.format("fanOutMBps=%.1f perClientKBps=%.1f mirrorMismatches=%d",
+                totalBytes / (runNanos / 1e9) / (1 << 20), totalBytes / (runNanos / 1e9) / 1024 / clientCount, mismatches));
+            console.println("stalled client: resyncs=" + resyncsBeforeDrain + " keyframes=" + stalledMirror.keyframes
+                + " mismatches=" + stalledMismatches);
+            stalled.close();
+            for (Client client : clients) {
+                client.channel.close();
+            }
+        }
+        manager.shutdown(1000);
+    }
+    
+    private static String handshake() {
+        return "GET /stream HTTP/1.1\r\nHost: localhost\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+            + "Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\nSec-WebSocket-Version: 13\r\n\r\n";
+    }
+    
+    private static int poll(Selector selector, long timeoutMillis) throws Exception {
+        int read = 0;
+        selector.select(timeoutMillis);
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            Client client = (Client) key.attachment();
+            ByteBuffer buffer = client.buffer;
+            int n;
+            while ((n = client.channel.read(buffer)) > 0) {
+                read += n;
+                client.bytes += n;
+                buffer.flip();
+                client.consume(buffer);
+                buffer.compact();
+            }
+        }
+        return read;
+    }
+    
+    // Reads whatever the stalled client was sent until the stream goes quiet
+    private static void drainBlocking(Socket socket, Client client) throws Exception {
+        socket.setSoTimeout(1000);
+        InputStream in = socket.getInputStream();
+        byte[] chunk = new byte[64 << 10];
+        while (true) {
+            int n;
+            try {
+                n = in.read(chunk);
+            } catch (SocketTimeoutException e) {
+                return;
+            }
+            if (n < 0) {
+                return;
+            }
+            ByteBuffer buffer = client.buffer;
+            int offset = 0;
+            while (offset < n) {
+                int part = Math.min(buffer.remaining(), n - offset);
+                buffer.put(chunk, offset, part);
+                offset += part;
+                buffer.flip();
+                client.consume(buffer);
+                buffer.compact();
+            }
+        }
+    }
+    
+    private static int compare(TrafficManager manager, Client client) {
+        int mismatches = 0;
+        for (Intersection intersection : manager.getIntersections().values()) {
+            Integer index = client.indexById.get(intersection.getIntersectionId());
+            if (index == null || client.vehicles[index] != intersection.getVehicleCount()) {
+                mismatches++;
+                continue;
+            }
+            for (int signal = 0; signal < 4; signal++) {
+                if (CODES[(client.signals[index] >> (signal * 2)) & 3] != intersection.getSignalState(signal)) {
+                    mismatches++;
+                    break;
+                }
+            }
+        }
+        return mismatches;
+    }
+    
+    // One WebSocket client; mirrors decode frames, the rest only frame them
+    private static final class Client {
+        final boolean mirror;
+        final ByteBuffer buffer = ByteBuffer.allocate(64 << 10);
+        SocketChannel channel;
+        boolean upgraded;
+        long bytes;
+        long payloadLeft = -1;
+        byte[] payload = new byte[0];
+        int payloadSize;
+        long deltas;
+        long deltaBytes;
+        long deltaRecords;
+        long keyframes;
+        long keyframeBytes;
+        final Map<String, Integer> indexById = new HashMap<>();
+        long[] vehicles = new long[1024];
+        byte[] signals = new byte[1024];
+        
+        Client(boolean mirror) {
+            this.mirror = mirror;
+        }
+        
+        void consume(ByteBuffer in) {
+            if (!upgraded) {
+                while (in.remaining() >= 4) {
+                    int p = in.position();
+                    if (in.get(p) == '\r' && in.get(p + 1) == '\n' && in.get(p + 2) == '\r' && in.get(p + 3) == '\n') {
+                        in.position(p + 4);
+                        upgraded = true;
+                        break;
+                    }
+                    in.get();
+                }
+                if (!upgraded) {
+                    return;
+                }
+            }
+            while (true) {
+                if (payloadLeft < 0) {
+                    if (in.remaining() < 2) {
+                        return;
+                    }
+                    int p = in.position();
+                    int length = in.get(p + 1) & 0x7F;
+                    int header = length == 126 ? 4 : length == 127 ? 10 : 2;
+                    if (in.remaining() < header) {
+                        return;
+                    }
+                    long size = length == 126 ? in.getShort(p + 2) & 0xFFFF : length == 127 ? in.getLong(p + 2) : length;
+                    in.position(p + header);
+                    payloadLeft = size;
+                    payloadSize = 0;
+                    if (mirror && payload.length < size) {
+                        payload = new byte[(int) size];
+                    }
+                }
+                int part = (int) Math.min(payloadLeft, in.remaining());
+                if (mirror) {
+                    in.get(payload, payloadSize, part);
+                } else {
+                    in.position(in.position() + part);
+                }
+                payloadSize += part;
+                payloadLeft -= part;
+                if (payloadLeft > 0) {
+                    return;
+                }
+                payloadLeft = -1;
+                if (mirror) {
+                    apply(ByteBuffer.wrap(payload, 0, payloadSize));
+                }
+            }
+        }
+        
+        // Decodes one frame as described in DeltaEncoder
+        void apply(ByteBuffer frame) {
+            int size = frame.remaining();
+            int kind = frame.get();
+            varint(frame);
+            varint(frame);
+            long records = varint(frame);
+            if (kind == 2) {
+                keyframes++;
+                keyframeBytes = size;
+            } else {
+                deltas++;
+                deltaBytes += size;
+                deltaRecords += records;
+            }
+            int index = -1;
+            for (long r = 0; r < records; r++) {
+                index += (int) varint(frame) + 1;
+                int type = frame.get();
+                if (type == 2) {
+                    continue;
+                }
+                if (index >= vehicles.length) {
+                    vehicles = Arrays.copyOf(vehicles, Math.max(index + 1, vehicles.length * 2));
+                    signals = Arrays.copyOf(signals, vehicles.length);
+                }
+                if (type == 1) {
+                    indexById.put(string(frame), index);
+                    string(frame);
+                }
+                signals[index] = frame.get();
+                vehicles[index] = varint(frame);
+            }
+        }
+        
+        private static long varint(ByteBuffer in) {
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = in.get();
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+        
+        private static String string(ByteBuffer in) {
+            int length = (int) varint(in);
+            String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            return value;
+        }
+    }
+}
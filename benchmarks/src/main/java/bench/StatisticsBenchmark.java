@@ -0,0 +1,86 @@
+package bench;
+
+import model.Direction;
+import model.Intersection;
+import model.VehicleType;
+import service.ExecutionMode;
+import service.TrafficManager;
+import service.TrafficStatistics;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+// Windowed statistics: a simulated hour of DISCRETE_EVENT traffic reports per-minute arrival
+// rates and wait-on-red percentiles, then the arrival path is timed with the statistics
+// attached and the bytes it allocates are measured (expected: none in steady state). The heap
+// the populated windows retain is measured by dropping them and collecting.
+// Usage: java -cp core/target/classes:benchmarks/target/classes bench.StatisticsBenchmark [intersections] [arrivals]
+public class StatisticsBenchmark {
+    
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int arrivals = args.length > 1 ? Integer.parseInt(args[1]) : 10_000_000;
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        
+        TrafficManager manager = new TrafficManager(ExecutionMode.DISCRETE_EVENT, 42L);
+        manager.enableStatistics(300_000, 5);
+        for (int i = 0; i < count; i++) {
+            manager.addIntersection("INT" + i, "Zone " + (i % 10));
+            manager.startIntersection("INT" + i);
+        }
+        manager.runSimulation(3_600_000);
+        
+        TrafficStatistics statistics = manager.getStatistics();
+        List<Intersection> all = new ArrayList<>(manager.getIntersections().values());
+        Intersection first = manager.getIntersections().get("INT0");
+        console.println("simulatedHour: network arrivals/min=" + String.format("%.1f", statistics.getArrivalsPerMinute(all)));
+        console.println("  network wait (ms): " + statistics.getWaitTimes(all));
+        console.println("  INT0 arrivals/min=" + String.format("%.2f", statistics.getArrivalsPerMinute(first)));
+        for (Direction direction : Direction.values()) {
+            console.println("  INT0 " + direction + " wait (ms): " + statistics.getWaitTimes(first, direction));
+        }
+        console.println("  droppedWaits=" + statistics.getDroppedWaits());
+        
+        // Heap held by an hour's worth of populated windows, then start again from empty ones
+        long populated = usedHeap();
+        for (Intersection intersection : all) {
+            statistics.unregister(intersection);
+        }
+        long dropped = usedHeap();
+        console.println("  footprint: bytesPerIntersection=" + (populated - dropped) / count);
+        for (Intersection intersection : all) {
+            statistics.register(intersection);
+        }
+        
+        // Arrival path in isolation; signals no longer change, so held queues fill up and then drop
+        Direction[] directions = Direction.values();
+        long now = manager.getClock().currentTimeMillis();
+        for (int round = 0; round < 3; round++) {
+            long allocated = allocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < arrivals; i++) {
+                all.get(i % count).incrementVehicleCount(directions[i & 3], VehicleType.CAR, now + (i >> 10));
+            }
+            long nanos = System.nanoTime() - start;
+            console.println("arrivalPath: arrivals=" + arrivals + " nsPerArrival=" + nanos / arrivals
+                + " bytesPerArrival=" + String.format("%.3f", (double) (allocatedBytes() - allocated) / arrivals));
+        }
+        
+        manager.shutdown(1000);
+    }
+    
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+    
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
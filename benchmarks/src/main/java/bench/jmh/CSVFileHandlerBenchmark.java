@@ -0,0 +1,70 @@
+package bench.jmh;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import util.CSVFileHandler;
+import util.FileOperationException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Streaming write and read of a signals.csv-shaped file
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class CSVFileHandlerBenchmark {
+    @Param({"10000", "1000000"})
+    public int rows;
+    
+    private File readFile;
+    private File writeFile;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, FileOperationException {
+        Silence.on();
+        readFile = File.createTempFile("jmh-read", ".csv");
+        writeFile = File.createTempFile("jmh-write", ".csv");
+        write(readFile);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        readFile.delete();
+        writeFile.delete();
+        Silence.off();
+    }
+    
+    @Benchmark
+    public void writeRecords() throws FileOperationException {
+        write(writeFile);
+    }
+    
+    @Benchmark
+    public long forEachRecord() throws FileOperationException {
+        long[] sum = new long[1];
+        CSVFileHandler.forEachRecord(readFile.getPath(), record -> {
+            if (record.getRecordNumber() > 0) {
+                sum[0] += record.getInt(3);
+            }
+        });
+        return sum[0];
+    }
+    
+    @Benchmark
+    public void readFromFile(Blackhole blackhole) throws FileOperationException {
+        blackhole.consume(CSVFileHandler.readFromFile(readFile.getPath()));
+    }
+    
+    private void write(File file) throws FileOperationException {
+        CSVFileHandler.writeRecords(file.getPath(), out -> {
+            out.record("SignalID", "Direction", "State", "Duration");
+            for (int i = 0; i < rows; i++) {
+                out.field("INT" + (i >> 2) + "_N").field("NORTH").field("RED").field(30).endRecord();
+            }
+        });
+    }
+}
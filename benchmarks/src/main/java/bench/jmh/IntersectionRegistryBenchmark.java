@@ -0,0 +1,58 @@
+package bench.jmh;
+
+import model.Intersection;
+import org.openjdk.jmh.annotations.*;
+import service.ExecutionMode;
+import service.IntersectionHandle;
+import service.TrafficManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Registry lookups from four threads at 1M entries, and one weakly consistent full traversal
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class IntersectionRegistryBenchmark {
+    @Param({"1000000"})
+    public int intersections;
+    
+    private TrafficManager manager;
+    private String[] ids;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        Silence.on();
+        manager = new TrafficManager(ExecutionMode.DISCRETE_EVENT);
+        ids = new String[intersections];
+        for (int i = 0; i < intersections; i++) {
+            ids[i] = "INT" + i;
+            manager.addIntersection(ids[i], "Zone " + (i % 1000));
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        manager.shutdown(1000);
+        Silence.off();
+    }
+    
+    @Benchmark
+    @Threads(4)
+    public IntersectionHandle lookup() {
+        return manager.getHandle(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+    
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long traverse() {
+        long total = 0;
+        for (Intersection intersection : manager.getIntersections().values()) {
+            total += intersection.getIndex();
+        }
+        return total;
+    }
+}
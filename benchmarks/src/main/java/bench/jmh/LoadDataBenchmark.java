@@ -0,0 +1,65 @@
+package bench.jmh;
+
+import org.openjdk.jmh.annotations.*;
+import service.ExecutionMode;
+import service.TrafficManager;
+import util.CSVFileHandler;
+import util.FileOperationException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Start-up: a fresh manager restoring intersections, counts and signal states from disk
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class LoadDataBenchmark {
+    private static final String[] SUFFIXES = {"N", "S", "E", "W"};
+    private static final String[] DIRECTIONS = {"NORTH", "SOUTH", "EAST", "WEST"};
+    
+    @Param({"100000", "1000000"})
+    public int intersections;
+    
+    private File intersectionsFile;
+    private File signalsFile;
+    
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, FileOperationException {
+        Silence.on();
+        intersectionsFile = File.createTempFile("jmh-intersections", ".csv");
+        signalsFile = File.createTempFile("jmh-signals", ".csv");
+        CSVFileHandler.writeRecords(intersectionsFile.getPath(), out -> {
+            out.record("IntersectionID", "Location", "VehicleCount");
+            for (int i = 0; i < intersections; i++) {
+                out.field("INT" + i).field("Main St, Block " + i).field(i % 1000).endRecord();
+            }
+        });
+        CSVFileHandler.writeRecords(signalsFile.getPath(), out -> {
+            out.record("SignalID", "Direction", "State", "Duration");
+            for (int i = 0; i < intersections; i++) {
+                for (int d = 0; d < 4; d++) {
+                    out.field("INT" + i + "_" + SUFFIXES[d]).field(DIRECTIONS[d]).field(d < 2 ? "GREEN" : "RED")
+                        .field(d < 2 ? 25 : 30).endRecord();
+                }
+            }
+        });
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        intersectionsFile.delete();
+        signalsFile.delete();
+        Silence.off();
+    }
+    
+    @Benchmark
+    public TrafficManager loadData() throws FileOperationException {
+        TrafficManager manager = new TrafficManager(ExecutionMode.DISCRETE_EVENT);
+        manager.loadData(intersectionsFile.getPath(), signalsFile.getPath());
+        return manager;
+    }
+}
@@ -0,0 +1,61 @@
+package bench.jmh;
+
+import model.Direction;
+import model.Intersection;
+import model.VehicleType;
+import org.openjdk.jmh.annotations.*;
+import service.ExecutionMode;
+import service.TrafficManager;
+import service.TrafficReport;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Report cost as the deployment grows; arrivals are skewed so a stable set of leaders exists
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class ReportGenerationBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int intersections;
+    
+    private TrafficManager manager;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        Silence.on();
+        manager = new TrafficManager(ExecutionMode.DISCRETE_EVENT);
+        for (int i = 0; i < intersections; i++) {
+            manager.addIntersection("INT" + i, "Zone " + (i % 1000));
+        }
+        
+        List<Intersection> all = new ArrayList<>(manager.getIntersections().values());
+        Direction[] directions = Direction.values();
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < intersections * 4; i++) {
+            int index = random.nextInt(4) == 0 ? random.nextInt(Math.min(100, intersections)) : random.nextInt(intersections);
+            all.get(index).incrementVehicleCount(directions[i & 3], VehicleType.CAR);
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        manager.shutdown(1000);
+        Silence.off();
+    }
+    
+    @Benchmark
+    public void generateReport() {
+        manager.generateReport();
+    }
+    
+    @Benchmark
+    public TrafficReport getReport() {
+        return manager.getReport();
+    }
+}
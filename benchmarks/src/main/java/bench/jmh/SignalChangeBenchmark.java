@@ -0,0 +1,53 @@
+package bench.jmh;
+
+import model.Intersection;
+import model.SignalState;
+import model.TrafficSignal;
+import org.openjdk.jmh.annotations.*;
+import service.ExecutionMode;
+import service.TrafficManager;
+
+import java.util.concurrent.TimeUnit;
+
+// TrafficSignal.changeState on a standalone signal and on one whose intersection notifies
+// the manager's listeners; every call is a real transition
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignalChangeBenchmark {
+    private TrafficSignal standalone;
+    private TrafficSignal attached;
+    private TrafficManager manager;
+    private boolean green;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        Silence.on();
+        standalone = new TrafficSignal("S_N", "NORTH");
+        manager = new TrafficManager(ExecutionMode.DISCRETE_EVENT);
+        manager.addIntersection("S", "Bench");
+        Intersection intersection = manager.getIntersections().get("S");
+        attached = intersection.getSignals().get(0);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        manager.shutdown(1000);
+        Silence.off();
+    }
+    
+    @Benchmark
+    public void standalone() {
+        green = !green;
+        standalone.changeState(green ? SignalState.GREEN : SignalState.RED);
+    }
+    
+    @Benchmark
+    public void withListeners() {
+        green = !green;
+        attached.changeState(green ? SignalState.GREEN : SignalState.RED);
+    }
+}
@@ -0,0 +1,43 @@
+package bench.jmh;
+
+import model.Intersection;
+import model.SignalSnapshot;
+import model.SignalState;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// One controller switching phases while three readers take snapshots of the same intersection
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignalSnapshotBenchmark {
+    private static final SignalState[] NS_GREEN = {SignalState.GREEN, SignalState.GREEN, SignalState.RED, SignalState.RED};
+    private static final SignalState[] EW_GREEN = {SignalState.RED, SignalState.RED, SignalState.GREEN, SignalState.GREEN};
+    
+    private Intersection intersection;
+    private boolean northSouth;
+    
+    @Setup(Level.Trial)
+    public void setUp() {
+        intersection = new Intersection("SNAP", "Bench");
+    }
+    
+    @Benchmark
+    @Group("phaseChanges")
+    @GroupThreads(1)
+    public void changePhase() {
+        northSouth = !northSouth;
+        intersection.changeSignalStates(northSouth ? NS_GREEN : EW_GREEN);
+    }
+    
+    @Benchmark
+    @Group("phaseChanges")
+    @GroupThreads(3)
+    public SignalSnapshot snapshot() {
+        return intersection.snapshotSignals();
+    }
+}
@@ -0,0 +1,26 @@
+package bench.jmh;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+// The code under test prints progress lines; benchmarks mute stdout while they run
+final class Silence {
+    private static PrintStream original;
+    
+    private Silence() {
+    }
+    
+    static synchronized void on() {
+        if (original == null) {
+            original = System.out;
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        }
+    }
+    
+    static synchronized void off() {
+        if (original != null) {
+            System.setOut(original);
+            original = null;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package bench.jmh;
+
+import model.Direction;
+import model.Intersection;
+import model.VehicleType;
+import org.openjdk.jmh.annotations.*;
+import service.ExecutionMode;
+import service.TrafficManager;
+
+import java.util.concurrent.TimeUnit;
+
+// Intersection.incrementVehicleCount with four threads hammering one intersection, bare and
+// with the manager's listener chain (report aggregation) attached
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class VehicleCountBenchmark {
+    private static final Direction[] DIRECTIONS = Direction.values();
+    
+    @State(Scope.Benchmark)
+    public static class Shared {
+        Intersection bare;
+        Intersection managed;
+        TrafficManager manager;
+        
+        @Setup(Level.Trial)
+        public void setUp() {
+            Silence.on();
+            bare = new Intersection("BARE", "Bench");
+            manager = new TrafficManager(ExecutionMode.DISCRETE_EVENT);
+            manager.addIntersection("MANAGED", "Bench");
+            managed = manager.getIntersections().get("MANAGED");
+        }
+        
+        @TearDown(Level.Trial)
+        public void tearDown() throws InterruptedException {
+            manager.shutdown(1000);
+            Silence.off();
+        }
+    }
+    
+    @State(Scope.Thread)
+    public static class Approach {
+        int next;
+        
+        Direction nextDirection() {
+            return DIRECTIONS[next++ & 3];
+        }
+    }
+    
+    @Benchmark
+    public void contended(Shared shared, Approach approach) {
+        shared.bare.incrementVehicleCount(approach.nextDirection(), VehicleType.CAR);
+    }
+    
+    @Benchmark
+    public void contendedWithListeners(Shared shared, Approach approach) {
+        shared.managed.incrementVehicleCount(approach.nextDirection(), VehicleType.CAR);
+    }
+}
@@ -4,14 +4,18 @@ import io from 'socket.io-client';
 import IntersectionManager from './components/IntersectionManager';
 import Dashboard from './components/Dashboard';
 import Statistics from './components/Statistics';
+import { subscribeStateStream } from './stateStream';
 
 const socket = io('http://localhost:5000');
+// e.g. ws://localhost:8081/stream to show the Java core's live intersections
+const STATE_STREAM_URL = process.env.REACT_APP_STATE_STREAM;
 
 function App() {
   const [activeTab, setActiveTab] = useState('dashboard');
   const [intersections, setIntersections] = useState([]);
   const [vehicles, setVehicles] = useState([]);
   const [loading, setLoading] = useState(true);
+  const [coreIntersections, setCoreIntersections] = useState([]);
 
   useEffect(() => {
     fetchIntersections();
@@ -45,6 +49,19 @@ function App() {
     };
   }, []);
 
+  useEffect(() => {
+    if (!STATE_STREAM_URL) {
+      return undefined;
+    }
+    return subscribeStateStream(STATE_STREAM_URL, setCoreIntersections);
+  }, []);
+
+  // Intersections the Java core streams win over same-named ones from the Node API
+  const coreNames = new Set(coreIntersections.map(intersection => intersection.name));
+  const shownIntersections = coreIntersections.length === 0
+    ? intersections
+    : [...intersections.filter(intersection => !coreNames.has(intersection.name)), ...coreIntersections];
+
   const fetchIntersections = async () => {
     try {
       const response = await axios.get('/api/intersections');
@@ -157,7 +174,7 @@ function App() {
 
       {activeTab === 'dashboard' && (
         <Dashboard 
-          intersections={intersections}
+          intersections={shownIntersections}
           vehicles={vehicles}
           onStartIntersection={startIntersection}
           onStopIntersection={stopIntersection}
@@ -176,7 +193,7 @@ function App() {
 
       {activeTab === 'statistics' && (
         <Statistics 
-          intersections={intersections}
+          intersections={shownIntersections}
           vehicles={vehicles}
         />
       )}
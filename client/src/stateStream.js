@@ -0,0 +1,115 @@
+// Live state from the Java core (-Dtraffic.stream.port). Frames are binary: a keyframe with
+// every intersection, then per-tick deltas carrying only the ones that changed. Values are
+// absolute, so applying them in order keeps the mirror exact. See stream/DeltaEncoder.java.
+const STATES = ['RED', 'YELLOW', 'GREEN'];
+const APPROACHES = ['north', 'south', 'east', 'west'];
+const KEYFRAME = 2;
+const DEFINE = 1;
+const REMOVED = 2;
+
+class Reader {
+  constructor(buffer) {
+    this.bytes = new Uint8Array(buffer);
+    this.offset = 0;
+    this.decoder = new TextDecoder();
+  }
+
+  u8() {
+    return this.bytes[this.offset++];
+  }
+
+  // Unsigned LEB128; multiplication keeps values above 2^31 exact
+  varint() {
+    let value = 0;
+    let scale = 1;
+    let byte;
+    do {
+      byte = this.bytes[this.offset++];
+      value += (byte & 0x7f) * scale;
+      scale *= 128;
+    } while (byte & 0x80);
+    return value;
+  }
+
+  string() {
+    const length = this.varint();
+    const value = this.decoder.decode(this.bytes.subarray(this.offset, this.offset + length));
+    this.offset += length;
+    return value;
+  }
+}
+
+function decodeSignals(code) {
+  const signals = {};
+  APPROACHES.forEach((approach, i) => {
+    signals[approach] = { state: STATES[(code >> (i * 2)) & 3] || 'RED' };
+  });
+  return signals;
+}
+
+// Applies one frame to the index -> intersection map and returns the indices it touched
+export function applyFrame(mirror, buffer) {
+  const reader = new Reader(buffer);
+  const kind = reader.u8();
+  reader.varint(); // tick
+  const time = reader.varint();
+  const records = reader.varint();
+  if (kind === KEYFRAME) {
+    mirror.clear();
+  }
+  const touched = [];
+  let index = -1;
+  for (let r = 0; r < records; r++) {
+    index += reader.varint() + 1;
+    const type = reader.u8();
+    if (type === REMOVED) {
+      mirror.delete(index);
+      touched.push(index);
+      continue;
+    }
+    let entry = mirror.get(index);
+    if (type === DEFINE) {
+      entry = { _id: `core:${index}`, name: reader.string(), location: reader.string(), isActive: true };
+    }
+    const signals = decodeSignals(reader.u8());
+    const vehicleCount = reader.varint();
+    if (entry) {
+      mirror.set(index, { ...entry, signals, vehicleCount, lastUpdated: time });
+      touched.push(index);
+    }
+  }
+  return touched;
+}
+
+// Calls onChange(intersections) at most once per frame; reconnects with backoff
+export function subscribeStateStream(url, onChange) {
+  const mirror = new Map();
+  let socket;
+  let closed = false;
+  let delay = 500;
+
+  const connect = () => {
+    socket = new WebSocket(url);
+    socket.binaryType = 'arraybuffer';
+    socket.onopen = () => {
+      delay = 500;
+    };
+    socket.onmessage = (event) => {
+      if (applyFrame(mirror, event.data).length > 0 || mirror.size === 0) {
+        onChange(Array.from(mirror.values()));
+      }
+    };
+    socket.onclose = () => {
+      if (!closed) {
+        setTimeout(connect, delay);
+        delay = Math.min(delay * 2, 10000);
+      }
+    };
+  };
+  connect();
+
+  return () => {
+    closed = true;
+    socket.close();
+  };
+}
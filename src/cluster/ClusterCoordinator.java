@@ -0,0 +1,164 @@
+package cluster;
+
+import service.TrafficManager;
+import service.TrafficReport;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Thin front for a set of shard nodes, each running its own TrafficManager behind a
+// ShardServer. Per-intersection calls go to the node the hash ring assigns the ID to; bulk
+// calls go to every node, and reports are merged from every node's figures.
+public class ClusterCoordinator implements AutoCloseable {
+    private final Map<String, ShardClient> clients;
+    private volatile HashRing ring;
+    
+    // nodes are host:port addresses of running shard servers
+    public ClusterCoordinator(List<String> nodes) throws IOException {
+        this.clients = new LinkedHashMap<>();
+        for (String node : nodes) {
+            clients.put(node, new ShardClient(node));
+        }
+        this.ring = new HashRing(clients.keySet(), HashRing.DEFAULT_VIRTUAL_NODES);
+    }
+    
+    public boolean addIntersection(String id, String location) throws IOException {
+        return clientFor(id).add(id, location);
+    }
+    
+    public void startIntersection(String id) throws IOException {
+        clientFor(id).start(id);
+    }
+    
+    public void stopIntersection(String id) throws IOException {
+        clientFor(id).stop(id);
+    }
+    
+    public void startAll() throws IOException {
+        callAll(ShardProtocol.START_ALL);
+    }
+    
+    public void stopAll() throws IOException {
+        callAll(ShardProtocol.STOP_ALL);
+    }
+    
+    public void saveAll() throws IOException {
+        callAll(ShardProtocol.SAVE);
+    }
+    
+    // Asks every node to save and exit its serving loop
+    public void shutdownAll() throws IOException {
+        callAll(ShardProtocol.SHUTDOWN);
+    }
+    
+    private synchronized void callAll(byte op) throws IOException {
+        for (ShardClient client : clients.values()) {
+            client.call(op);
+        }
+    }
+    
+    public synchronized TrafficReport getReport() throws IOException {
+        List<TrafficReport> reports = new ArrayList<>(clients.size());
+        List<Map<String, Long>> locationTotals = new ArrayList<>(clients.size());
+        for (ShardClient client : clients.values()) {
+            reports.add(client.report(locationTotals));
+        }
+        return TrafficReport.merge(reports, locationTotals, TrafficManager.REPORT_TOP_K);
+    }
+    
+    public void generateReport() throws IOException {
+        TrafficReport report = getReport();
+        System.out.println("\n========== CLUSTER REPORT ==========");
+        System.out.println("Nodes: " + ring.getNodes().size());
+        System.out.println("Total Vehicles: " + report.getTotalVehicles());
+        System.out.println("Total Intersections: " + report.getTotalIntersections());
+        
+        System.out.println("\nTop " + report.getBusiestIntersections().size() + " Intersections:");
+        for (TrafficReport.Entry entry : report.getBusiestIntersections()) {
+            System.out.println("  " + entry + " on " + ring.nodeFor(entry.getName()));
+        }
+        
+        System.out.println("\nTop " + report.getBusiestLocations().size() + " of " + report.getTotalLocations() + " Locations:");
+        for (TrafficReport.Entry entry : report.getBusiestLocations()) {
+            System.out.println("  " + entry);
+        }
+        System.out.println("====================================\n");
+    }
+    
+    // Adds a node to the ring and moves to it exactly the intersections that now hash to it;
+    // returns how many moved. Each existing node releases its share, which the new node imports;
+    // the senders drop their copies only once every import has succeeded. Otherwise the new
+    // node drops what it took in, the senders restart theirs and the ring stays as it was.
+    public synchronized int addNode(String node) throws IOException {
+        if (clients.containsKey(node)) {
+            return 0;
+        }
+        ShardClient joining = new ShardClient(node);
+        HashRing grown = ring.withNode(node);
+        List<String> imported = new ArrayList<>();
+        List<ShardClient> releasing = new ArrayList<>(clients.size());
+        try {
+            for (ShardClient client : clients.values()) {
+                releasing.add(client);
+                List<ShardProtocol.Moved> released = client.release(grown);
+                imported.addAll(joining.importAll(released));
+            }
+        } catch (IOException e) {
+            // Drop the imported copies before the originals restart, so none runs twice
+            if (!imported.isEmpty()) {
+                try {
+                    joining.drop(imported);
+                } catch (IOException dropFailed) {
+                    e.addSuppressed(dropFailed);
+                }
+            }
+            for (ShardClient client : releasing) {
+                try {
+                    client.call(ShardProtocol.CANCEL_RELEASE);
+                } catch (IOException cancelFailed) {
+                    e.addSuppressed(cancelFailed);
+                }
+            }
+            joining.close();
+            throw e;
+        }
+        // Route to the new node first: a failed confirm then leaves only a stopped, unrouted copy
+        clients.put(node, joining);
+        ring = grown;
+        for (ShardClient client : releasing) {
+            client.confirmRelease();
+        }
+        return imported.size();
+    }
+    
+    // Intersections held by each node
+    public synchronized Map<String, Integer> getNodeSizes() throws IOException {
+        Map<String, Integer> sizes = new LinkedHashMap<>();
+        for (ShardClient client : clients.values()) {
+            sizes.put(client.getNode(), client.size());
+        }
+        return sizes;
+    }
+    
+    public String nodeFor(String id) {
+        return ring.nodeFor(id);
+    }
+    
+    public HashRing getRing() {
+        return ring;
+    }
+    
+    private synchronized ShardClient clientFor(String id) {
+        return clients.get(ring.nodeFor(id));
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        for (ShardClient client : clients.values()) {
+            client.close();
+        }
+    }
+}
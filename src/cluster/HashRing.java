@@ -0,0 +1,107 @@
+package cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+// Consistent hashing of intersection IDs onto nodes. Each node owns many points on a 64-bit
+// ring and an ID belongs to the node owning the first point at or after the ID's hash, so a
+// joining node takes over only the IDs that now land on its own points (about 1/n of them)
+// and every other ID stays where it was. Immutable: joins build a new ring.
+public class HashRing {
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+    
+    private final List<String> nodes;
+    private final int virtualNodes;
+    private final long[] points;
+    private final String[] owners;
+    
+    public HashRing(Collection<String> nodes, int virtualNodes) {
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("Virtual nodes must be positive");
+        }
+        Set<String> unique = new LinkedHashSet<>(nodes);
+        this.nodes = Collections.unmodifiableList(new ArrayList<>(unique));
+        this.virtualNodes = virtualNodes;
+        
+        int total = unique.size() * virtualNodes;
+        String[] byIndex = this.nodes.toArray(new String[0]);
+        long[] hashes = new long[total];
+        int[] nodeOf = new int[total];
+        int n = 0;
+        for (int node = 0; node < byIndex.length; node++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                hashes[n] = hash(byIndex[node] + "#" + v);
+                nodeOf[n] = node;
+                n++;
+            }
+        }
+        // Sort points by hash, carrying their owners along; ties go to the earlier node
+        Integer[] order = new Integer[total];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> {
+            int byHash = Long.compareUnsigned(hashes[a], hashes[b]);
+            return byHash != 0 ? byHash : Integer.compare(nodeOf[a], nodeOf[b]);
+        });
+        this.points = new long[total];
+        this.owners = new String[total];
+        for (int i = 0; i < order.length; i++) {
+            points[i] = hashes[order[i]];
+            owners[i] = byIndex[nodeOf[order[i]]];
+        }
+    }
+    
+    public HashRing withNode(String node) {
+        List<String> grown = new ArrayList<>(nodes);
+        grown.add(node);
+        return new HashRing(grown, virtualNodes);
+    }
+    
+    // Null while the ring has no nodes
+    public String nodeFor(String id) {
+        if (points.length == 0) {
+            return null;
+        }
+        long hash = hash(id);
+        int low = 0;
+        int high = points.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (Long.compareUnsigned(points[mid], hash) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return owners[low == points.length ? 0 : low];
+    }
+    
+    public List<String> getNodes() {
+        return nodes;
+    }
+    
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+    
+    // 64-bit FNV-1a over the UTF-8 bytes, then a finalizer so near-identical IDs spread out
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+}
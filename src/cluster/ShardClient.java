@@ -0,0 +1,120 @@
+package cluster;
+
+import service.TrafficReport;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.List;
+import java.util.Map;
+
+// The coordinator's connection to one shard node. Calls are serialized on the connection.
+class ShardClient implements AutoCloseable {
+    private final String node;
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    
+    // node is host:port
+    ShardClient(String node) throws IOException {
+        int colon = node.lastIndexOf(':');
+        if (colon <= 0) {
+            throw new IOException("Expected host:port, got " + node);
+        }
+        this.node = node;
+        this.socket = new Socket(node.substring(0, colon), Integer.parseInt(node.substring(colon + 1)));
+        socket.setTcpNoDelay(true);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+    }
+    
+    synchronized boolean add(String id, String location) throws IOException {
+        out.writeByte(ShardProtocol.ADD);
+        out.writeUTF(id);
+        out.writeUTF(location);
+        send();
+        return in.readBoolean();
+    }
+    
+    synchronized void start(String id) throws IOException {
+        out.writeByte(ShardProtocol.START);
+        out.writeUTF(id);
+        send();
+    }
+    
+    synchronized void stop(String id) throws IOException {
+        out.writeByte(ShardProtocol.STOP);
+        out.writeUTF(id);
+        send();
+    }
+    
+    synchronized void call(byte op) throws IOException {
+        out.writeByte(op);
+        send();
+    }
+    
+    // The node's report followed by its per-location totals, which the caller merges
+    synchronized TrafficReport report(List<Map<String, Long>> locationTotals) throws IOException {
+        out.writeByte(ShardProtocol.REPORT);
+        send();
+        TrafficReport report = ShardProtocol.readReport(in);
+        locationTotals.add(ShardProtocol.readTotals(in));
+        return report;
+    }
+    
+    synchronized List<ShardProtocol.Moved> release(HashRing ring) throws IOException {
+        out.writeByte(ShardProtocol.RELEASE);
+        ShardProtocol.writeStrings(out, ring.getNodes());
+        out.writeInt(ring.getVirtualNodes());
+        out.writeUTF(node);
+        send();
+        return ShardProtocol.readMoved(in);
+    }
+    
+    synchronized int confirmRelease() throws IOException {
+        out.writeByte(ShardProtocol.CONFIRM_RELEASE);
+        send();
+        return in.readInt();
+    }
+    
+    // The IDs the node imported
+    synchronized List<String> importAll(List<ShardProtocol.Moved> moved) throws IOException {
+        out.writeByte(ShardProtocol.IMPORT);
+        ShardProtocol.writeMoved(out, moved);
+        send();
+        return ShardProtocol.readStrings(in);
+    }
+    
+    synchronized int drop(List<String> ids) throws IOException {
+        out.writeByte(ShardProtocol.DROP);
+        ShardProtocol.writeStrings(out, ids);
+        send();
+        return in.readInt();
+    }
+    
+    synchronized int size() throws IOException {
+        out.writeByte(ShardProtocol.SIZE);
+        send();
+        return in.readInt();
+    }
+    
+    // Flushes the request and reads the status; an error reply becomes an IOException
+    private void send() throws IOException {
+        out.flush();
+        if (in.readByte() != ShardProtocol.OK) {
+            throw new IOException(node + ": " + in.readUTF());
+        }
+    }
+    
+    String getNode() {
+        return node;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
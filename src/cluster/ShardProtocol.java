@@ -0,0 +1,139 @@
+package cluster;
+
+import service.TrafficReport;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Wire format between the coordinator and shard nodes: one request at a time per connection,
+// an opcode byte followed by its arguments, answered by a status byte and either the result
+// or an error message. Strings use DataOutput's modified UTF-8.
+final class ShardProtocol {
+    static final byte ADD = 1;
+    static final byte START = 2;
+    static final byte STOP = 3;
+    static final byte START_ALL = 4;
+    static final byte STOP_ALL = 5;
+    static final byte REPORT = 6;
+    // Args: ring nodes, virtual nodes, the receiver's own name. Reply: the intersections that
+    // no longer hash to the receiver, which it has stopped but still holds until
+    // CONFIRM_RELEASE drops them or CANCEL_RELEASE restarts them
+    static final byte RELEASE = 7;
+    // Args: intersections. Reply: the IDs imported; on an error none of them is kept
+    static final byte IMPORT = 8;
+    static final byte SIZE = 9;
+    static final byte SAVE = 10;
+    static final byte SHUTDOWN = 11;
+    // Reply: how many held intersections were dropped
+    static final byte CONFIRM_RELEASE = 12;
+    static final byte CANCEL_RELEASE = 13;
+    // Args: IDs. Drops what an IMPORT took in when the hand-off it belonged to fails
+    static final byte DROP = 14;
+    
+    static final byte OK = 0;
+    static final byte ERROR = 1;
+    
+    private ShardProtocol() {
+    }
+    
+    // An intersection in transit: ID, location, vehicle total and whether it was running
+    static class Moved {
+        final String id;
+        final String location;
+        final long vehicles;
+        final boolean running;
+        
+        Moved(String id, String location, long vehicles, boolean running) {
+            this.id = id;
+            this.location = location;
+            this.vehicles = vehicles;
+            this.running = running;
+        }
+    }
+    
+    static void writeMoved(DataOutputStream out, List<Moved> moved) throws IOException {
+        out.writeInt(moved.size());
+        for (Moved intersection : moved) {
+            out.writeUTF(intersection.id);
+            out.writeUTF(intersection.location);
+            out.writeLong(intersection.vehicles);
+            out.writeBoolean(intersection.running);
+        }
+    }
+    
+    static List<Moved> readMoved(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<Moved> moved = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            moved.add(new Moved(in.readUTF(), in.readUTF(), in.readLong(), in.readBoolean()));
+        }
+        return moved;
+    }
+    
+    static void writeStrings(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            out.writeUTF(value);
+        }
+    }
+    
+    static List<String> readStrings(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(in.readUTF());
+        }
+        return values;
+    }
+    
+    static void writeReport(DataOutputStream out, TrafficReport report) throws IOException {
+        out.writeLong(report.getTotalVehicles());
+        out.writeInt(report.getTotalIntersections());
+        out.writeInt(report.getTotalLocations());
+        writeEntries(out, report.getBusiestIntersections());
+        writeEntries(out, report.getBusiestLocations());
+    }
+    
+    static TrafficReport readReport(DataInputStream in) throws IOException {
+        TrafficReport report = new TrafficReport(in.readLong(), in.readInt(), in.readInt());
+        int intersections = in.readInt();
+        for (int i = 0; i < intersections; i++) {
+            report.addBusiestIntersection(in.readUTF(), in.readLong());
+        }
+        int locations = in.readInt();
+        for (int i = 0; i < locations; i++) {
+            report.addBusiestLocation(in.readUTF(), in.readLong());
+        }
+        return report;
+    }
+    
+    private static void writeEntries(DataOutputStream out, List<TrafficReport.Entry> entries) throws IOException {
+        out.writeInt(entries.size());
+        for (TrafficReport.Entry entry : entries) {
+            out.writeUTF(entry.getName());
+            out.writeLong(entry.getVehicles());
+        }
+    }
+    
+    static void writeTotals(DataOutputStream out, Map<String, Long> totals) throws IOException {
+        out.writeInt(totals.size());
+        for (Map.Entry<String, Long> total : totals.entrySet()) {
+            out.writeUTF(total.getKey());
+            out.writeLong(total.getValue());
+        }
+    }
+    
+    static Map<String, Long> readTotals(DataInputStream in) throws IOException {
+        int size = in.readInt();
+        Map<String, Long> totals = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            totals.put(in.readUTF(), in.readLong());
+        }
+        return totals;
+    }
+}
@@ -0,0 +1,260 @@
+package cluster;
+
+import model.Intersection;
+import service.IntersectionHandle;
+import service.TrafficManager;
+import service.TrafficReport;
+import util.FileOperationException;
+import util.InvalidSignalException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Serves one node's TrafficManager to the cluster coordinator over a loopback socket. Each
+// connection gets its own thread and is answered strictly request by request.
+public class ShardServer implements AutoCloseable {
+    private final TrafficManager manager;
+    private final ServerSocket serverSocket;
+    private final CountDownLatch shutdownRequested;
+    private final AtomicInteger connections;
+    // Intersections stopped by the last RELEASE and kept until the coordinator confirms or
+    // cancels the hand-off
+    private List<String> held;
+    private Set<String> heldRunning;
+    
+    // Port 0 picks a free port; see getPort()
+    public ShardServer(TrafficManager manager, int port) throws IOException {
+        this.manager = manager;
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.shutdownRequested = new CountDownLatch(1);
+        this.connections = new AtomicInteger();
+    }
+    
+    public void start() {
+        Thread acceptor = new Thread(this::acceptLoop, "shard-accept");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+    
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                Thread thread = new Thread(() -> serve(socket), "shard-connection-" + connections.incrementAndGet());
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    System.err.println("Shard accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+    
+    private void serve(Socket socket) {
+        try (socket;
+             DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            socket.setTcpNoDelay(true);
+            while (true) {
+                byte op;
+                try {
+                    op = in.readByte();
+                } catch (EOFException e) {
+                    return;
+                }
+                handle(op, in, out);
+                out.flush();
+            }
+        } catch (IOException e) {
+            if (!serverSocket.isClosed()) {
+                System.err.println("Shard connection closed: " + e.getMessage());
+            }
+        }
+    }
+    
+    private void handle(byte op, DataInputStream in, DataOutputStream out) throws IOException {
+        try {
+            switch (op) {
+                case ShardProtocol.ADD: {
+                    String id = in.readUTF();
+                    String location = in.readUTF();
+                    boolean added = manager.addIntersection(id, location);
+                    out.writeByte(ShardProtocol.OK);
+                    out.writeBoolean(added);
+                    break;
+                }
+                case ShardProtocol.START:
+                    manager.startIntersection(in.readUTF());
+                    out.writeByte(ShardProtocol.OK);
+                    break;
+                case ShardProtocol.STOP:
+                    manager.stopIntersection(in.readUTF());
+                    out.writeByte(ShardProtocol.OK);
+                    break;
+                case ShardProtocol.START_ALL:
+                    manager.startAll();
+                    out.writeByte(ShardProtocol.OK);
+                    break;
+                case ShardProtocol.STOP_ALL:
+                    manager.stopAll();
+                    out.writeByte(ShardProtocol.OK);
+                    break;
+                case ShardProtocol.REPORT: {
+                    TrafficReport report = manager.getReport();
+                    Map<String, Long> totals = manager.getLocationTotals();
+                    out.writeByte(ShardProtocol.OK);
+                    ShardProtocol.writeReport(out, report);
+                    ShardProtocol.writeTotals(out, totals);
+                    break;
+                }
+                case ShardProtocol.RELEASE: {
+                    HashRing ring = new HashRing(ShardProtocol.readStrings(in), in.readInt());
+                    List<ShardProtocol.Moved> moved = release(ring, in.readUTF());
+                    out.writeByte(ShardProtocol.OK);
+                    ShardProtocol.writeMoved(out, moved);
+                    break;
+                }
+                case ShardProtocol.CONFIRM_RELEASE: {
+                    int released = confirmRelease();
+                    out.writeByte(ShardProtocol.OK);
+                    out.writeInt(released);
+                    break;
+                }
+                case ShardProtocol.CANCEL_RELEASE:
+                    cancelRelease();
+                    out.writeByte(ShardProtocol.OK);
+                    break;
+                case ShardProtocol.IMPORT: {
+                    List<String> imported = importAll(ShardProtocol.readMoved(in));
+                    out.writeByte(ShardProtocol.OK);
+                    ShardProtocol.writeStrings(out, imported);
+                    break;
+                }
+                case ShardProtocol.DROP: {
+                    int dropped = manager.releaseIntersections(ShardProtocol.readStrings(in)).size();
+                    out.writeByte(ShardProtocol.OK);
+                    out.writeInt(dropped);
+                    break;
+                }
+                case ShardProtocol.SIZE: {
+                    int size = manager.getRegistry().size();
+                    out.writeByte(ShardProtocol.OK);
+                    out.writeInt(size);
+                    break;
+                }
+                case ShardProtocol.SAVE:
+                    manager.saveData();
+                    out.writeByte(ShardProtocol.OK);
+                    break;
+                case ShardProtocol.SHUTDOWN:
+                    out.writeByte(ShardProtocol.OK);
+                    shutdownRequested.countDown();
+                    break;
+                default:
+                    throw new IOException("Unknown shard request " + op);
+            }
+        } catch (InvalidSignalException | FileOperationException | RuntimeException e) {
+            out.writeByte(ShardProtocol.ERROR);
+            out.writeUTF(String.valueOf(e.getMessage()));
+        }
+    }
+    
+    // Stops every intersection the new ring assigns elsewhere and reports it with its final
+    // count, but keeps it registered until confirmRelease(), so a failed import loses nothing
+    private synchronized List<ShardProtocol.Moved> release(HashRing ring, String self) throws InvalidSignalException {
+        if (held != null) {
+            cancelRelease();
+        }
+        List<String> leaving = new ArrayList<>();
+        Set<String> running = new HashSet<>();
+        List<ShardProtocol.Moved> moved = new ArrayList<>();
+        for (IntersectionHandle handle : manager.getRegistry().handles()) {
+            if (!self.equals(ring.nodeFor(handle.getId()))) {
+                boolean wasRunning = handle.isRunning();
+                manager.stopIntersection(handle.getId());
+                Intersection intersection = handle.getIntersection();
+                leaving.add(handle.getId());
+                if (wasRunning) {
+                    running.add(handle.getId());
+                }
+                moved.add(new ShardProtocol.Moved(handle.getId(), intersection.getLocation(), intersection.getVehicleCount(), wasRunning));
+            }
+        }
+        held = leaving;
+        heldRunning = running;
+        return moved;
+    }
+    
+    // The new node has imported what release() reported; drop it here
+    private synchronized int confirmRelease() {
+        if (held == null) {
+            return 0;
+        }
+        int released = manager.releaseIntersections(held).size();
+        held = null;
+        heldRunning = null;
+        return released;
+    }
+    
+    // The hand-off failed; restart what release() stopped and keep serving it
+    private synchronized void cancelRelease() throws InvalidSignalException {
+        if (held == null) {
+            return;
+        }
+        Set<String> running = heldRunning;
+        held = null;
+        heldRunning = null;
+        for (String id : running) {
+            manager.startIntersection(id);
+        }
+    }
+    
+    // Returns the IDs actually imported. A failure part-way drops this batch again, so an
+    // IMPORT either succeeds or leaves nothing behind.
+    private List<String> importAll(List<ShardProtocol.Moved> moved) throws InvalidSignalException {
+        List<String> imported = new ArrayList<>(moved.size());
+        try {
+            for (ShardProtocol.Moved intersection : moved) {
+                if (manager.importIntersection(intersection.id, intersection.location, intersection.vehicles)) {
+                    imported.add(intersection.id);
+                    if (intersection.running) {
+                        manager.startIntersection(intersection.id);
+                    }
+                }
+            }
+        } catch (InvalidSignalException | RuntimeException e) {
+            manager.releaseIntersections(imported);
+            throw e;
+        }
+        return imported;
+    }
+    
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+    
+    // Blocks until the coordinator asks this node to shut down
+    public void awaitShutdown() throws InterruptedException {
+        shutdownRequested.await();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+}
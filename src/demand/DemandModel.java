@@ -0,0 +1,99 @@
+package demand;
+
+import model.Direction;
+import model.Intersection;
+import model.VehicleType;
+
+import java.util.SplittableRandom;
+
+// Where vehicles come from. One model serves every intersection; each intersection opens its
+// own Source on its own random stream, and the source hands out arrivals in batches of packed
+// longs (time, approach and type in one value), so the simulator does no generation work per
+// vehicle between batches. Most sources draw one random long per vehicle: the upper 32 bits
+// shape the gap, the lower 32 pick the approach and the vehicle type.
+public abstract class DemandModel {
+    public static final double DEFAULT_EMERGENCY_SHARE = 0.1;
+    public static final double[] EVEN_APPROACHES = {1, 1, 1, 1};
+    
+    private static final int TYPE_BITS = 1;
+    private static final int APPROACH_BITS = 2;
+    private static final int DETAIL_BITS = TYPE_BITS + APPROACH_BITS;
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int SCALE = 1 << 16;
+    
+    // Cumulative approach shares and the emergency share, out of 2^16
+    private final int[] approachBounds;
+    private final int emergencyBound;
+    
+    protected DemandModel(double[] approachWeights, double emergencyShare) {
+        if (approachWeights.length != DIRECTIONS.length) {
+            throw new IllegalArgumentException("Expected " + DIRECTIONS.length + " approach weights");
+        }
+        if (emergencyShare < 0 || emergencyShare > 1) {
+            throw new IllegalArgumentException("Emergency share must be between 0 and 1");
+        }
+        double total = 0;
+        for (double weight : approachWeights) {
+            if (weight < 0) {
+                throw new IllegalArgumentException("Approach weights must not be negative");
+            }
+            total += weight;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("At least one approach needs a positive weight");
+        }
+        
+        this.approachBounds = new int[DIRECTIONS.length];
+        double cumulative = 0;
+        for (int i = 0; i < approachWeights.length; i++) {
+            cumulative += approachWeights[i];
+            approachBounds[i] = (int) Math.round(cumulative / total * SCALE);
+        }
+        approachBounds[DIRECTIONS.length - 1] = SCALE;
+        this.emergencyBound = (int) Math.round(emergencyShare * SCALE);
+    }
+    
+    // startMillis is the intersection's clock time when it starts; random belongs to this source alone
+    public abstract Source open(Intersection intersection, SplittableRandom random, long startMillis);
+    
+    public interface Source {
+        
+        // Writes up to arrivals.length packed arrivals in time order and returns how many, 0 once the source has run dry
+        int fill(long[] arrivals);
+    }
+    
+    public static long pack(long time, int approach, boolean emergency) {
+        return (time << DETAIL_BITS) | ((long) approach << TYPE_BITS) | (emergency ? 1 : 0);
+    }
+    
+    public static long time(long arrival) {
+        return arrival >> DETAIL_BITS;
+    }
+    
+    public static Direction approach(long arrival) {
+        return DIRECTIONS[(int) (arrival >>> TYPE_BITS) & ((1 << APPROACH_BITS) - 1)];
+    }
+    
+    public static VehicleType type(long arrival) {
+        return (arrival & 1) != 0 ? VehicleType.EMERGENCY : VehicleType.CAR;
+    }
+    
+    // An arrival at the given time whose approach and type come from the low 32 bits of a draw
+    protected final long arrival(long time, long bits) {
+        int approachDraw = (int) (bits >>> 16) & (SCALE - 1);
+        int approach = 0;
+        while (approachDraw >= approachBounds[approach]) {
+            approach++;
+        }
+        return pack(time, approach, isEmergency(bits));
+    }
+    
+    protected final boolean isEmergency(long bits) {
+        return ((int) bits & (SCALE - 1)) < emergencyBound;
+    }
+    
+    // Uniform over (0, 1] from the upper 32 bits of a draw, safe to take the log of
+    protected static double unit(long bits) {
+        return ((bits >>> 32) + 1) * 0x1.0p-32;
+    }
+}
@@ -0,0 +1,159 @@
+package demand;
+
+import model.Direction;
+import model.Intersection;
+import util.CSVFileHandler;
+import util.FileOperationException;
+import util.InvalidSignalException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+// Replays recorded per-approach counts: each row of IntersectionID,Approach,Interval,Count
+// says how many vehicles used that approach in interval number Interval of the day (intervals
+// of a fixed length from midnight). Within an interval the recorded vehicles arrive at
+// uniformly random times, which is a Poisson process conditioned on the count, and the day
+// repeats. Rows for ID * apply to intersections without rows of their own.
+public class ReplayDemand extends DemandModel {
+    public static final String ANY_INTERSECTION = "*";
+    
+    private final long intervalMillis;
+    private final int intervalsPerDay;
+    private final long dayOffsetMillis;
+    // Per intersection: counts[interval * 4 + approach]
+    private final Map<String, int[]> counts;
+    
+    private ReplayDemand(long intervalMillis, long dayOffsetMillis, double emergencyShare, Map<String, int[]> counts) {
+        super(EVEN_APPROACHES, emergencyShare);
+        this.intervalMillis = intervalMillis;
+        this.intervalsPerDay = (int) (PoissonDemand.DAY_MILLIS / intervalMillis);
+        this.dayOffsetMillis = dayOffsetMillis;
+        this.counts = counts;
+    }
+    
+    public static ReplayDemand load(String countsFile, int intervalMinutes, long dayOffsetMillis, double emergencyShare)
+            throws FileOperationException, InvalidSignalException {
+        if (intervalMinutes <= 0 || PoissonDemand.DAY_MILLIS % (intervalMinutes * 60_000L) != 0) {
+            throw new IllegalArgumentException("Interval must divide the day into whole minutes: " + intervalMinutes);
+        }
+        long intervalMillis = intervalMinutes * 60_000L;
+        int intervals = (int) (PoissonDemand.DAY_MILLIS / intervalMillis);
+        int approaches = Direction.values().length;
+        Map<String, int[]> counts = new HashMap<>();
+        List<String> errors = new ArrayList<>();
+        CSVFileHandler.forEachRecord(countsFile, record -> {
+            if (record.getRecordNumber() == 0 || record.size() == 0) {
+                return;
+            }
+            try {
+                if (record.size() < 4) {
+                    throw new IllegalArgumentException("expected IntersectionID,Approach,Interval,Count");
+                }
+                int interval = record.getInt(2);
+                int count = record.getInt(3);
+                if (interval < 0 || interval >= intervals) {
+                    throw new IllegalArgumentException("interval " + interval + " outside 0-" + (intervals - 1));
+                }
+                if (count < 0) {
+                    throw new IllegalArgumentException("negative count " + count);
+                }
+                int[] perInterval = counts.computeIfAbsent(record.getString(0), id -> new int[intervals * approaches]);
+                perInterval[interval * approaches + direction(record.getString(1)).ordinal()] += count;
+            } catch (RuntimeException e) {
+                errors.add(countsFile + " row " + record.getRecordNumber() + ": " + e.getMessage());
+            }
+        });
+        if (!errors.isEmpty()) {
+            throw new InvalidSignalException("Invalid arrival counts: " + String.join("; ", errors));
+        }
+        return new ReplayDemand(intervalMillis, dayOffsetMillis, emergencyShare, counts);
+    }
+    
+    private static Direction direction(String suffix) {
+        for (Direction direction : Direction.values()) {
+            if (direction.getSuffix().equalsIgnoreCase(suffix.trim())) {
+                return direction;
+            }
+        }
+        throw new IllegalArgumentException("unknown approach " + suffix);
+    }
+    
+    // The recorded day of an intersection, or null when it has none and there are no * rows
+    public int[] countsFor(String id) {
+        int[] own = counts.get(id);
+        return own != null ? own : counts.get(ANY_INTERSECTION);
+    }
+    
+    @Override
+    public Source open(Intersection intersection, SplittableRandom random, long startMillis) {
+        int[] day = countsFor(intersection.getIntersectionId());
+        long total = 0;
+        if (day != null) {
+            for (int count : day) {
+                total += count;
+            }
+        }
+        if (total == 0) {
+            return arrivals -> 0;
+        }
+        return new ReplaySource(day, random, startMillis);
+    }
+    
+    private class ReplaySource implements Source {
+        private final int[] day;
+        private final SplittableRandom random;
+        private final int[] remaining;
+        private int remainingTotal;
+        private double time;
+        private long interval;
+        private double intervalEnd;
+        
+        ReplaySource(int[] day, SplittableRandom random, long startMillis) {
+            this.day = day;
+            this.random = random;
+            this.remaining = new int[Direction.values().length];
+            this.time = startMillis;
+            this.interval = Math.floorDiv(startMillis + dayOffsetMillis, intervalMillis);
+            this.intervalEnd = (interval + 1) * intervalMillis - dayOffsetMillis;
+            // Starting part-way through an interval keeps the share of its vehicles still to come
+            load((intervalEnd - time) / intervalMillis);
+        }
+        
+        private void load(double fraction) {
+            int base = (int) Math.floorMod(interval, (long) intervalsPerDay) * remaining.length;
+            remainingTotal = 0;
+            for (int approach = 0; approach < remaining.length; approach++) {
+                remaining[approach] = (int) Math.round(day[base + approach] * fraction);
+                remainingTotal += remaining[approach];
+            }
+        }
+        
+        @Override
+        public int fill(long[] arrivals) {
+            for (int i = 0; i < arrivals.length; i++) {
+                while (remainingTotal == 0) {
+                    time = intervalEnd;
+                    interval++;
+                    intervalEnd += intervalMillis;
+                    load(1);
+                }
+                // The earliest of k uniform times over what is left of the interval
+                long bits = random.nextLong();
+                time += (intervalEnd - time) * -Math.expm1(Math.log(unit(bits)) / remainingTotal);
+                int pick = random.nextInt(remainingTotal);
+                int approach = 0;
+                while (pick >= remaining[approach]) {
+                    pick -= remaining[approach];
+                    approach++;
+                }
+                remaining[approach]--;
+                remainingTotal--;
+                arrivals[i] = pack((long) time, approach, isEmergency(bits));
+            }
+            return arrivals.length;
+        }
+    }
+}
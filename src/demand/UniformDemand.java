@@ -0,0 +1,55 @@
+package demand;
+
+import model.Intersection;
+
+import java.util.SplittableRandom;
+
+// The original arrival pattern: the first vehicle on start, then gaps uniform over 4/7 to
+// 10/7 of the mean (2-5 s around the default 3.5 s), whatever the time of day.
+public class UniformDemand extends DemandModel {
+    public static final long DEFAULT_MEAN_GAP_MILLIS = 3500;
+    
+    private final long minGapMillis;
+    private final long gapSpreadMillis;
+    
+    public UniformDemand(long meanGapMillis) {
+        this(meanGapMillis, EVEN_APPROACHES, DEFAULT_EMERGENCY_SHARE);
+    }
+    
+    public UniformDemand(long meanGapMillis, double[] approachWeights, double emergencyShare) {
+        super(approachWeights, emergencyShare);
+        if (meanGapMillis <= 0) {
+            throw new IllegalArgumentException("Mean gap must be positive");
+        }
+        this.minGapMillis = meanGapMillis * 4 / 7;
+        this.gapSpreadMillis = Math.max(1, meanGapMillis * 6 / 7);
+    }
+    
+    public static UniformDemand perMinute(double arrivalsPerMinute) {
+        if (arrivalsPerMinute <= 0) {
+            throw new IllegalArgumentException("Arrival rate must be positive");
+        }
+        return new UniformDemand(Math.max(2, Math.round(60_000 / arrivalsPerMinute)));
+    }
+    
+    @Override
+    public Source open(Intersection intersection, SplittableRandom random, long startMillis) {
+        return new Source() {
+            private long time = startMillis;
+            private boolean first = true;
+            
+            @Override
+            public int fill(long[] arrivals) {
+                for (int i = 0; i < arrivals.length; i++) {
+                    long bits = random.nextLong();
+                    if (!first) {
+                        time += minGapMillis + ((bits >>> 32) * gapSpreadMillis >>> 32);
+                    }
+                    first = false;
+                    arrivals[i] = arrival(time, bits);
+                }
+                return arrivals.length;
+            }
+        };
+    }
+}
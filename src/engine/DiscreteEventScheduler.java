@@ -0,0 +1,106 @@
+package engine;
+
+import util.Clock;
+
+import java.util.PriorityQueue;
+
+// Single-threaded discrete-event engine: tasks run in timestamp order against a
+// virtual clock that jumps from event to event instead of waiting in real time.
+public class DiscreteEventScheduler implements Scheduler, Clock {
+    private final PriorityQueue<Event> events;
+    private long now;
+    private long sequence;
+    private long eventsProcessed;
+    
+    public DiscreteEventScheduler() {
+        this(0);
+    }
+    
+    public DiscreteEventScheduler(long startMillis) {
+        this.events = new PriorityQueue<>();
+        this.now = startMillis;
+    }
+    
+    @Override
+    public Timeout schedule(Runnable task, long delayMillis) {
+        // Sequence numbers break timestamp ties in insertion order, keeping runs deterministic
+        Event event = new Event(task, now + Math.max(delayMillis, 0), sequence++);
+        events.add(event);
+        return event;
+    }
+    
+    @Override
+    public Clock getClock() {
+        return this;
+    }
+    
+    @Override
+    public long currentTimeMillis() {
+        return now;
+    }
+    
+    // Runs every event due at or before endMillis, then leaves the clock at endMillis
+    public void runUntil(long endMillis) {
+        Event event;
+        while ((event = events.peek()) != null && event.time <= endMillis) {
+            events.poll();
+            if (event.cancelled) {
+                continue;
+            }
+            now = event.time;
+            event.task.run();
+            eventsProcessed++;
+        }
+        now = Math.max(now, endMillis);
+    }
+    
+    public long getEventsProcessed() {
+        return eventsProcessed;
+    }
+    
+    public int getPendingEvents() {
+        return events.size();
+    }
+    
+    @Override
+    public void shutdown() {
+        events.clear();
+    }
+    
+    // Events run on the caller's thread, so nothing is left running once shutdown returns
+    @Override
+    public boolean awaitTermination(long timeoutMillis) {
+        return true;
+    }
+    
+    private static class Event implements Timeout, Comparable<Event> {
+        private final Runnable task;
+        private final long time;
+        private final long sequence;
+        private boolean cancelled;
+        
+        Event(Runnable task, long time, long sequence) {
+            this.task = task;
+            this.time = time;
+            this.sequence = sequence;
+        }
+        
+        @Override
+        public boolean cancel() {
+            boolean wasCancelled = cancelled;
+            cancelled = true;
+            return !wasCancelled;
+        }
+        
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+        
+        @Override
+        public int compareTo(Event other) {
+            int byTime = Long.compare(time, other.time);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+}
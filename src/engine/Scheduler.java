@@ -0,0 +1,15 @@
+package engine;
+
+import util.Clock;
+
+public interface Scheduler {
+    
+    Timeout schedule(Runnable task, long delayMillis);
+    
+    Clock getClock();
+    
+    void shutdown();
+    
+    // After shutdown: waits until no task is running any more; false if the timeout ran out first
+    boolean awaitTermination(long timeoutMillis) throws InterruptedException;
+}
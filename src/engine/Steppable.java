@@ -0,0 +1,7 @@
+package engine;
+
+public interface Steppable {
+    
+    // Runs one step and returns the delay in ms until the next one, or a negative value when done
+    long step();
+}
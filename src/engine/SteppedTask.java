@@ -0,0 +1,54 @@
+package engine;
+
+public class SteppedTask implements Runnable, TaskHandle {
+    private final Steppable steppable;
+    private final Scheduler scheduler;
+    private volatile Timeout timeout;
+    private volatile boolean cancelled;
+    private volatile boolean wakeRequested;
+    
+    public SteppedTask(Steppable steppable, Scheduler scheduler) {
+        this.steppable = steppable;
+        this.scheduler = scheduler;
+    }
+    
+    public void start() {
+        timeout = scheduler.schedule(this, 0);
+    }
+    
+    @Override
+    public void run() {
+        if (cancelled) {
+            return;
+        }
+        
+        wakeRequested = false;
+        long delay = steppable.step();
+        if (delay >= 0 && !cancelled) {
+            Timeout next = scheduler.schedule(this, wakeRequested ? 0 : delay);
+            timeout = next;
+            // A wake-up that raced with this step may have missed the new timeout
+            if (wakeRequested && next.cancel()) {
+                timeout = scheduler.schedule(this, 0);
+            }
+        }
+    }
+    
+    // Runs the next step immediately instead of waiting out the current delay
+    public void wakeUp() {
+        wakeRequested = true;
+        Timeout current = timeout;
+        if (current != null && !cancelled && current.cancel()) {
+            timeout = scheduler.schedule(this, 0);
+        }
+    }
+    
+    @Override
+    public void cancel() {
+        cancelled = true;
+        Timeout current = timeout;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package engine;
+
+public interface TaskHandle {
+    
+    void cancel();
+}
@@ -0,0 +1,54 @@
+package engine;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs each blocking task on its own thread, either a platform thread or a virtual thread
+public class ThreadTaskRunner {
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    
+    private ThreadTaskRunner(ExecutorService executor, boolean virtualThreads) {
+        this.executor = executor;
+        this.virtualThreads = virtualThreads;
+    }
+    
+    public static ThreadTaskRunner platformThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory factory = runnable -> new Thread(runnable, "traffic-" + counter.incrementAndGet());
+        return new ThreadTaskRunner(Executors.newCachedThreadPool(factory), false);
+    }
+    
+    // Virtual threads need Java 21+; looked up reflectively so the code still builds on older JDKs
+    public static ThreadTaskRunner virtualThreads() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return new ThreadTaskRunner((ExecutorService) factory.invoke(null), true);
+        } catch (ReflectiveOperationException e) {
+            throw new UnsupportedOperationException(
+                "Virtual threads require Java 21 or later (running " + System.getProperty("java.version") + ")", e);
+        }
+    }
+    
+    public TaskHandle start(Runnable task) {
+        Future<?> future = executor.submit(task);
+        return () -> future.cancel(true);
+    }
+    
+    public boolean isVirtual() {
+        return virtualThreads;
+    }
+    
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    public boolean awaitTermination(long timeoutMillis) throws InterruptedException {
+        return executor.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+}
@@ -0,0 +1,8 @@
+package engine;
+
+public interface Timeout {
+    
+    boolean cancel();
+    
+    boolean isCancelled();
+}
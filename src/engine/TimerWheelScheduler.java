@@ -0,0 +1,214 @@
+package engine;
+
+import util.Clock;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Hashed timer wheel: one ticker thread buckets timeouts by deadline and hands
+// expired ones to a small fixed worker pool, so sleeping tasks cost no thread.
+public class TimerWheelScheduler implements Scheduler {
+    private static final int STATE_PENDING = 0;
+    private static final int STATE_CANCELLED = 1;
+    private static final int STATE_EXPIRED = 2;
+    
+    private final long tickNanos;
+    private final int mask;
+    private final Bucket[] wheel;
+    private final Queue<WheelTimeout> pendingTimeouts;
+    private final ExecutorService workers;
+    private final Thread ticker;
+    private final long startTime;
+    private volatile boolean running;
+    private long tick;
+    
+    public TimerWheelScheduler() {
+        this(10, 512, Runtime.getRuntime().availableProcessors());
+    }
+    
+    public TimerWheelScheduler(long tickMillis, int wheelSize, int workerThreads) {
+        if (tickMillis <= 0 || workerThreads <= 0) {
+            throw new IllegalArgumentException("Tick duration and worker count must be positive");
+        }
+        
+        int size = Integer.highestOneBit(Math.max(wheelSize - 1, 1)) << 1;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.mask = size - 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        
+        this.pendingTimeouts = new ConcurrentLinkedQueue<>();
+        this.workers = Executors.newFixedThreadPool(workerThreads, daemonThreads("timer-worker-"));
+        this.startTime = System.nanoTime();
+        this.running = true;
+        this.ticker = daemonThreads("timer-wheel-").newThread(this::runTicker);
+        this.ticker.start();
+    }
+    
+    @Override
+    public Timeout schedule(Runnable task, long delayMillis) {
+        if (!running) {
+            throw new IllegalStateException("Scheduler has been shut down");
+        }
+        
+        long deadline = System.nanoTime() - startTime + TimeUnit.MILLISECONDS.toNanos(Math.max(delayMillis, 0));
+        WheelTimeout timeout = new WheelTimeout(task, deadline);
+        if (delayMillis <= 0) {
+            // Due now: skip the wheel so wake-ups are not rounded up to the next tick
+            timeout.state.set(STATE_EXPIRED);
+            workers.execute(task);
+            return timeout;
+        }
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+    
+    @Override
+    public Clock getClock() {
+        return Clock.SYSTEM;
+    }
+    
+    @Override
+    public void shutdown() {
+        running = false;
+        ticker.interrupt();
+        workers.shutdownNow();
+    }
+    
+    @Override
+    public boolean awaitTermination(long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        ticker.join(Math.max(1, timeoutMillis));
+        return !ticker.isAlive()
+            && workers.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+    
+    private void runTicker() {
+        while (running) {
+            long deadline = tickNanos * (tick + 1);
+            long sleepNanos = deadline - (System.nanoTime() - startTime);
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+            
+            transferPendingTimeouts();
+            expireTimeouts(wheel[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+    
+    private void transferPendingTimeouts() {
+        WheelTimeout timeout;
+        while ((timeout = pendingTimeouts.poll()) != null) {
+            if (timeout.state.get() == STATE_CANCELLED) {
+                continue;
+            }
+            
+            long ticks = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (ticks - tick) / wheel.length;
+            long targetTick = Math.max(ticks, tick); // never schedule into the past
+            wheel[(int) (targetTick & mask)].add(timeout);
+        }
+    }
+    
+    private void expireTimeouts(Bucket bucket) {
+        WheelTimeout timeout = bucket.head;
+        while (timeout != null) {
+            WheelTimeout next = timeout.next;
+            if (timeout.state.get() == STATE_CANCELLED) {
+                bucket.remove(timeout);
+            } else if (timeout.remainingRounds <= 0) {
+                bucket.remove(timeout);
+                if (timeout.state.compareAndSet(STATE_PENDING, STATE_EXPIRED)) {
+                    try {
+                        workers.execute(timeout.task);
+                    } catch (RuntimeException e) {
+                        System.err.println("Timer task rejected: " + e.getMessage());
+                    }
+                }
+            } else {
+                timeout.remainingRounds--;
+            }
+            timeout = next;
+        }
+    }
+    
+    private static ThreadFactory daemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+    
+    private static class WheelTimeout implements Timeout {
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicInteger state;
+        private long remainingRounds;
+        private WheelTimeout prev;
+        private WheelTimeout next;
+        
+        WheelTimeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+            this.state = new AtomicInteger(STATE_PENDING);
+        }
+        
+        @Override
+        public boolean cancel() {
+            return state.compareAndSet(STATE_PENDING, STATE_CANCELLED);
+        }
+        
+        @Override
+        public boolean isCancelled() {
+            return state.get() == STATE_CANCELLED;
+        }
+    }
+    
+    // Only touched by the ticker thread
+    private static class Bucket {
+        private WheelTimeout head;
+        private WheelTimeout tail;
+        private int size;
+        
+        void add(WheelTimeout timeout) {
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+            size++;
+        }
+        
+        void remove(WheelTimeout timeout) {
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            } else {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            size--;
+        }
+    }
+}
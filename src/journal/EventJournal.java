@@ -0,0 +1,189 @@
+package journal;
+
+import model.*;
+import util.FileOperationException;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+// Append-only binary journal of signal transitions and vehicle arrivals, written to
+// memory-mapped segment files that rotate when full. Record layout (16 bytes):
+//   0 time (long) | 8 intersection index (int) | 12 kind | 13 a | 14 b | 15 c
+// SIGNAL:  a = signal index, b = old state, c = new state
+// ARRIVAL: a = approach, b = vehicle type
+// DEFINE:  a/b = payload length, followed by "id\nlocation" in 16-byte PAYLOAD chunks that
+//          carry 15 payload bytes around their own kind byte
+// The kind byte is written last and commits the record. A claimed record whose writer never
+// finished reads as kind 0 (or as PAYLOAD chunks of an uncommitted DEFINE), and replay steps
+// over it instead of treating it as the end of the segment.
+public class EventJournal implements IntersectionListener, AutoCloseable {
+    public static final int RECORD_SIZE = 16;
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+    
+    static final int PAYLOAD_CHUNK = RECORD_SIZE - 1;
+    
+    static final byte KIND_UNWRITTEN = 0;
+    static final byte KIND_DEFINE = 1;
+    static final byte KIND_SIGNAL = 2;
+    static final byte KIND_ARRIVAL = 3;
+    static final byte KIND_PAYLOAD = 4;
+    static final String SEGMENT_PREFIX = "journal-";
+    static final String SEGMENT_SUFFIX = ".seg";
+    
+    private final Path directory;
+    private final int segmentSize;
+    private volatile JournalSegment current;
+    private long nextSegmentNumber;
+    private boolean closed;
+    
+    public EventJournal(String directory) throws FileOperationException {
+        this(directory, DEFAULT_SEGMENT_SIZE);
+    }
+    
+    public EventJournal(String directory, int segmentSize) throws FileOperationException {
+        this.directory = Paths.get(directory);
+        this.segmentSize = segmentSize - segmentSize % RECORD_SIZE;
+        try {
+            Files.createDirectories(this.directory);
+            this.nextSegmentNumber = lastSegmentNumber(this.directory) + 1;
+            this.current = openSegment();
+        } catch (IOException e) {
+            throw new FileOperationException("Error opening journal: " + directory, e);
+        }
+    }
+    
+    // Writes the id/location dictionary entry that replay uses to resolve the intersection index
+    public void defineIntersection(Intersection intersection, long time) {
+        byte[] payload = (intersection.getIntersectionId() + "\n" + intersection.getLocation())
+            .getBytes(StandardCharsets.UTF_8);
+        if (payload.length > 0xFFFF) {
+            throw new IllegalArgumentException("Intersection definition too long: " + intersection.getIntersectionId());
+        }
+        
+        int chunks = payloadChunks(payload.length);
+        JournalSegment segment;
+        int offset;
+        while ((offset = (segment = current).claim(RECORD_SIZE * (1 + chunks))) < 0) {
+            if (!rotate(segment)) {
+                return; // the journal was closed under this record
+            }
+        }
+        try {
+            MappedByteBuffer buffer = segment.buffer();
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                int chunkOffset = offset + RECORD_SIZE * (1 + chunk);
+                buffer.put(chunkOffset + 12, KIND_PAYLOAD);
+                for (int i = 0; i < PAYLOAD_CHUNK && chunk * PAYLOAD_CHUNK + i < payload.length; i++) {
+                    buffer.put(chunkOffset + payloadPosition(i), payload[chunk * PAYLOAD_CHUNK + i]);
+                }
+            }
+            buffer.putLong(offset, time);
+            buffer.putInt(offset + 8, intersection.getIndex());
+            buffer.put(offset + 13, (byte) (payload.length >>> 8));
+            buffer.put(offset + 14, (byte) payload.length);
+            buffer.put(offset + 12, KIND_DEFINE);
+        } finally {
+            segment.commit(RECORD_SIZE * (1 + chunks));
+        }
+    }
+    
+    static int payloadChunks(int length) {
+        return (length + PAYLOAD_CHUNK - 1) / PAYLOAD_CHUNK;
+    }
+    
+    // Byte i of a chunk's payload skips the kind byte at 12
+    static int payloadPosition(int i) {
+        return i < 12 ? i : i + 1;
+    }
+    
+    @Override
+    public void onSignalChange(Intersection intersection, int signalIndex, SignalState oldState,
+                               SignalState newState, long time) {
+        append(time, intersection.getIndex(), KIND_SIGNAL, signalIndex, oldState.ordinal(), newState.ordinal());
+    }
+    
+    @Override
+    public void onVehicleArrival(Intersection intersection, Direction approach, VehicleType type, long time) {
+        append(time, intersection.getIndex(), KIND_ARRIVAL, approach.ordinal(), type.ordinal(), 0);
+    }
+    
+    private void append(long time, int intersectionIndex, byte kind, int a, int b, int c) {
+        JournalSegment segment;
+        int offset;
+        while ((offset = (segment = current).claim(RECORD_SIZE)) < 0) {
+            if (!rotate(segment)) {
+                return; // the journal was closed under this record
+            }
+        }
+        try {
+            MappedByteBuffer buffer = segment.buffer();
+            buffer.putLong(offset, time);
+            buffer.putInt(offset + 8, intersectionIndex);
+            buffer.put(offset + 13, (byte) a);
+            buffer.put(offset + 14, (byte) b);
+            buffer.put(offset + 15, (byte) c);
+            buffer.put(offset + 12, kind); // written last: commits the record
+        } finally {
+            segment.commit(RECORD_SIZE);
+        }
+    }
+    
+    // False once the journal is closed
+    private synchronized boolean rotate(JournalSegment full) {
+        if (closed) {
+            return false;
+        }
+        if (current != full) {
+            return true; // another writer already rotated
+        }
+        
+        try {
+            current = openSegment();
+        } catch (IOException e) {
+            throw new IllegalStateException("Error rotating journal segment: " + e.getMessage(), e);
+        }
+        
+        try {
+            full.retire();
+        } catch (IOException e) {
+            System.err.println("Error closing journal segment " + full.path() + ": " + e.getMessage());
+        }
+        return true;
+    }
+    
+    private JournalSegment openSegment() throws IOException {
+        Path path = directory.resolve(String.format("%s%012d%s", SEGMENT_PREFIX, nextSegmentNumber++, SEGMENT_SUFFIX));
+        return new JournalSegment(path, segmentSize);
+    }
+    
+    static long lastSegmentNumber(Path directory) throws IOException {
+        long last = -1;
+        try (DirectoryStream<Path> segments = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path segment : segments) {
+                String name = segment.getFileName().toString();
+                last = Math.max(last, Long.parseLong(
+                    name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        return last;
+    }
+    
+    @Override
+    public synchronized void close() throws FileOperationException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            // Writers still inside the segment finish their records and close it themselves
+            current.retire();
+        } catch (IOException e) {
+            throw new FileOperationException("Error closing journal: " + directory, e);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package journal;
+
+import model.*;
+import util.FileOperationException;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Rebuilds intersections, signal states and vehicle counts from journal segments
+public class JournalReplayer {
+    private static final SignalState[] STATES = SignalState.values();
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final VehicleType[] TYPES = VehicleType.values();
+    
+    // Replays every record stamped at or before untilTime
+    public static Map<String, Intersection> replay(String directory, long untilTime) throws FileOperationException {
+        Map<String, Intersection> intersections = new LinkedHashMap<>();
+        Map<Integer, Intersection> byIndex = new HashMap<>();
+        
+        for (Path segment : listSegments(Paths.get(directory))) {
+            try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                replaySegment(buffer, untilTime, intersections, byIndex);
+            } catch (IOException e) {
+                throw new FileOperationException("Error replaying journal segment: " + segment, e);
+            }
+        }
+        return intersections;
+    }
+    
+    private static void replaySegment(MappedByteBuffer buffer, long untilTime,
+                                      Map<String, Intersection> intersections, Map<Integer, Intersection> byIndex) {
+        int limit = buffer.limit() - EventJournal.RECORD_SIZE;
+        int offset = 0;
+        while (offset <= limit) {
+            byte kind = buffer.get(offset + 12);
+            if (kind == EventJournal.KIND_UNWRITTEN || kind == EventJournal.KIND_PAYLOAD) {
+                // Unclaimed tail, a record whose writer never finished, or the payload of an
+                // uncommitted DEFINE: none of it commits anything, so step over it
+                offset += EventJournal.RECORD_SIZE;
+                continue;
+            }
+            
+            long time = buffer.getLong(offset);
+            int index = buffer.getInt(offset + 8);
+            int a = buffer.get(offset + 13) & 0xFF;
+            int b = buffer.get(offset + 14) & 0xFF;
+            
+            if (kind == EventJournal.KIND_DEFINE) {
+                int length = (a << 8) | b;
+                byte[] payload = new byte[length];
+                for (int i = 0; i < length; i++) {
+                    int chunkOffset = offset + EventJournal.RECORD_SIZE * (1 + i / EventJournal.PAYLOAD_CHUNK);
+                    payload[i] = buffer.get(chunkOffset + EventJournal.payloadPosition(i % EventJournal.PAYLOAD_CHUNK));
+                }
+                if (time <= untilTime) {
+                    define(new String(payload, StandardCharsets.UTF_8), index, intersections, byIndex);
+                }
+                offset += EventJournal.RECORD_SIZE * (1 + EventJournal.payloadChunks(length));
+                continue;
+            }
+            
+            Intersection intersection = byIndex.get(index);
+            if (intersection != null && time <= untilTime) {
+                if (kind == EventJournal.KIND_SIGNAL) {
+                    SignalState state = STATES[buffer.get(offset + 15)];
+                    intersection.getSignals().get(a).restore(state, state.getDefaultDuration(), time);
+                } else if (kind == EventJournal.KIND_ARRIVAL) {
+                    intersection.incrementVehicleCount(DIRECTIONS[a], TYPES[b]);
+                }
+            }
+            offset += EventJournal.RECORD_SIZE;
+        }
+    }
+    
+    private static void define(String payload, int index,
+                               Map<String, Intersection> intersections, Map<Integer, Intersection> byIndex) {
+        int separator = payload.indexOf('\n');
+        String id = payload.substring(0, separator);
+        String location = payload.substring(separator + 1);
+        // A later run may reuse the index for another intersection; the newest definition wins
+        Intersection intersection = intersections.computeIfAbsent(id, key -> new Intersection(key, location));
+        byIndex.put(index, intersection);
+    }
+    
+    private static List<Path> listSegments(Path directory) throws FileOperationException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                EventJournal.SEGMENT_PREFIX + "*" + EventJournal.SEGMENT_SUFFIX)) {
+            for (Path segment : stream) {
+                segments.add(segment);
+            }
+        } catch (IOException e) {
+            throw new FileOperationException("Error listing journal: " + directory, e);
+        }
+        Collections.sort(segments); // zero-padded numbers sort in write order
+        return segments;
+    }
+}
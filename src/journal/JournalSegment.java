@@ -0,0 +1,91 @@
+package journal;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// One pre-sized, memory-mapped journal file. Writers claim disjoint byte ranges with a
+// single atomic add and write them with absolute puts, so appends never take a lock.
+// Writers also add the bytes they finish to a commit counter. A retired segment accepts no
+// more claims and is forced and closed once the committed bytes reach what was claimed, by
+// whichever of the retiring thread or the last writer gets there, so a record claimed
+// before the journal moved on is never cut off. The closed file keeps only the claimed bytes.
+class JournalSegment {
+    private static final int OPEN = -1;
+    
+    private final Path path;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final AtomicInteger position;
+    private final AtomicInteger committed;
+    private final AtomicBoolean closed;
+    private volatile int sealedAt;
+    
+    JournalSegment(Path path, int capacity) throws IOException {
+        this.path = path;
+        this.capacity = capacity;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+            StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        this.position = new AtomicInteger();
+        this.committed = new AtomicInteger();
+        this.closed = new AtomicBoolean();
+        this.sealedAt = OPEN;
+    }
+    
+    // Returns the claimed offset, or -1 when the segment is full or retired
+    int claim(int size) {
+        int offset = position.getAndAdd(size);
+        if (offset >= 0 && offset <= capacity - size) {
+            return offset;
+        }
+        if (offset >= 0 && offset < capacity) {
+            // This claim crossed the end; nobody writes the rest, so it counts as done
+            commit(capacity - offset);
+        }
+        return -1;
+    }
+    
+    // Called once the claimed bytes are written
+    void commit(int size) {
+        if (committed.addAndGet(size) == sealedAt) {
+            try {
+                closeOnce();
+            } catch (IOException e) {
+                System.err.println("Error closing journal segment " + path + ": " + e.getMessage());
+            }
+        }
+    }
+    
+    // Claims made before this still complete; the file closes when the last of them commits
+    void retire() throws IOException {
+        int claimed = position.getAndSet(capacity);
+        sealedAt = claimed < 0 || claimed > capacity ? capacity : claimed;
+        if (committed.get() == sealedAt) {
+            closeOnce();
+        }
+    }
+    
+    MappedByteBuffer buffer() {
+        return buffer;
+    }
+    
+    Path path() {
+        return path;
+    }
+    
+    // Cuts the file back to the bytes claimed, so a segment closed early is not left at full size
+    private void closeOnce() throws IOException {
+        if (closed.compareAndSet(false, true)) {
+            try (channel) {
+                buffer.force();
+                channel.truncate(sealedAt);
+            }
+        }
+    }
+}
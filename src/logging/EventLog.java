@@ -0,0 +1,230 @@
+package logging;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Asynchronous event log. Producers claim a slot in a lock-free ring buffer and store a
+// fixed-size record (type, time, subject reference, two longs); a single background
+// consumer formats, filters and writes them to a rolling file. Nothing is formatted or
+// allocated on the producer side, and a full ring drops records instead of blocking.
+public class EventLog {
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    
+    private final int capacity;
+    private final int mask;
+    private final long[] times;
+    private final EventType[] types;
+    private final Object[] subjects;
+    private final long[] firstArgs;
+    private final long[] secondArgs;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed;
+    private final LongAdder dropped;
+    private volatile long consumed;
+    private volatile long flushed;
+    private volatile LogLevel level;
+    private volatile int sampleRate;
+    private volatile boolean running;
+    
+    private final RollingFileSink sink;
+    private final boolean console;
+    private final Thread consumer;
+    
+    public EventLog(String filename, LogLevel level, int sampleRate, int capacity,
+                    long maxFileBytes, int maxFiles, boolean console) throws IOException {
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        this.capacity = size;
+        this.mask = size - 1;
+        this.times = new long[size];
+        this.types = new EventType[size];
+        this.subjects = new Object[size];
+        this.firstArgs = new long[size];
+        this.secondArgs = new long[size];
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+        this.claimed = new AtomicLong();
+        this.dropped = new LongAdder();
+        this.level = level;
+        this.sampleRate = Math.max(sampleRate, 1);
+        this.sink = filename == null ? null : new RollingFileSink(filename, maxFileBytes, maxFiles);
+        this.console = console;
+        this.running = true;
+        this.consumer = new Thread(this::consume, "event-log");
+        this.consumer.setDaemon(true);
+        this.consumer.start();
+    }
+    
+    // Default instance configured from -Dtraffic.log.* properties, created on first use
+    private static class Holder {
+        private static final EventLog INSTANCE = createDefault();
+    }
+    
+    private static EventLog createDefault() {
+        try {
+            EventLog log = new EventLog(
+                System.getProperty("traffic.log.file", "logs/traffic-events.log"),
+                LogLevel.valueOf(System.getProperty("traffic.log.level", "INFO").toUpperCase()),
+                Integer.getInteger("traffic.log.sample", 1),
+                Integer.getInteger("traffic.log.buffer", 1 << 16),
+                Long.getLong("traffic.log.maxBytes", 10L * 1024 * 1024),
+                Integer.getInteger("traffic.log.files", 5),
+                Boolean.getBoolean("traffic.log.console"));
+            Runtime.getRuntime().addShutdownHook(new Thread(log::close));
+            return log;
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot open event log: " + e.getMessage(), e);
+        }
+    }
+    
+    public static EventLog get() {
+        return Holder.INSTANCE;
+    }
+    
+    public static void log(EventType type, long time, Object subject, long arg1, long arg2) {
+        Holder.INSTANCE.publish(type, time, subject, arg1, arg2);
+    }
+    
+    public boolean isEnabled(EventType type) {
+        return type.getLevel().compareTo(level) >= 0;
+    }
+    
+    public boolean publish(EventType type, long time, Object subject, long arg1, long arg2) {
+        if (!isEnabled(type)) {
+            return false;
+        }
+        // Sampling only thins routine events; warnings and errors are always kept
+        int rate = sampleRate;
+        if (rate > 1 && type.getLevel().compareTo(LogLevel.WARN) < 0
+                && ThreadLocalRandom.current().nextInt(rate) != 0) {
+            return false;
+        }
+        
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed >= capacity) {
+                dropped.increment();
+                return false;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+        
+        int slot = (int) sequence & mask;
+        times[slot] = time;
+        types[slot] = type;
+        subjects[slot] = subject;
+        firstArgs[slot] = arg1;
+        secondArgs[slot] = arg2;
+        published.set(slot, sequence);
+        return true;
+    }
+    
+    public void setLevel(LogLevel level) {
+        this.level = level;
+    }
+    
+    public void setSampleRate(int sampleRate) {
+        this.sampleRate = Math.max(sampleRate, 1);
+    }
+    
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+    
+    public long getWrittenCount() {
+        return consumed;
+    }
+    
+    // Waits until everything published so far has been written and flushed
+    public void flush() {
+        long target = claimed.get();
+        while (flushed < target && consumer.isAlive()) {
+            LockSupport.parkNanos(IDLE_PARK_NANOS / 10);
+        }
+    }
+    
+    public void close() {
+        flush();
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+    
+    private void consume() {
+        StringBuilder line = new StringBuilder(256);
+        long next = 0;
+        boolean dirty = false;
+        
+        while (running || next < claimed.get()) {
+            int slot = (int) next & mask;
+            if (published.get(slot) != next) {
+                if (dirty) {
+                    flushSink();
+                    dirty = false;
+                }
+                flushed = next;
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            
+            EventType type = types[slot];
+            long time = times[slot];
+            Object subject = subjects[slot];
+            long arg1 = firstArgs[slot];
+            long arg2 = secondArgs[slot];
+            subjects[slot] = null;
+            next++;
+            consumed = next;
+            
+            line.setLength(0);
+            line.append(Instant.ofEpochMilli(time)).append(' ').append(type.getLevel()).append(' ');
+            type.format(line, subject, arg1, arg2);
+            write(line);
+            dirty = true;
+        }
+        
+        flushSink();
+        flushed = next;
+        if (sink != null) {
+            try {
+                sink.close();
+            } catch (IOException e) {
+                System.err.println("Error closing event log: " + e.getMessage());
+            }
+        }
+    }
+    
+    private void write(CharSequence line) {
+        if (console) {
+            System.out.println(line);
+        }
+        if (sink != null) {
+            try {
+                sink.write(line);
+            } catch (IOException e) {
+                System.err.println("Error writing event log: " + e.getMessage());
+            }
+        }
+    }
+    
+    private void flushSink() {
+        if (sink != null) {
+            try {
+                sink.flush();
+            } catch (IOException e) {
+                System.err.println("Error flushing event log: " + e.getMessage());
+            }
+        }
+    }
+}
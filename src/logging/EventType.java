@@ -0,0 +1,49 @@
+package logging;
+
+import model.*;
+
+// Fixed event kinds; the consumer thread turns the record's subject and two numeric
+// arguments into text, so producers never build strings.
+public enum EventType {
+    VEHICLE_ARRIVAL(LogLevel.INFO) {
+        @Override
+        void format(StringBuilder out, Object subject, long arg1, long arg2) {
+            String id = ((Intersection) subject).getIntersectionId();
+            out.append("Vehicle ").append(id).append("_V").append(PackedVehicle.sequence(arg1))
+               .append(" (").append(PackedVehicle.type(arg2))
+               .append(") arrived at ").append(id)
+               .append(" from ").append(PackedVehicle.approach(arg2));
+        }
+    },
+    SIGNALS_UPDATED(LogLevel.INFO) {
+        @Override
+        void format(StringBuilder out, Object subject, long arg1, long arg2) {
+            out.append('[').append(((Intersection) subject).getIntersectionId())
+               .append("] Signals updated (phase ").append(arg1).append(", step ").append(arg2).append(')');
+        }
+    },
+    PREEMPTION(LogLevel.WARN) {
+        @Override
+        void format(StringBuilder out, Object subject, long arg1, long arg2) {
+            out.append('[').append(((Intersection) subject).getIntersectionId())
+               .append("] Emergency preemption for ").append(Direction.values()[(int) arg1]);
+        }
+    };
+    
+    private final LogLevel level;
+    
+    EventType(LogLevel level) {
+        this.level = level;
+    }
+    
+    public LogLevel getLevel() {
+        return level;
+    }
+    
+    abstract void format(StringBuilder out, Object subject, long arg1, long arg2);
+    
+    // Packs a vehicle type and approach into one argument for VEHICLE_ARRIVAL
+    public static long arrivalDetails(VehicleType type, Direction approach) {
+        return PackedVehicle.details(type, approach);
+    }
+}
@@ -0,0 +1,8 @@
+package logging;
+
+public enum LogLevel {
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR
+}
@@ -0,0 +1,64 @@
+package logging;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+// Appends lines to a file and rolls it to name.1 ... name.N once it passes maxBytes
+class RollingFileSink {
+    private final File file;
+    private final long maxBytes;
+    private final int maxFiles;
+    private Writer writer;
+    private long written;
+    
+    RollingFileSink(String filename, long maxBytes, int maxFiles) throws IOException {
+        this.file = new File(filename);
+        this.maxBytes = maxBytes;
+        this.maxFiles = Math.max(maxFiles, 1);
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        open();
+    }
+    
+    void write(CharSequence line) throws IOException {
+        if (written >= maxBytes) {
+            roll();
+        }
+        writer.append(line).append(System.lineSeparator());
+        written += line.length() + 1;
+    }
+    
+    void flush() throws IOException {
+        writer.flush();
+    }
+    
+    void close() throws IOException {
+        writer.close();
+    }
+    
+    private void open() throws IOException {
+        writer = new BufferedWriter(new OutputStreamWriter(
+            new FileOutputStream(file, true), StandardCharsets.UTF_8), 1 << 16);
+        written = file.length();
+    }
+    
+    private void roll() throws IOException {
+        writer.close();
+        new File(file.getPath() + "." + maxFiles).delete();
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            File older = new File(file.getPath() + "." + i);
+            if (older.exists()) {
+                older.renameTo(new File(file.getPath() + "." + (i + 1)));
+            }
+        }
+        file.renameTo(new File(file.getPath() + ".1"));
+        open();
+    }
+}
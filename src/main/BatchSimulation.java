@@ -0,0 +1,145 @@
+package main;
+
+import model.Intersection;
+import service.ExecutionMode;
+import service.TrafficManager;
+import service.TrafficQueues;
+import util.FileOperationException;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Collection;
+import java.util.Locale;
+
+// Non-interactive run of a scenario on the discrete-event engine: simulated time advances as
+// fast as the events can be processed, nothing waits on the wall clock, and the manager is
+// shut down by joining its threads. The result is one JSON object on standard output (and in
+// the scenario's summary file), so capacity tests can be scripted.
+public class BatchSimulation {
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10_000;
+    
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.err.println("Usage: TrafficSignalApp --batch <scenario.properties>");
+            System.exit(2);
+        }
+        try {
+            run(Scenario.load(args[0]));
+        } catch (FileOperationException e) {
+            System.err.println(e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.exit(1);
+        }
+    }
+    
+    public static String run(Scenario scenario) throws FileOperationException, InterruptedException {
+        PrintStream console = System.out;
+        // Per-intersection chatter would drown the summary; only the JSON reaches stdout
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        String summary;
+        try {
+            summary = simulate(scenario);
+        } finally {
+            System.setOut(console);
+        }
+        
+        console.println(summary);
+        if (!scenario.getSummaryFile().isEmpty()) {
+            try (Writer writer = new FileWriter(scenario.getSummaryFile())) {
+                writer.write(summary);
+                writer.write(System.lineSeparator());
+            } catch (IOException e) {
+                throw new FileOperationException("Error writing summary: " + scenario.getSummaryFile(), e);
+            }
+        }
+        return summary;
+    }
+    
+    private static String simulate(Scenario scenario) throws InterruptedException {
+        long setupStart = System.nanoTime();
+        TrafficManager manager = new TrafficManager(ExecutionMode.DISCRETE_EVENT, scenario.getSeed());
+        if (scenario.isCompactSignals()) {
+            manager.enableCompactSignals(scenario.getIntersections());
+        }
+        manager.setDemandModel(scenario.getDemand());
+        for (int i = 0; i < scenario.getIntersections(); i++) {
+            manager.addIntersection("B" + i, "Zone " + i % 100);
+        }
+        if (scenario.getSaturationFlowPerHour() > 0) {
+            manager.enableQueues(scenario.getSaturationFlowPerHour());
+        }
+        if (scenario.getAdaptiveIntervalMillis() > 0) {
+            manager.enableAdaptiveTiming(scenario.getAdaptiveIntervalMillis(), scenario.getSaturationFlowPerHour() > 0
+                ? scenario.getSaturationFlowPerHour() : 1800);
+        }
+        manager.startAll();
+        long setupMillis = (System.nanoTime() - setupStart) / 1_000_000;
+        
+        long gcCountBefore = gcCount();
+        long gcMillisBefore = gcMillis();
+        long runStart = System.nanoTime();
+        long events = manager.runSimulation(scenario.getDurationMillis());
+        long runNanos = System.nanoTime() - runStart;
+        long gcCount = gcCount() - gcCountBefore;
+        long gcMillis = gcMillis() - gcMillisBefore;
+        
+        Collection<Intersection> intersections = manager.getIntersections().values();
+        TrafficQueues queues = manager.getQueues();
+        long arrived = manager.getReport().getTotalVehicles();
+        long served = queues != null ? queues.getDischarged(intersections) : arrived;
+        double averageDelayMillis = queues != null ? queues.getAverageDelayMillis(intersections) : 0;
+        
+        long shutdownStart = System.nanoTime();
+        boolean stopped = manager.shutdown(SHUTDOWN_TIMEOUT_MILLIS);
+        long shutdownMillis = (System.nanoTime() - shutdownStart) / 1_000_000;
+        
+        return String.format(Locale.ROOT, "{\"scenario\":\"%s\",\"demand\":\"%s\",\"intersections\":%d,\"simulatedSeconds\":%d,\"seed\":%d,"
+                + "\"setupMs\":%d,\"wallMs\":%d,\"events\":%d,\"eventsPerSecond\":%.0f,\"simulatedToWall\":%.1f,"
+                + "\"vehiclesArrived\":%d,\"vehiclesServed\":%d,\"averageDelayMs\":%.1f,"
+                + "\"peakHeapBytes\":%d,\"gcCount\":%d,\"gcMs\":%d,\"shutdownMs\":%d,\"cleanShutdown\":%b}",
+            escape(scenario.getName()), scenario.getDemandProfile(), scenario.getIntersections(), scenario.getDurationMillis() / 1000, scenario.getSeed(),
+            setupMillis, runNanos / 1_000_000, events, events * 1e9 / Math.max(runNanos, 1),
+            scenario.getDurationMillis() * 1e6 / Math.max(runNanos, 1), arrived, served, averageDelayMillis,
+            peakHeapBytes(), gcCount, gcMillis, shutdownMillis, stopped);
+    }
+    
+    // Sum of every heap pool's high-water mark since the JVM started
+    private static long peakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                peak += pool.getPeakUsage().getUsed();
+            }
+        }
+        return peak;
+    }
+    
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, collector.getCollectionCount());
+        }
+        return count;
+    }
+    
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, collector.getCollectionTime());
+        }
+        return millis;
+    }
+    
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
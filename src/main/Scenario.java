@@ -0,0 +1,159 @@
+package main;
+
+import demand.DemandModel;
+import demand.PoissonDemand;
+import demand.ReplayDemand;
+import demand.UniformDemand;
+import util.FileOperationException;
+import util.InvalidSignalException;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Properties;
+
+// A batch run read from a properties file:
+//   intersections=100000
+//   durationMinutes=60
+//   seed=42
+//   demand.profile=poisson          uniform (default), poisson or replay
+//   demand.arrivalsPerMinute=17     mean rate for uniform, rate at factor 1 for poisson
+//   demand.curve=weekday            poisson: flat, weekday or 24 comma-separated hourly factors
+//   demand.startHour=7              time of day at the start of the run
+//   demand.replay=counts.csv        replay: IntersectionID,Approach,Interval,Count
+//   demand.replayIntervalMinutes=15
+//   demand.approachWeights=1,1,1,1  N,S,E,W shares for uniform and poisson
+//   demand.emergencyShare=0.1
+//   queues.saturationFlow=1800
+//   adaptive.intervalMs=300000
+//   signals.compact=true
+//   summary=summary.json
+// Only intersections and durationMinutes are required; 0 turns queues or adaptive timing off.
+public class Scenario {
+    private final String name;
+    private final int intersections;
+    private final long durationMillis;
+    private final long seed;
+    private final String demandProfile;
+    private final DemandModel demand;
+    private final int saturationFlowPerHour;
+    private final long adaptiveIntervalMillis;
+    private final boolean compactSignals;
+    private final String summaryFile;
+    
+    private Scenario(String name, Properties properties) throws FileOperationException, InvalidSignalException {
+        this.name = properties.getProperty("name", name);
+        this.intersections = Integer.parseInt(required(properties, "intersections"));
+        this.durationMillis = Math.round(Double.parseDouble(required(properties, "durationMinutes")) * 60_000);
+        this.seed = Long.parseLong(properties.getProperty("seed", "42"));
+        this.demandProfile = properties.getProperty("demand.profile", "uniform").trim().toLowerCase();
+        this.demand = demand(demandProfile, properties);
+        this.saturationFlowPerHour = Integer.parseInt(properties.getProperty("queues.saturationFlow", "1800"));
+        this.adaptiveIntervalMillis = Long.parseLong(properties.getProperty("adaptive.intervalMs", "0"));
+        this.compactSignals = Boolean.parseBoolean(properties.getProperty("signals.compact", "false"));
+        this.summaryFile = properties.getProperty("summary", "").trim();
+        if (intersections <= 0 || durationMillis <= 0) {
+            throw new IllegalArgumentException("intersections and durationMinutes must be positive");
+        }
+    }
+    
+    private static DemandModel demand(String profile, Properties properties) throws FileOperationException, InvalidSignalException {
+        double arrivalsPerMinute = Double.parseDouble(properties.getProperty("demand.arrivalsPerMinute",
+            String.valueOf(60_000.0 / UniformDemand.DEFAULT_MEAN_GAP_MILLIS)));
+        long dayOffsetMillis = Math.round(Double.parseDouble(properties.getProperty("demand.startHour", "0"))
+            * PoissonDemand.HOUR_MILLIS);
+        double[] approachWeights = factors(properties.getProperty("demand.approachWeights", "1,1,1,1"));
+        double emergencyShare = Double.parseDouble(properties.getProperty("demand.emergencyShare",
+            String.valueOf(DemandModel.DEFAULT_EMERGENCY_SHARE)));
+        switch (profile) {
+            case "uniform":
+                if (arrivalsPerMinute <= 0) {
+                    throw new IllegalArgumentException("demand.arrivalsPerMinute must be positive");
+                }
+                return new UniformDemand(Math.max(2, Math.round(60_000 / arrivalsPerMinute)), approachWeights, emergencyShare);
+            case "poisson":
+                String curve = properties.getProperty("demand.curve", "flat").trim();
+                double[] hourlyFactors = "flat".equalsIgnoreCase(curve) ? PoissonDemand.FLAT
+                    : "weekday".equalsIgnoreCase(curve) ? PoissonDemand.WEEKDAY : factors(curve);
+                return new PoissonDemand(arrivalsPerMinute, hourlyFactors, dayOffsetMillis, approachWeights, emergencyShare);
+            case "replay":
+                return ReplayDemand.load(required(properties, "demand.replay"),
+                    Integer.parseInt(properties.getProperty("demand.replayIntervalMinutes", "15")), dayOffsetMillis,
+                    emergencyShare);
+            default:
+                throw new IllegalArgumentException("Unknown demand.profile " + profile);
+        }
+    }
+    
+    private static double[] factors(String list) {
+        String[] parts = list.split(",");
+        double[] values = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Double.parseDouble(parts[i].trim());
+        }
+        return values;
+    }
+    
+    private static String required(Properties properties, String key) {
+        String value = properties.getProperty(key);
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException("Scenario is missing " + key);
+        }
+        return value.trim();
+    }
+    
+    public static Scenario load(String filename) throws FileOperationException {
+        Properties properties = new Properties();
+        try (Reader reader = new FileReader(filename)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            throw new FileOperationException("Error reading scenario: " + filename, e);
+        }
+        try {
+            return new Scenario(filename, properties);
+        } catch (IllegalArgumentException | InvalidSignalException e) {
+            throw new FileOperationException("Invalid scenario " + filename + ": " + e.getMessage(), e);
+        }
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    public int getIntersections() {
+        return intersections;
+    }
+    
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+    
+    public long getSeed() {
+        return seed;
+    }
+    
+    public String getDemandProfile() {
+        return demandProfile;
+    }
+    
+    public DemandModel getDemand() {
+        return demand;
+    }
+    
+    public int getSaturationFlowPerHour() {
+        return saturationFlowPerHour;
+    }
+    
+    public long getAdaptiveIntervalMillis() {
+        return adaptiveIntervalMillis;
+    }
+    
+    public boolean isCompactSignals() {
+        return compactSignals;
+    }
+    
+    // Empty when the summary only goes to standard output
+    public String getSummaryFile() {
+        return summaryFile;
+    }
+}
@@ -1,27 +1,123 @@
 package main;
 
+import cluster.ClusterCoordinator;
+import cluster.ShardServer;
+import service.ExecutionMode;
 import service.TrafficManager;
+import stream.StateStreamServer;
 import util.*;
 
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Scanner;
 
 public class TrafficSignalApp {
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 10_000;
+    
     private static TrafficManager manager;
+    private static StateStreamServer stateStream;
     private static Scanner scanner;
     
     public static void main(String[] args) {
-        manager = new TrafficManager();
+        // Headless scenario run: --batch <scenario.properties>
+        if (args.length > 0 && "--batch".equals(args[0])) {
+            BatchSimulation.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        
         scanner = new Scanner(System.in);
         
         System.out.println("=== Traffic Signal Management System ===\n");
         
+        // Coordinator for shard nodes started with -Dtraffic.shard.port; nothing is held locally
+        String clusterNodes = System.getProperty("traffic.cluster.nodes", "");
+        if (!clusterNodes.trim().isEmpty()) {
+            runCoordinator(Arrays.asList(clusterNodes.trim().split("\\s*,\\s*")));
+            return;
+        }
+        
+        manager = new TrafficManager(ExecutionMode.fromSystemProperty());
+        
+        String checkpointDir = System.getProperty("traffic.checkpoint.dir", "checkpoint");
+        
+        // Struct-of-arrays signal state for city-scale deployments
+        if (Boolean.getBoolean("traffic.signals.compact")) {
+            manager.enableCompactSignals(Integer.getInteger("traffic.signals.expected", 0));
+        }
+        
         // Load existing data
         try {
+            manager.recoverCheckpoints(checkpointDir);
             manager.loadData();
         } catch (FileOperationException e) {
             System.out.println("No existing data found. Starting fresh.");
         }
         
+        try {
+            manager.loadPhasePlans();
+        } catch (FileOperationException | InvalidSignalException e) {
+            System.err.println("Using the default phase plan: " + e.getMessage());
+        }
+        
+        try {
+            manager.enableCheckpointing(checkpointDir,
+                Long.getLong("traffic.checkpoint.intervalMs", 30000), Integer.getInteger("traffic.checkpoint.compactEvery", 10));
+        } catch (FileOperationException e) {
+            System.err.println("Checkpointing disabled: " + e.getMessage());
+        }
+        
+        // Arrivals per minute and wait times over a sliding window; off unless a window is given
+        // (e.g. -Dtraffic.stats.windowMs=300000), since every intersection then carries its windows
+        long statsWindow = Long.getLong("traffic.stats.windowMs", 0);
+        if (statsWindow > 0) {
+            manager.enableStatistics(statsWindow, Integer.getInteger("traffic.stats.buckets", 5));
+        }
+        
+        // Per-approach queues discharging at a saturation flow; -Dtraffic.queues.saturationFlow=0 turns them off
+        int saturationFlow = Integer.getInteger("traffic.queues.saturationFlow", 1800);
+        if (saturationFlow > 0) {
+            manager.enableQueues(saturationFlow);
+        }
+        
+        // Webster timing from recent demand; -Dtraffic.adaptive.intervalMs=0 keeps the configured plans
+        long adaptiveInterval = Long.getLong("traffic.adaptive.intervalMs", 300000);
+        if (adaptiveInterval > 0) {
+            manager.enableAdaptiveTiming(adaptiveInterval, Integer.getInteger("traffic.adaptive.saturationFlow", 1800));
+        }
+        
+        // Record signal transitions and arrivals only when -Dtraffic.journal.dir names a directory;
+        // segments are never deleted, so the journal grows for as long as it is kept
+        String journalDir = System.getProperty("traffic.journal.dir", "");
+        if (!journalDir.trim().isEmpty()) {
+            try {
+                manager.enableJournal(journalDir);
+            } catch (FileOperationException e) {
+                System.err.println("Journal disabled: " + e.getMessage());
+            }
+        }
+        
+        // Live signal states for dashboards at ws://127.0.0.1:<port>/stream; off unless a port is given
+        int streamPort = Integer.getInteger("traffic.stream.port", -1);
+        if (streamPort >= 0) {
+            try {
+                stateStream = new StateStreamServer(manager, streamPort,
+                    Long.getLong("traffic.stream.tickMs", StateStreamServer.DEFAULT_TICK_MILLIS),
+                    Integer.getInteger("traffic.stream.maxBufferedBytes", StateStreamServer.DEFAULT_MAX_BUFFERED_BYTES));
+                stateStream.start();
+                System.out.println("State stream on ws://127.0.0.1:" + stateStream.getPort() + "/stream");
+            } catch (IOException e) {
+                System.err.println("State stream disabled: " + e.getMessage());
+            }
+        }
+        
+        // Shard node: serve the coordinator instead of the menu until it asks us to shut down
+        int shardPort = Integer.getInteger("traffic.shard.port", -1);
+        if (shardPort >= 0) {
+            runShard(shardPort);
+            return;
+        }
+        
         boolean running = true;
         while (running) {
             displayMenu();
@@ -59,6 +155,79 @@ public class TrafficSignalApp {
         scanner.close();
     }
     
+    private static void runShard(int port) {
+        try (ShardServer server = new ShardServer(manager, port)) {
+            server.start();
+            System.out.println("Shard node listening on 127.0.0.1:" + server.getPort());
+            server.awaitShutdown();
+        } catch (IOException e) {
+            System.err.println("Shard node failed: " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        saveAndExit();
+    }
+    
+    private static void runCoordinator(List<String> nodes) {
+        try (ClusterCoordinator cluster = new ClusterCoordinator(nodes)) {
+            System.out.println("Coordinating " + nodes.size() + " shard nodes: " + nodes);
+            boolean running = true;
+            while (running) {
+                displayMenu();
+                System.out.println("(6. Add Node)");
+                
+                try {
+                    int choice = Integer.parseInt(scanner.nextLine());
+                    switch (choice) {
+                        case 1:
+                            System.out.print("Enter Intersection ID: ");
+                            String id = scanner.nextLine();
+                            System.out.print("Enter Location: ");
+                            String location = scanner.nextLine();
+                            System.out.println(cluster.addIntersection(id, location)
+                                ? "Added intersection " + id + " on " + cluster.nodeFor(id)
+                                : "Intersection already exists: " + id);
+                            break;
+                        case 2:
+                            System.out.print("Enter Intersection ID to start: ");
+                            String started = scanner.nextLine();
+                            cluster.startIntersection(started);
+                            System.out.println("Intersection " + started + " started on " + cluster.nodeFor(started) + ".");
+                            break;
+                        case 3:
+                            System.out.print("Enter Intersection ID to stop: ");
+                            String stopped = scanner.nextLine();
+                            cluster.stopIntersection(stopped);
+                            System.out.println("Intersection " + stopped + " stopped.");
+                            break;
+                        case 4:
+                            cluster.generateReport();
+                            break;
+                        case 5:
+                            System.out.println("\nSaving and stopping every shard node...");
+                            cluster.shutdownAll();
+                            running = false;
+                            break;
+                        case 6:
+                            System.out.print("Enter node address (host:port): ");
+                            String node = scanner.nextLine().trim();
+                            System.out.println("Moved " + cluster.addNode(node) + " intersections to " + node);
+                            break;
+                        default:
+                            System.out.println("Invalid choice. Try again.");
+                    }
+                } catch (NumberFormatException e) {
+                    System.out.println("Please enter a valid number.");
+                } catch (IOException e) {
+                    System.err.println("Cluster error: " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Cannot reach cluster: " + e.getMessage());
+        }
+        scanner.close();
+    }
+    
     private static void displayMenu() {
         System.out.println("\n--- Menu ---");
         System.out.println("1. Add Intersection");
@@ -100,11 +269,20 @@ public class TrafficSignalApp {
     }
     
     private static void saveAndExit() {
-        System.out.println("\nStopping all intersections...");
-        manager.stopAll();
+        if (stateStream != null) {
+            try {
+                stateStream.close();
+            } catch (IOException e) {
+                System.err.println("Error closing state stream: " + e.getMessage());
+            }
+        }
         
+        System.out.println("\nStopping all intersections...");
         try {
-            Thread.sleep(2000); // Allow threads to finish
+            // Joins the simulator threads instead of hoping they finish in a fixed delay
+            if (!manager.shutdown(SHUTDOWN_TIMEOUT_MILLIS)) {
+                System.err.println("Some intersections did not stop within " + SHUTDOWN_TIMEOUT_MILLIS + " ms");
+            }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
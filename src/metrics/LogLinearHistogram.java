@@ -0,0 +1,142 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Lock-free histogram with 8 linear sub-buckets per power of two (<= 12.5% relative error).
+// Recording never allocates, and histograms with the same layout can be merged. A bounded
+// histogram keeps only the buckets up to its highest trackable value; larger values land in
+// its last bucket but still count towards the mean and max. A histogram with a coarser unit
+// buckets values in multiples of 2^unitBits, which needs far fewer buckets for the same range.
+public class LogLinearHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+    
+    private final int unitBits;
+    private final int bucketCount;
+    private final AtomicLongArray counts;
+    private final AtomicLong totalCount;
+    private final AtomicLong totalSum;
+    private final AtomicLong maxValue;
+    
+    public LogLinearHistogram() {
+        this(Long.MAX_VALUE);
+    }
+    
+    public LogLinearHistogram(long highestTrackableValue) {
+        this(highestTrackableValue, 0);
+    }
+    
+    public LogLinearHistogram(long highestTrackableValue, int unitBits) {
+        this.unitBits = unitBits;
+        this.bucketCount = bucketIndex(Math.max(highestTrackableValue, 0) >>> unitBits) + 1;
+        this.counts = new AtomicLongArray(bucketCount);
+        this.totalCount = new AtomicLong();
+        this.totalSum = new AtomicLong();
+        this.maxValue = new AtomicLong();
+    }
+    
+    public void record(long value) {
+        long v = Math.max(value, 0);
+        counts.incrementAndGet(Math.min(bucketIndex(v >>> unitBits), bucketCount - 1));
+        totalCount.incrementAndGet();
+        totalSum.addAndGet(v);
+        
+        long currentMax;
+        while (v > (currentMax = maxValue.get()) && !maxValue.compareAndSet(currentMax, v)) {
+            // retry until our value is published or a larger one wins
+        }
+    }
+    
+    public void merge(LogLinearHistogram other) {
+        if (other.bucketCount != bucketCount || other.unitBits != unitBits) {
+            throw new IllegalArgumentException("Histogram layouts differ: " + other.bucketCount + " buckets of 2^"
+                + other.unitBits + " vs " + bucketCount + " buckets of 2^" + unitBits);
+        }
+        for (int i = 0; i < bucketCount; i++) {
+            long count = other.counts.get(i);
+            if (count != 0) {
+                counts.addAndGet(i, count);
+            }
+        }
+        totalCount.addAndGet(other.totalCount.get());
+        totalSum.addAndGet(other.totalSum.get());
+        maxValue.accumulateAndGet(other.maxValue.get(), Math::max);
+    }
+    
+    // Not atomic with respect to concurrent records; reuse a histogram only once it has gone quiet
+    public void reset() {
+        for (int i = 0; i < bucketCount; i++) {
+            counts.set(i, 0);
+        }
+        totalCount.set(0);
+        totalSum.set(0);
+        maxValue.set(0);
+    }
+    
+    public long getCount() {
+        return totalCount.get();
+    }
+    
+    public long getMax() {
+        return maxValue.get();
+    }
+    
+    public double getMean() {
+        long count = totalCount.get();
+        return count == 0 ? 0 : (double) totalSum.get() / count;
+    }
+    
+    // Upper bound of the bucket holding the given percentile (0-100), capped at the recorded max
+    public long getPercentile(double percentile) {
+        long count = totalCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        
+        long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(scaledUpperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+    
+    private long scaledUpperBound(int index) {
+        long upper = bucketUpperBound(index);
+        return upper >= Long.MAX_VALUE >>> unitBits ? Long.MAX_VALUE : ((upper + 1) << unitBits) - 1;
+    }
+    
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+    
+    static long bucketLowerBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int subBucket = index % SUB_BUCKETS;
+        return (1L << exponent) | ((long) subBucket << (exponent - SUB_BUCKET_BITS));
+    }
+    
+    static long bucketUpperBound(int index) {
+        return index + 1 < BUCKET_COUNT ? bucketLowerBound(index + 1) - 1 : Long.MAX_VALUE;
+    }
+    
+    @Override
+    public String toString() {
+        return "count=" + getCount() + " mean=" + String.format("%.1f", getMean())
+            + " p50=" + getPercentile(50) + " p90=" + getPercentile(90)
+            + " p99=" + getPercentile(99) + " max=" + getMax();
+    }
+}
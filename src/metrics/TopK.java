@@ -0,0 +1,114 @@
+package metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+// The K items with the highest counts, for counts that only ever grow. Because a count
+// never drops, an item that is not a leader can only become one by passing the lowest
+// leader, so most offers return after one volatile read without scanning or locking.
+// Leaders are ranked on demand by reading their current counts: O(K log K).
+public class TopK<T> {
+    private final int k;
+    private final ToLongFunction<T> counter;
+    private volatile Object[] leaders;
+    // Lowest leader count when last computed; leaders' counts can only have grown since
+    private volatile long threshold;
+    
+    public TopK(int k, ToLongFunction<T> counter) {
+        this.k = k;
+        this.counter = counter;
+        this.leaders = new Object[0];
+        this.threshold = k > 0 ? -1 : Long.MAX_VALUE;
+    }
+    
+    public void offer(T item, long count) {
+        if (count <= threshold || isLeader(leaders, item)) {
+            return;
+        }
+        
+        synchronized (this) {
+            Object[] current = leaders;
+            if (isLeader(current, item)) {
+                return;
+            }
+            if (current.length < k) {
+                Object[] grown = Arrays.copyOf(current, current.length + 1);
+                grown[current.length] = item;
+                leaders = grown;
+                if (grown.length == k) {
+                    threshold = count(grown[lowest(grown)]);
+                }
+                return;
+            }
+            
+            int lowest = lowest(current);
+            if (count > count(current[lowest])) {
+                Object[] replaced = current.clone();
+                replaced[lowest] = item;
+                leaders = replaced;
+                current = replaced;
+                lowest = lowest(current);
+            }
+            threshold = count(current[lowest]);
+        }
+    }
+    
+    // For an item that is going away altogether; the freed place goes to the next offer, so
+    // callers re-offer the remaining candidates to restore the true leaders
+    public synchronized boolean remove(T item) {
+        Object[] current = leaders;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == item) {
+                Object[] shrunk = new Object[current.length - 1];
+                System.arraycopy(current, 0, shrunk, 0, i);
+                System.arraycopy(current, i + 1, shrunk, i, shrunk.length - i);
+                leaders = shrunk;
+                threshold = -1;
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    // Current leaders, busiest first
+    @SuppressWarnings("unchecked")
+    public List<T> ranked() {
+        Object[] current = leaders;
+        List<T> items = new ArrayList<>(current.length);
+        for (Object item : current) {
+            items.add((T) item);
+        }
+        items.sort(Comparator.comparingLong(counter).reversed());
+        return items;
+    }
+    
+    private static boolean isLeader(Object[] current, Object item) {
+        for (Object leader : current) {
+            if (leader == item) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private int lowest(Object[] current) {
+        int lowest = 0;
+        long lowestCount = count(current[0]);
+        for (int i = 1; i < current.length; i++) {
+            long count = count(current[i]);
+            if (count < lowestCount) {
+                lowest = i;
+                lowestCount = count;
+            }
+        }
+        return lowest;
+    }
+    
+    @SuppressWarnings("unchecked")
+    private long count(Object item) {
+        return counter.applyAsLong((T) item);
+    }
+}
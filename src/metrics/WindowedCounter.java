@@ -0,0 +1,74 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Event count over a sliding window, kept in a ring of time buckets. Each slot packs the
+// bucket's epoch (low 24 bits) with its count (40 bits) into one long, so rolling a slot
+// over to a new bucket and counting into it are the same CAS: exact, lock-free and
+// allocation-free. Events older than the slot's current bucket are dropped.
+public class WindowedCounter {
+    private static final int COUNT_BITS = 40;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final long EPOCH_MASK = (1L << (64 - COUNT_BITS)) - 1;
+    private static final long EPOCH_HALF = (EPOCH_MASK + 1) >>> 1;
+    
+    private final long bucketMillis;
+    private final int buckets;
+    private final AtomicLongArray slots;
+    
+    public WindowedCounter(long windowMillis, int buckets) {
+        this.buckets = Math.max(buckets, 1);
+        this.bucketMillis = Math.max(windowMillis / this.buckets, 1);
+        this.slots = new AtomicLongArray(this.buckets);
+    }
+    
+    public void increment(long time) {
+        add(time, 1);
+    }
+    
+    public void add(long time, long count) {
+        long epoch = Math.floorDiv(time, bucketMillis);
+        int index = (int) Math.floorMod(epoch, (long) buckets);
+        long tag = epoch & EPOCH_MASK;
+        
+        while (true) {
+            long current = slots.get(index);
+            long currentTag = current >>> COUNT_BITS;
+            long next;
+            if (currentTag == tag) {
+                next = current + count;
+            } else if (((currentTag - tag) & EPOCH_MASK) < EPOCH_HALF) {
+                return; // the slot already holds a newer bucket
+            } else {
+                next = (tag << COUNT_BITS) | (count & COUNT_MASK);
+            }
+            if (slots.compareAndSet(index, current, next)) {
+                return;
+            }
+        }
+    }
+    
+    // Events in the window ending at now, including the current partial bucket
+    public long sum(long now) {
+        long epoch = Math.floorDiv(now, bucketMillis);
+        long total = 0;
+        for (int i = 0; i < buckets; i++) {
+            long bucket = epoch - i;
+            long slot = slots.get((int) Math.floorMod(bucket, (long) buckets));
+            if ((slot >>> COUNT_BITS) == (bucket & EPOCH_MASK)) {
+                total += slot & COUNT_MASK;
+            }
+        }
+        return total;
+    }
+    
+    // Events per minute over the full buckets plus the elapsed part of the current one
+    public double ratePerMinute(long now) {
+        long covered = (buckets - 1) * bucketMillis + Math.floorMod(now, bucketMillis) + 1;
+        return sum(now) * 60000.0 / covered;
+    }
+    
+    public long getWindowMillis() {
+        return bucketMillis * buckets;
+    }
+}
@@ -0,0 +1,92 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Value distribution over a sliding window: a ring of bounded log-linear histograms, one
+// per time bucket. The first record into a new bucket claims its slot with a CAS on the
+// slot's epoch and clears the histogram left by the bucket one window earlier; a record
+// racing that rotation may be lost. A slot's histogram is created by the first record that
+// reaches it, so a window that is never used costs no histograms; after that, recording
+// never allocates.
+public class WindowedHistogram {
+    private static final long UNUSED = Long.MIN_VALUE;
+    
+    private final long bucketMillis;
+    private final int buckets;
+    private final long highestTrackableValue;
+    private final int unitBits;
+    private final AtomicReferenceArray<LogLinearHistogram> slots;
+    private final AtomicLongArray epochs;
+    
+    public WindowedHistogram(long windowMillis, int buckets, long highestTrackableValue) {
+        this(windowMillis, buckets, highestTrackableValue, 0);
+    }
+    
+    // Buckets values in multiples of 2^unitBits, see LogLinearHistogram
+    public WindowedHistogram(long windowMillis, int buckets, long highestTrackableValue, int unitBits) {
+        this.buckets = Math.max(buckets, 1);
+        this.bucketMillis = Math.max(windowMillis / this.buckets, 1);
+        this.highestTrackableValue = highestTrackableValue;
+        this.unitBits = unitBits;
+        this.slots = new AtomicReferenceArray<>(this.buckets);
+        this.epochs = new AtomicLongArray(this.buckets);
+        for (int i = 0; i < this.buckets; i++) {
+            epochs.set(i, UNUSED);
+        }
+    }
+    
+    public void record(long time, long value) {
+        long epoch = Math.floorDiv(time, bucketMillis);
+        int index = (int) Math.floorMod(epoch, (long) buckets);
+        
+        long slotEpoch;
+        while ((slotEpoch = epochs.get(index)) != epoch) {
+            if (slotEpoch > epoch) {
+                return; // older than the bucket now held by the slot
+            }
+            if (epochs.compareAndSet(index, slotEpoch, epoch)) {
+                LogLinearHistogram previous = slots.get(index);
+                if (previous != null) {
+                    previous.reset();
+                }
+                break;
+            }
+        }
+        
+        LogLinearHistogram slot = slots.get(index);
+        if (slot == null) {
+            LogLinearHistogram created = newHistogram();
+            slot = slots.compareAndSet(index, null, created) ? created : slots.get(index);
+        }
+        slot.record(value);
+    }
+    
+    // Adds the window ending at now into target, which must come from newHistogram()
+    public void mergeInto(LogLinearHistogram target, long now) {
+        long epoch = Math.floorDiv(now, bucketMillis);
+        for (int i = 0; i < buckets; i++) {
+            long bucket = epoch - i;
+            int index = (int) Math.floorMod(bucket, (long) buckets);
+            LogLinearHistogram slot = slots.get(index);
+            if (slot != null && epochs.get(index) == bucket) {
+                target.merge(slot);
+            }
+        }
+    }
+    
+    public LogLinearHistogram snapshot(long now) {
+        LogLinearHistogram snapshot = newHistogram();
+        mergeInto(snapshot, now);
+        return snapshot;
+    }
+    
+    // An empty histogram with the same layout as the window's buckets
+    public LogLinearHistogram newHistogram() {
+        return new LogLinearHistogram(highestTrackableValue, unitBits);
+    }
+    
+    public long getWindowMillis() {
+        return bucketMillis * buckets;
+    }
+}
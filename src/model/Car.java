@@ -3,11 +3,15 @@ package model;
 public class Car extends Vehicle {
     
     public Car(String vehicleId) {
-        super(vehicleId, "CAR");
+        super(vehicleId, VehicleType.CAR);
+    }
+    
+    public Car(String vehicleId, long entryTime) {
+        super(vehicleId, VehicleType.CAR, entryTime);
     }
     
     @Override
     public int getPriority() {
-        return 1;
+        return VehicleType.CAR.getPriority();
     }
 }
@@ -0,0 +1,27 @@
+package model;
+
+public enum Direction {
+    NORTH("N"),
+    SOUTH("S"),
+    EAST("E"),
+    WEST("W");
+    
+    private final String suffix;
+    
+    Direction(String suffix) {
+        this.suffix = suffix;
+    }
+    
+    public String getSuffix() {
+        return suffix;
+    }
+    
+    // Signals are created in declaration order, so the ordinal is the signal index
+    public int getSignalIndex() {
+        return ordinal();
+    }
+    
+    public boolean isNorthSouth() {
+        return this == NORTH || this == SOUTH;
+    }
+}
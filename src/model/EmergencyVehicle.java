@@ -3,11 +3,15 @@ package model;
 public class EmergencyVehicle extends Vehicle {
     
     public EmergencyVehicle(String vehicleId) {
-        super(vehicleId, "EMERGENCY");
+        super(vehicleId, VehicleType.EMERGENCY);
+    }
+    
+    public EmergencyVehicle(String vehicleId, long entryTime) {
+        super(vehicleId, VehicleType.EMERGENCY, entryTime);
     }
     
     @Override
     public int getPriority() {
-        return 10;
+        return VehicleType.EMERGENCY.getPriority();
     }
 }
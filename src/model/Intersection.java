@@ -1,27 +1,89 @@
 package model;
 
+import util.CSVWriter;
+import util.Clock;
+
+import java.io.IOException;
+
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
 
 public class Intersection {
+    private static final SignalState[] STATES = SignalState.values();
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int TYPES = VehicleType.values().length;
+    private static final int OPTIMISTIC_ATTEMPTS = 8;
+    
     private String intersectionId;
     private String location;
     private List<TrafficSignal> signals;
-    private int vehicleCount;
+    // Set when signal state lives in a shared store; signals is then a list of flyweight views
+    private final SignalStore store;
+    private final int firstSlot;
+    // Striped counters, one per approach and vehicle type: concurrent arrivals update different
+    // cells instead of one monitor, and each arrival is a single increment, so every total
+    // derived from one read of the cells counts it either everywhere or nowhere
+    private final LongAdder[] counts;
+    private final Clock clock;
+    private volatile IntersectionListener listener;
+    private int index;
+    private final AtomicBoolean dirty;
+    // Seqlock over the signals: writers update them inside one write section and bump the
+    // version; readers copy them optimistically and retry only if a write overlapped
+    private final StampedLock signalLock;
+    private long signalVersion;
+    private volatile SignalSnapshot cachedSnapshot;
+    // Total carried over from disk, which stores no per-direction or per-type breakdown
+    private volatile long restoredCount;
     
     public Intersection(String intersectionId, String location) {
+        this(intersectionId, location, Clock.SYSTEM);
+    }
+    
+    public Intersection(String intersectionId, String location, Clock clock) {
+        this(intersectionId, location, clock, null);
+    }
+    
+    // A non-null store keeps this intersection's signals in four of its slots instead of in
+    // TrafficSignal objects
+    public Intersection(String intersectionId, String location, Clock clock, SignalStore store) {
         this.intersectionId = intersectionId;
         this.location = location;
-        this.signals = new ArrayList<>();
-        this.vehicleCount = 0;
+        this.clock = clock;
+        this.store = store;
+        this.firstSlot = store != null
+            ? store.allocate(DIRECTIONS.length, SignalState.RED, SignalState.RED.getDefaultDuration(), clock.currentTimeMillis())
+            : -1;
+        this.counts = newCounters(DIRECTIONS.length * TYPES);
+        this.dirty = new AtomicBoolean();
+        this.signalLock = new StampedLock();
         initializeSignals();
     }
     
+    private static LongAdder[] newCounters(int size) {
+        LongAdder[] counters = new LongAdder[size];
+        for (int i = 0; i < size; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+    
     private void initializeSignals() {
-        signals.add(new TrafficSignal(intersectionId + "_N", "NORTH"));
-        signals.add(new TrafficSignal(intersectionId + "_S", "SOUTH"));
-        signals.add(new TrafficSignal(intersectionId + "_E", "EAST"));
-        signals.add(new TrafficSignal(intersectionId + "_W", "WEST"));
+        if (store != null) {
+            signals = new StoredSignals();
+            return;
+        }
+        signals = new ArrayList<>(DIRECTIONS.length);
+        for (Direction direction : DIRECTIONS) {
+            TrafficSignal signal = new TrafficSignal(intersectionId + "_" + direction.getSuffix(), direction.name(), clock);
+            signal.attach(this, direction.getSignalIndex());
+            signals.add(signal);
+        }
     }
     
     public String getIntersectionId() {
@@ -32,24 +94,264 @@ public class Intersection {
         return location;
     }
     
+    // Dense index assigned by the owning manager; used by compact on-disk formats
+    public int getIndex() {
+        return index;
+    }
+    
+    public void setIndex(int index) {
+        this.index = index;
+    }
+    
+    public void setListener(IntersectionListener listener) {
+        this.listener = listener;
+    }
+    
+    // True only for the call that flips the intersection from clean to dirty
+    public boolean markDirty() {
+        return !dirty.get() && dirty.compareAndSet(false, true);
+    }
+    
+    public void clearDirty() {
+        dirty.set(false);
+    }
+    
+    // Switches every signal in one write section; states are indexed like getSignals(). The
+    // previous states are packed two bits each, so the write path allocates nothing.
+    public void changeSignalStates(SignalState[] states) {
+        long time = clock.currentTimeMillis();
+        int previous = 0;
+        long stamp = signalLock.writeLock();
+        try {
+            for (int i = 0; i < states.length; i++) {
+                previous |= applySignal(i, states[i], time).ordinal() << (i * 2);
+            }
+            signalVersion++;
+        } finally {
+            signalLock.unlockWrite(stamp);
+        }
+        
+        for (int i = 0; i < states.length; i++) {
+            SignalState oldState = STATES[(previous >>> (i * 2)) & 3];
+            if (oldState != states[i]) {
+                signalChanged(i, oldState, states[i], time);
+            }
+        }
+    }
+    
+    void changeSignalState(int signalIndex, SignalState newState) {
+        long time = clock.currentTimeMillis();
+        SignalState oldState;
+        long stamp = signalLock.writeLock();
+        try {
+            oldState = applySignal(signalIndex, newState, time);
+            signalVersion++;
+        } finally {
+            signalLock.unlockWrite(stamp);
+        }
+        
+        if (oldState != newState) {
+            signalChanged(signalIndex, oldState, newState, time);
+        }
+    }
+    
+    void restoreSignal(int signalIndex, SignalState state, int duration, long lastChangeTime) {
+        long stamp = signalLock.writeLock();
+        try {
+            if (store != null) {
+                store.set(firstSlot + signalIndex, state, duration, lastChangeTime);
+            } else {
+                signals.get(signalIndex).set(state, duration, lastChangeTime);
+            }
+            signalVersion++;
+        } finally {
+            signalLock.unlockWrite(stamp);
+        }
+    }
+    
+    // Callers hold the write lock
+    private SignalState applySignal(int signalIndex, SignalState newState, long time) {
+        if (store != null) {
+            return store.apply(firstSlot + signalIndex, newState, time);
+        }
+        return signals.get(signalIndex).apply(newState, time);
+    }
+    
+    // Current state of one signal without building a view of it
+    public SignalState getSignalState(int signalIndex) {
+        if (store != null) {
+            return store.getState(firstSlot + signalIndex);
+        }
+        return signals.get(signalIndex).getCurrentState();
+    }
+    
+    // Consistent view of every signal without blocking the controller. Readers share the
+    // snapshot of the current version, so only the first read after a change allocates.
+    public SignalSnapshot snapshotSignals() {
+        SignalSnapshot cached = cachedSnapshot;
+        long stamp = signalLock.tryOptimisticRead();
+        if (cached != null && stamp != 0 && cached.getVersion() == signalVersion && signalLock.validate(stamp)) {
+            return cached;
+        }
+        
+        int size = signals.size();
+        SignalState[] states = new SignalState[size];
+        int[] durations = new int[size];
+        long[] lastChangeTimes = new long[size];
+        for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+            stamp = signalLock.tryOptimisticRead();
+            if (stamp == 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            long version = signalVersion;
+            copySignals(states, durations, lastChangeTimes);
+            if (signalLock.validate(stamp)) {
+                return publish(new SignalSnapshot(version, states, durations, lastChangeTimes));
+            }
+        }
+        
+        // Writers kept overlapping: wait for the current one instead of spinning further
+        stamp = signalLock.readLock();
+        try {
+            copySignals(states, durations, lastChangeTimes);
+            return publish(new SignalSnapshot(signalVersion, states, durations, lastChangeTimes));
+        } finally {
+            signalLock.unlockRead(stamp);
+        }
+    }
+    
+    private void copySignals(SignalState[] states, int[] durations, long[] lastChangeTimes) {
+        if (store != null) {
+            for (int i = 0; i < states.length; i++) {
+                states[i] = store.getState(firstSlot + i);
+                durations[i] = store.getDuration(firstSlot + i);
+                lastChangeTimes[i] = store.getLastChangeTime(firstSlot + i);
+            }
+            return;
+        }
+        for (int i = 0; i < states.length; i++) {
+            TrafficSignal signal = signals.get(i);
+            states[i] = signal.getCurrentState();
+            durations[i] = signal.getDuration();
+            lastChangeTimes[i] = signal.getLastChangeTime();
+        }
+    }
+    
+    private SignalSnapshot publish(SignalSnapshot snapshot) {
+        SignalSnapshot cached = cachedSnapshot;
+        if (cached == null || cached.getVersion() < snapshot.getVersion()) {
+            cachedSnapshot = snapshot;
+        }
+        return snapshot;
+    }
+    
+    // Signal rows written from one snapshot, so a saved intersection is never mid-transition
+    public void writeSignalsCSV(CSVWriter out) throws IOException {
+        SignalSnapshot snapshot = snapshotSignals();
+        for (TrafficSignal signal : signals) {
+            signal.writeCSV(out, snapshot);
+        }
+    }
+    
+    void signalChanged(int signalIndex, SignalState oldState, SignalState newState, long time) {
+        IntersectionListener current = listener;
+        if (current != null) {
+            current.onSignalChange(this, signalIndex, oldState, newState, time);
+        }
+    }
+    
+    public Clock getClock() {
+        return clock;
+    }
+    
     public List<TrafficSignal> getSignals() {
         return signals;
     }
     
-    public synchronized void incrementVehicleCount() {
-        vehicleCount++;
+    public void incrementVehicleCount(Direction approach, VehicleType type) {
+        incrementVehicleCount(approach, type, clock.currentTimeMillis());
     }
     
-    public int getVehicleCount() {
-        return vehicleCount;
+    // Arrival stamped with the vehicle's entry time, which listeners measure waits from
+    public void incrementVehicleCount(Direction approach, VehicleType type, long entryTime) {
+        counts[approach.ordinal() * TYPES + type.ordinal()].increment();
+        
+        IntersectionListener current = listener;
+        if (current != null) {
+            current.onVehicleArrival(this, approach, type, entryTime);
+        }
+    }
+    
+    // Sets the persisted total without replaying arrivals or notifying the listener
+    public void restoreVehicleCount(long count) {
+        this.restoredCount = count;
+    }
+    
+    // Restored total plus every arrival since
+    public long getVehicleCount() {
+        long total = restoredCount;
+        for (LongAdder counter : counts) {
+            total += counter.sum();
+        }
+        return total;
+    }
+    
+    public long getVehicleCount(Direction approach) {
+        long total = 0;
+        for (int type = 0; type < TYPES; type++) {
+            total += counts[approach.ordinal() * TYPES + type].sum();
+        }
+        return total;
+    }
+    
+    public long getVehicleCount(VehicleType type) {
+        long total = 0;
+        for (int direction = 0; direction < DIRECTIONS.length; direction++) {
+            total += counts[direction * TYPES + type.ordinal()].sum();
+        }
+        return total;
+    }
+    
+    // Reads each cell once and derives both breakdowns from those reads, so the per-direction
+    // and per-type counts always add up to the same total. No locks; no writer is ever blocked.
+    public VehicleCountSnapshot snapshotCounts() {
+        long[] byDirection = new long[DIRECTIONS.length];
+        long[] byType = new long[TYPES];
+        for (int direction = 0; direction < DIRECTIONS.length; direction++) {
+            for (int type = 0; type < TYPES; type++) {
+                long count = counts[direction * TYPES + type].sum();
+                byDirection[direction] += count;
+                byType[type] += count;
+            }
+        }
+        return new VehicleCountSnapshot(byDirection, byType, restoredCount);
     }
     
     public String toCSV() {
-        return intersectionId + "," + location + "," + vehicleCount;
+        return intersectionId + "," + location + "," + getVehicleCount();
+    }
+    
+    public void writeCSV(CSVWriter out) throws IOException {
+        out.field(intersectionId).field(location).field(getVehicleCount()).endRecord();
+    }
+    
+    // Fixed-size list of views over the store slots; each get() builds a fresh flyweight
+    private class StoredSignals extends AbstractList<TrafficSignal> {
+        @Override
+        public TrafficSignal get(int signalIndex) {
+            Objects.checkIndex(signalIndex, DIRECTIONS.length);
+            return new StoredSignal(Intersection.this, signalIndex, store, firstSlot + signalIndex);
+        }
+        
+        @Override
+        public int size() {
+            return DIRECTIONS.length;
+        }
     }
     
     @Override
     public String toString() {
-        return "Intersection[" + intersectionId + "] at " + location + " - Vehicles: " + vehicleCount;
+        return "Intersection[" + intersectionId + "] at " + location + " - Vehicles: " + getVehicleCount();
     }
 }
@@ -0,0 +1,8 @@
+package model;
+
+public interface IntersectionListener {
+    
+    void onSignalChange(Intersection intersection, int signalIndex, SignalState oldState, SignalState newState, long time);
+    
+    void onVehicleArrival(Intersection intersection, Direction approach, VehicleType type, long time);
+}
@@ -0,0 +1,38 @@
+package model;
+
+// A vehicle as primitives: the ID is the intersection's dense index and a per-intersection
+// sequence number in one long, and the type and approach share one details code; the entry
+// time travels as a plain long. The arrival path passes these instead of Vehicle objects.
+public final class PackedVehicle {
+    private static final int SEQUENCE_BITS = 40;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final VehicleType[] TYPES = VehicleType.values();
+    private static final Direction[] DIRECTIONS = Direction.values();
+    
+    private PackedVehicle() {
+    }
+    
+    public static long id(int intersectionIndex, long sequence) {
+        return ((long) intersectionIndex << SEQUENCE_BITS) | (sequence & SEQUENCE_MASK);
+    }
+    
+    public static int intersectionIndex(long id) {
+        return (int) (id >>> SEQUENCE_BITS);
+    }
+    
+    public static long sequence(long id) {
+        return id & SEQUENCE_MASK;
+    }
+    
+    public static long details(VehicleType type, Direction approach) {
+        return ((long) type.ordinal() << 8) | approach.ordinal();
+    }
+    
+    public static VehicleType type(long details) {
+        return TYPES[(int) (details >>> 8)];
+    }
+    
+    public static Direction approach(long details) {
+        return DIRECTIONS[(int) (details & 0xFF)];
+    }
+}
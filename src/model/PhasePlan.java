@@ -0,0 +1,161 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+// A signal cycle: each phase greens a set of approaches for its green time, then yellows the
+// approaches the next phase stops and optionally holds an all-red clearance. With one signal
+// per approach, a phase that greens a single approach is a protected phase: its turning
+// traffic moves with no opposing flow. Plans are immutable and compile once, on construction,
+// into the PhaseTable that controllers walk.
+public class PhasePlan {
+    public static final PhasePlan DEFAULT = new PhasePlan("DEFAULT", Arrays.asList(
+        new Phase(EnumSet.of(Direction.NORTH, Direction.SOUTH),
+                  SignalState.GREEN.getDefaultDuration(), SignalState.YELLOW.getDefaultDuration(), 0),
+        new Phase(EnumSet.of(Direction.EAST, Direction.WEST),
+                  SignalState.GREEN.getDefaultDuration(), SignalState.YELLOW.getDefaultDuration(), 0)));
+    
+    private final String planId;
+    private final List<Phase> phases;
+    private final PhaseTable table;
+    
+    public PhasePlan(String planId, List<Phase> phases) {
+        if (phases.isEmpty()) {
+            throw new IllegalArgumentException("Plan " + planId + " has no phases");
+        }
+        int served = 0;
+        for (Phase phase : phases) {
+            served |= phase.getGreenMask();
+        }
+        if (served != (1 << Direction.values().length) - 1) {
+            throw new IllegalArgumentException("Plan " + planId + " never greens every approach");
+        }
+        this.planId = planId;
+        this.phases = Collections.unmodifiableList(new ArrayList<>(phases));
+        this.table = PhaseTable.compile(this.phases);
+    }
+    
+    public String getPlanId() {
+        return planId;
+    }
+    
+    public List<Phase> getPhases() {
+        return phases;
+    }
+    
+    public PhaseTable getTable() {
+        return table;
+    }
+    
+    // Total cycle length in seconds, clearance intervals included
+    public int getCycleSeconds() {
+        int seconds = 0;
+        for (int i = 0; i < phases.size(); i++) {
+            Phase phase = phases.get(i);
+            seconds += phase.getGreenSeconds();
+            if (phase.stopsBefore(phases.get((i + 1) % phases.size()))) {
+                seconds += phase.getYellowSeconds() + phase.getAllRedSeconds();
+            }
+        }
+        return seconds;
+    }
+    
+    @Override
+    public String toString() {
+        return "PhasePlan[" + planId + "] " + phases + " (" + getCycleSeconds() + "s cycle)";
+    }
+    
+    public static class Phase {
+        private final int greenMask;
+        private final int greenSeconds;
+        private final int yellowSeconds;
+        private final int allRedSeconds;
+        
+        public Phase(Set<Direction> greens, int greenSeconds, int yellowSeconds, int allRedSeconds) {
+            if (greens.isEmpty() || greenSeconds <= 0 || yellowSeconds <= 0 || allRedSeconds < 0) {
+                throw new IllegalArgumentException("A phase needs green approaches, positive green and yellow times"
+                    + " and a non-negative all-red time");
+            }
+            int mask = 0;
+            for (Direction direction : greens) {
+                mask |= 1 << direction.getSignalIndex();
+            }
+            this.greenMask = mask;
+            this.greenSeconds = greenSeconds;
+            this.yellowSeconds = yellowSeconds;
+            this.allRedSeconds = allRedSeconds;
+        }
+        
+        private Phase(int greenMask, int greenSeconds, int yellowSeconds, int allRedSeconds) {
+            if (greenSeconds <= 0) {
+                throw new IllegalArgumentException("Green time must be positive");
+            }
+            this.greenMask = greenMask;
+            this.greenSeconds = greenSeconds;
+            this.yellowSeconds = yellowSeconds;
+            this.allRedSeconds = allRedSeconds;
+        }
+        
+        // Bit per signal index
+        public int getGreenMask() {
+            return greenMask;
+        }
+        
+        public boolean isGreen(Direction direction) {
+            return (greenMask & (1 << direction.getSignalIndex())) != 0;
+        }
+        
+        public int getGreenSeconds() {
+            return greenSeconds;
+        }
+        
+        public int getYellowSeconds() {
+            return yellowSeconds;
+        }
+        
+        public int getAllRedSeconds() {
+            return allRedSeconds;
+        }
+        
+        // Same approaches and clearance, different green time
+        public Phase withGreenSeconds(int seconds) {
+            return new Phase(greenMask, seconds, yellowSeconds, allRedSeconds);
+        }
+        
+        // True if some approach green now is not green in the next phase and must clear
+        boolean stopsBefore(Phase next) {
+            return (greenMask & ~next.greenMask) != 0;
+        }
+        
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Phase)) {
+                return false;
+            }
+            Phase phase = (Phase) other;
+            return greenMask == phase.greenMask && greenSeconds == phase.greenSeconds
+                && yellowSeconds == phase.yellowSeconds && allRedSeconds == phase.allRedSeconds;
+        }
+        
+        @Override
+        public int hashCode() {
+            return ((greenMask * 31 + greenSeconds) * 31 + yellowSeconds) * 31 + allRedSeconds;
+        }
+        
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            for (Direction direction : Direction.values()) {
+                if (isGreen(direction)) {
+                    builder.append(direction.getSuffix());
+                }
+            }
+            return builder.append(' ').append(greenSeconds).append('/').append(yellowSeconds).append('/')
+                .append(allRedSeconds).toString();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// A phase plan flattened into steps: the signal states to apply, how long to hold them and
+// which step follows. Steps [0, cycleLength) are the cycle. After them come the preemption
+// steps: a cut step per cycle step that has greens, turning them yellow, and a shared all-red
+// clearance step when the plan uses all-red. A controller tick only indexes these arrays.
+public class PhaseTable {
+    // next() of a preemption step: continue with the green of the preempting approach
+    public static final int PREEMPTION_TARGET = -1;
+    public static final int NONE = -1;
+    
+    private final SignalState[][] states;
+    private final long[] holdMillis;
+    private final int[] next;
+    private final int[] phase;
+    private final int[] greenMask;
+    private final int[] yellowMask;
+    private final boolean[] greenStep;
+    private final int[] cutStep;
+    private final int[] targetStep;
+    private final int clearanceStep;
+    private final int cycleLength;
+    
+    private PhaseTable(List<SignalState[]> states, List<long[]> steps, int[] targetStep, int clearanceStep, int cycleLength) {
+        int size = states.size();
+        this.states = states.toArray(new SignalState[size][]);
+        this.holdMillis = new long[size];
+        this.next = new int[size];
+        this.phase = new int[size];
+        this.greenMask = new int[size];
+        this.yellowMask = new int[size];
+        this.greenStep = new boolean[size];
+        this.cutStep = new int[size];
+        for (int i = 0; i < size; i++) {
+            long[] step = steps.get(i);
+            holdMillis[i] = step[0];
+            next[i] = (int) step[1];
+            phase[i] = (int) step[2];
+            greenStep[i] = step[3] != 0;
+            cutStep[i] = (int) step[4];
+            for (int signal = 0; signal < this.states[i].length; signal++) {
+                if (this.states[i][signal] == SignalState.GREEN) {
+                    greenMask[i] |= 1 << signal;
+                } else if (this.states[i][signal] == SignalState.YELLOW) {
+                    yellowMask[i] |= 1 << signal;
+                }
+            }
+        }
+        this.targetStep = targetStep;
+        this.clearanceStep = clearanceStep;
+        this.cycleLength = cycleLength;
+    }
+    
+    static PhaseTable compile(List<PhasePlan.Phase> phases) {
+        int signals = Direction.values().length;
+        List<SignalState[]> states = new ArrayList<>();
+        // Per step: hold, next, phase, green step flag, cut step
+        List<long[]> steps = new ArrayList<>();
+        int[] targetStep = new int[signals];
+        Arrays.fill(targetStep, NONE);
+        int maxAllRed = 0;
+        
+        for (int p = 0; p < phases.size(); p++) {
+            PhasePlan.Phase current = phases.get(p);
+            PhasePlan.Phase following = phases.get((p + 1) % phases.size());
+            int greens = current.getGreenMask();
+            int stays = greens & following.getGreenMask();
+            
+            for (int signal = 0; signal < signals; signal++) {
+                if ((greens & (1 << signal)) != 0 && targetStep[signal] == NONE) {
+                    targetStep[signal] = states.size();
+                }
+            }
+            states.add(row(signals, greens, 0));
+            steps.add(new long[] {current.getGreenSeconds() * 1000L, 0, p, 1, NONE});
+            
+            if (current.stopsBefore(following)) {
+                states.add(row(signals, stays, greens & ~stays));
+                steps.add(new long[] {current.getYellowSeconds() * 1000L, 0, p, 0, NONE});
+                if (current.getAllRedSeconds() > 0) {
+                    states.add(row(signals, stays, 0));
+                    steps.add(new long[] {current.getAllRedSeconds() * 1000L, 0, p, 0, NONE});
+                }
+            }
+            maxAllRed = Math.max(maxAllRed, current.getAllRedSeconds());
+        }
+        
+        int cycleLength = states.size();
+        for (int i = 0; i < cycleLength; i++) {
+            steps.get(i)[1] = (i + 1) % cycleLength;
+        }
+        
+        // Preemption: yellow every green of the step being cut, then all-red if the plan uses it
+        int clearance = NONE;
+        if (maxAllRed > 0) {
+            clearance = cycleLength;
+            states.add(row(signals, 0, 0));
+            steps.add(new long[] {maxAllRed * 1000L, PREEMPTION_TARGET, NONE, 0, NONE});
+        }
+        for (int i = 0; i < cycleLength; i++) {
+            SignalState[] cycleRow = states.get(i);
+            int greens = 0;
+            int yellows = 0;
+            for (int signal = 0; signal < signals; signal++) {
+                if (cycleRow[signal] == SignalState.GREEN) {
+                    greens |= 1 << signal;
+                } else if (cycleRow[signal] == SignalState.YELLOW) {
+                    yellows |= 1 << signal;
+                }
+            }
+            if (greens == 0) {
+                continue;
+            }
+            int p = (int) steps.get(i)[2];
+            steps.get(i)[4] = states.size();
+            states.add(row(signals, 0, greens | yellows));
+            steps.add(new long[] {phases.get(p).getYellowSeconds() * 1000L,
+                                  clearance == NONE ? PREEMPTION_TARGET : clearance, p, 0, NONE});
+        }
+        return new PhaseTable(states, steps, targetStep, clearance, cycleLength);
+    }
+    
+    private static SignalState[] row(int signals, int greens, int yellows) {
+        SignalState[] row = new SignalState[signals];
+        for (int signal = 0; signal < signals; signal++) {
+            int bit = 1 << signal;
+            row[signal] = (greens & bit) != 0 ? SignalState.GREEN : (yellows & bit) != 0 ? SignalState.YELLOW : SignalState.RED;
+        }
+        return row;
+    }
+    
+    // Shared rows; callers must not modify them
+    public SignalState[] getStates(int step) {
+        return states[step];
+    }
+    
+    public long getHoldMillis(int step) {
+        return holdMillis[step];
+    }
+    
+    public int getNext(int step) {
+        return next[step];
+    }
+    
+    // Index of the plan phase the step belongs to, or NONE for the shared clearance step
+    public int getPhase(int step) {
+        return phase[step];
+    }
+    
+    // The step that starts a phase's green, as opposed to its clearance intervals
+    public boolean isGreenStep(int step) {
+        return greenStep[step];
+    }
+    
+    public boolean isGreen(int step, Direction approach) {
+        return (greenMask[step] & (1 << approach.getSignalIndex())) != 0;
+    }
+    
+    // Bit per signal index
+    public int getGreenMask(int step) {
+        return greenMask[step];
+    }
+    
+    public boolean hasGreen(int step) {
+        return greenMask[step] != 0;
+    }
+    
+    public boolean hasYellow(int step) {
+        return yellowMask[step] != 0;
+    }
+    
+    // Preemption step that clears this step's greens, or NONE if it has none
+    public int getCutStep(int step) {
+        return cutStep[step];
+    }
+    
+    // Shared all-red step run after a cut, or NONE if the plan has no all-red time
+    public int getClearanceStep() {
+        return clearanceStep;
+    }
+    
+    // First green step of the cycle that serves the approach
+    public int getTargetStep(Direction approach) {
+        return targetStep[approach.getSignalIndex()];
+    }
+    
+    public int getCycleLength() {
+        return cycleLength;
+    }
+    
+    public int size() {
+        return states.length;
+    }
+    
+    public int getWidth() {
+        return states[0].length;
+    }
+}
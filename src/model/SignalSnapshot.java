@@ -0,0 +1,53 @@
+package model;
+
+// Immutable view of all signals of one intersection as of one published version; signal
+// arrays are indexed like Intersection.getSignals() (Direction.getSignalIndex()).
+public class SignalSnapshot {
+    private final long version;
+    private final SignalState[] states;
+    private final int[] durations;
+    private final long[] lastChangeTimes;
+    
+    SignalSnapshot(long version, SignalState[] states, int[] durations, long[] lastChangeTimes) {
+        this.version = version;
+        this.states = states;
+        this.durations = durations;
+        this.lastChangeTimes = lastChangeTimes;
+    }
+    
+    // Increases with every write to any of the intersection's signals
+    public long getVersion() {
+        return version;
+    }
+    
+    public int size() {
+        return states.length;
+    }
+    
+    public SignalState getState(Direction direction) {
+        return states[direction.getSignalIndex()];
+    }
+    
+    public SignalState getState(int signalIndex) {
+        return states[signalIndex];
+    }
+    
+    public int getDuration(int signalIndex) {
+        return durations[signalIndex];
+    }
+    
+    public long getLastChangeTime(int signalIndex) {
+        return lastChangeTimes[signalIndex];
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("v").append(version);
+        for (Direction direction : Direction.values()) {
+            int index = direction.getSignalIndex();
+            builder.append(' ').append(direction.getSuffix()).append('=').append(states[index])
+                .append('(').append(durations[index]).append("s)");
+        }
+        return builder.toString();
+    }
+}
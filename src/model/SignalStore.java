@@ -0,0 +1,112 @@
+package model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Signal state, duration and last change time for many intersections in primitive arrays,
+// one dense slot per signal and consecutive slots per intersection. Slots live in fixed-size
+// pages, so growing never copies existing state. Writes happen inside the owning
+// intersection's write section; element reads and writes are acquire/release, so unlocked
+// getters see the latest value just as they do with TrafficSignal's volatile fields.
+public class SignalStore {
+    private static final int PAGE_BITS = 16;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final SignalState[] STATES = SignalState.values();
+    private static final VarHandle BYTES = MethodHandles.arrayElementVarHandle(byte[].class);
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final VarHandle LONGS = MethodHandles.arrayElementVarHandle(long[].class);
+    
+    private final AtomicInteger nextSlot;
+    private volatile Page[] pages;
+    
+    public SignalStore() {
+        this(0);
+    }
+    
+    // Pre-sizes the page table for the expected number of signals
+    public SignalStore(int expectedSignals) {
+        this.nextSlot = new AtomicInteger();
+        this.pages = new Page[0];
+        ensureCapacity(expectedSignals);
+    }
+    
+    private static class Page {
+        final byte[] states = new byte[PAGE_SIZE];
+        final int[] durations = new int[PAGE_SIZE];
+        final long[] lastChangeTimes = new long[PAGE_SIZE];
+    }
+    
+    // Reserves `count` consecutive slots set to the given state and returns the first
+    int allocate(int count, SignalState state, int duration, long lastChangeTime) {
+        int first = nextSlot.getAndAdd(count);
+        if (first < 0 || first + count < 0) {
+            throw new IllegalStateException("Signal store is full");
+        }
+        ensureCapacity(first + count);
+        for (int slot = first; slot < first + count; slot++) {
+            set(slot, state, duration, lastChangeTime);
+        }
+        return first;
+    }
+    
+    private void ensureCapacity(int slots) {
+        int needed = (int) (((long) slots + PAGE_MASK) >>> PAGE_BITS);
+        if (pages.length >= needed) {
+            return;
+        }
+        synchronized (this) {
+            Page[] current = pages;
+            if (current.length < needed) {
+                Page[] grown = Arrays.copyOf(current, Math.max(needed, current.length * 2));
+                for (int i = current.length; i < grown.length; i++) {
+                    grown[i] = new Page();
+                }
+                pages = grown;
+            }
+        }
+    }
+    
+    private Page page(int slot) {
+        return pages[slot >>> PAGE_BITS];
+    }
+    
+    public SignalState getState(int slot) {
+        return STATES[(byte) BYTES.getAcquire(page(slot).states, slot & PAGE_MASK)];
+    }
+    
+    public int getDuration(int slot) {
+        return (int) INTS.getAcquire(page(slot).durations, slot & PAGE_MASK);
+    }
+    
+    public long getLastChangeTime(int slot) {
+        return (long) LONGS.getAcquire(page(slot).lastChangeTimes, slot & PAGE_MASK);
+    }
+    
+    // Same transition as TrafficSignal's: default duration for the new state, returns the old one
+    SignalState apply(int slot, SignalState newState, long time) {
+        SignalState oldState = getState(slot);
+        set(slot, newState, newState.getDefaultDuration(), time);
+        return oldState;
+    }
+    
+    void set(int slot, SignalState state, int duration, long lastChangeTime) {
+        Page page = page(slot);
+        int offset = slot & PAGE_MASK;
+        INTS.setRelease(page.durations, offset, duration);
+        LONGS.setRelease(page.lastChangeTimes, offset, lastChangeTime);
+        BYTES.setRelease(page.states, offset, (byte) state.ordinal());
+    }
+    
+    // Slots handed out so far
+    public int size() {
+        return nextSlot.get();
+    }
+    
+    // Bytes held by the page arrays, excluding the page table itself
+    public long footprintBytes() {
+        return (long) pages.length * PAGE_SIZE * (Byte.BYTES + Integer.BYTES + Long.BYTES);
+    }
+}
@@ -0,0 +1,55 @@
+package model;
+
+// Flyweight over one SignalStore slot, built on demand by an intersection that keeps its
+// signals in a store. It holds only the slot; IDs are derived from the intersection.
+class StoredSignal extends TrafficSignal {
+    private static final Direction[] DIRECTIONS = Direction.values();
+    
+    private final Intersection owner;
+    private final int index;
+    private final SignalStore store;
+    private final int slot;
+    
+    StoredSignal(Intersection owner, int index, SignalStore store, int slot) {
+        super(owner, index);
+        this.owner = owner;
+        this.index = index;
+        this.store = store;
+        this.slot = slot;
+    }
+    
+    @Override
+    SignalState apply(SignalState newState, long time) {
+        return store.apply(slot, newState, time);
+    }
+    
+    @Override
+    void set(SignalState state, int duration, long lastChangeTime) {
+        store.set(slot, state, duration, lastChangeTime);
+    }
+    
+    @Override
+    public String getSignalId() {
+        return owner.getIntersectionId() + "_" + DIRECTIONS[index].getSuffix();
+    }
+    
+    @Override
+    public String getDirection() {
+        return DIRECTIONS[index].name();
+    }
+    
+    @Override
+    public SignalState getCurrentState() {
+        return store.getState(slot);
+    }
+    
+    @Override
+    public int getDuration() {
+        return store.getDuration(slot);
+    }
+    
+    @Override
+    public long getLastChangeTime() {
+        return store.getLastChangeTime(slot);
+    }
+}
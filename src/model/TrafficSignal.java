@@ -1,32 +1,88 @@
 package model;
 
+import util.CSVWriter;
+import util.Clock;
+
+import java.io.IOException;
+
 public class TrafficSignal {
     private String signalId;
     private String direction;
-    private SignalState currentState;
-    private int duration;
-    private long lastChangeTime;
+    private volatile SignalState currentState;
+    private volatile int duration;
+    private volatile long lastChangeTime;
+    private final Clock clock;
+    private Intersection owner;
+    private int index;
     
     public TrafficSignal(String signalId, String direction) {
-        this.signalId = signalId;
-        this.direction = direction;
-        this.currentState = SignalState.RED;
-        this.duration = currentState.getDefaultDuration();
-        this.lastChangeTime = System.currentTimeMillis();
+        this(signalId, direction, Clock.SYSTEM);
+    }
+    
+    public TrafficSignal(String signalId, String direction, Clock clock) {
+        this(signalId, direction, SignalState.RED, SignalState.RED.getDefaultDuration(), clock);
     }
     
     public TrafficSignal(String signalId, String direction, SignalState state, int duration) {
+        this(signalId, direction, state, duration, Clock.SYSTEM);
+    }
+    
+    public TrafficSignal(String signalId, String direction, SignalState state, int duration, Clock clock) {
         this.signalId = signalId;
         this.direction = direction;
         this.currentState = state;
         this.duration = duration;
-        this.lastChangeTime = System.currentTimeMillis();
+        this.clock = clock;
+        this.lastChangeTime = clock.currentTimeMillis();
+    }
+    
+    // State lives elsewhere (see StoredSignal); only the owner link is kept here
+    TrafficSignal(Intersection owner, int index) {
+        this.clock = owner.getClock();
+        this.owner = owner;
+        this.index = index;
+    }
+    
+    // Links the signal to its intersection so state transitions reach the intersection's listener
+    void attach(Intersection owner, int index) {
+        this.owner = owner;
+        this.index = index;
     }
     
-    public synchronized void changeState(SignalState newState) {
-        this.currentState = newState;
-        this.duration = newState.getDefaultDuration();
-        this.lastChangeTime = System.currentTimeMillis();
+    // Attached signals change inside their intersection's write section, so readers of the
+    // intersection's snapshot never see this signal half-updated or out of step with the others
+    public void changeState(SignalState newState) {
+        if (owner != null) {
+            owner.changeSignalState(index, newState);
+            return;
+        }
+        synchronized (this) {
+            apply(newState, clock.currentTimeMillis());
+        }
+    }
+    
+    // Sets persisted or replayed state without treating it as a new transition
+    public void restore(SignalState state, int duration, long lastChangeTime) {
+        if (owner != null) {
+            owner.restoreSignal(index, state, duration, lastChangeTime);
+            return;
+        }
+        synchronized (this) {
+            set(state, duration, lastChangeTime);
+        }
+    }
+    
+    // Callers hold the owner's write lock, or this signal's monitor when it has no owner
+    SignalState apply(SignalState newState, long time) {
+        SignalState oldState = currentState;
+        set(newState, newState.getDefaultDuration(), time);
+        return oldState;
+    }
+    
+    void set(SignalState state, int duration, long lastChangeTime) {
+        this.currentState = state;
+        this.duration = duration;
+        this.lastChangeTime = lastChangeTime;
     }
     
     public String getSignalId() {
@@ -50,11 +106,21 @@ public class TrafficSignal {
     }
     
     public String toCSV() {
-        return signalId + "," + direction + "," + currentState + "," + duration;
+        return getSignalId() + "," + getDirection() + "," + getCurrentState() + "," + getDuration();
+    }
+    
+    public void writeCSV(CSVWriter out) throws IOException {
+        out.field(getSignalId()).field(getDirection()).field(getCurrentState().name()).field(getDuration()).endRecord();
+    }
+    
+    // This signal's row as of the given snapshot of its intersection
+    public void writeCSV(CSVWriter out, SignalSnapshot snapshot) throws IOException {
+        out.field(getSignalId()).field(getDirection()).field(snapshot.getState(index).name())
+            .field(snapshot.getDuration(index)).endRecord();
     }
     
     @Override
     public String toString() {
-        return "Signal[" + signalId + "] " + direction + " - " + currentState + " (" + duration + "s)";
+        return "Signal[" + getSignalId() + "] " + getDirection() + " - " + getCurrentState() + " (" + getDuration() + "s)";
     }
 }
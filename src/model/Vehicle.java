@@ -3,13 +3,20 @@ package model;
 public abstract class Vehicle {
     protected String vehicleId;
     protected String type;
+    protected VehicleType vehicleType;
     protected String currentIntersection;
     protected long entryTime;
+    protected Direction approach;
     
-    public Vehicle(String vehicleId, String type) {
+    public Vehicle(String vehicleId, VehicleType vehicleType) {
+        this(vehicleId, vehicleType, System.currentTimeMillis());
+    }
+    
+    public Vehicle(String vehicleId, VehicleType vehicleType, long entryTime) {
         this.vehicleId = vehicleId;
-        this.type = type;
-        this.entryTime = System.currentTimeMillis();
+        this.vehicleType = vehicleType;
+        this.type = vehicleType.name();
+        this.entryTime = entryTime;
     }
     
     public abstract int getPriority();
@@ -22,6 +29,10 @@ public abstract class Vehicle {
         return type;
     }
     
+    public VehicleType getVehicleType() {
+        return vehicleType;
+    }
+    
     public String getCurrentIntersection() {
         return currentIntersection;
     }
@@ -30,6 +41,14 @@ public abstract class Vehicle {
         this.currentIntersection = intersectionId;
     }
     
+    public Direction getApproach() {
+        return approach;
+    }
+    
+    public void setApproach(Direction approach) {
+        this.approach = approach;
+    }
+    
     public long getEntryTime() {
         return entryTime;
     }
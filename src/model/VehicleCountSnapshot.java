@@ -0,0 +1,54 @@
+package model;
+
+// Copy of an intersection's counters. Both breakdowns come from one read of the per-approach,
+// per-type cells, so each arrival is in both or in neither and they sum to the same figure;
+// the total adds the restored count, which has no breakdown.
+public class VehicleCountSnapshot {
+    private final long[] byDirection;
+    private final long[] byType;
+    private final long restored;
+    private final long total;
+    
+    VehicleCountSnapshot(long[] byDirection, long[] byType, long restored) {
+        this.byDirection = byDirection;
+        this.byType = byType;
+        this.restored = restored;
+        long sum = restored;
+        for (long count : byDirection) {
+            sum += count;
+        }
+        this.total = sum;
+    }
+    
+    public long getCount(Direction direction) {
+        return byDirection[direction.ordinal()];
+    }
+    
+    public long getCount(VehicleType type) {
+        return byType[type.ordinal()];
+    }
+    
+    // Vehicles carried over from disk, counted in the total but in no direction or type
+    public long getRestored() {
+        return restored;
+    }
+    
+    public long getTotal() {
+        return total;
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("total=").append(total);
+        if (restored != 0) {
+            builder.append(" restored=").append(restored);
+        }
+        for (Direction direction : Direction.values()) {
+            builder.append(' ').append(direction.getSuffix()).append('=').append(getCount(direction));
+        }
+        for (VehicleType type : VehicleType.values()) {
+            builder.append(' ').append(type).append('=').append(getCount(type));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,16 @@
+package model;
+
+public enum VehicleType {
+    CAR(1),
+    EMERGENCY(10);
+    
+    private final int priority;
+    
+    VehicleType(int priority) {
+        this.priority = priority;
+    }
+    
+    public int getPriority() {
+        return priority;
+    }
+}
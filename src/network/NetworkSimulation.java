@@ -0,0 +1,192 @@
+package network;
+
+import model.Direction;
+import model.Intersection;
+import model.PhasePlan;
+import service.PreemptionMetrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+// Runs a road network split into regions, one thread per region, in conservative lockstep
+// windows. A window is no longer than the shortest link between two regions, so a vehicle
+// that crosses regions during one window cannot arrive before that window ends; regions
+// therefore run a whole window without talking to each other and swap boundary vehicles only
+// at the sync point between windows.
+public class NetworkSimulation implements AutoCloseable {
+    // Windows stay short enough to report progress even when no link crosses regions
+    private static final long MAX_WINDOW_MILLIS = 60_000;
+    
+    private final RoadNetwork network;
+    private final Partition partition;
+    private final Region[] regions;
+    private final long windowMillis;
+    private final ExecutorService executor;
+    private long now;
+    private int parity;
+    private long windows;
+    
+    public NetworkSimulation(RoadNetwork network, int regionCount, Function<String, PhasePlan> plans,
+                             int saturationFlowPerHour, double entriesPerHour, long seed) {
+        if (saturationFlowPerHour <= 0) {
+            throw new IllegalArgumentException("Saturation flow must be positive");
+        }
+        this.network = network;
+        this.partition = Partition.of(network, regionCount);
+        this.windowMillis = Math.min(MAX_WINDOW_MILLIS, partition.getMinBoundaryTravelMillis());
+        PreemptionMetrics metrics = new PreemptionMetrics();
+        this.regions = new Region[partition.getRegionCount()];
+        for (int region = 0; region < regions.length; region++) {
+            regions[region] = new Region(region, network, partition, plans, metrics, saturationFlowPerHour,
+                entriesPerHour, seed);
+        }
+        
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = regions.length == 1 ? null : Executors.newFixedThreadPool(regions.length, runnable -> {
+            Thread thread = new Thread(runnable, "region-" + threadNumber.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    // Advances every region to endMillis of simulated time
+    public void runUntil(long endMillis) throws InterruptedException {
+        while (now < endMillis) {
+            long windowEnd = Math.min(endMillis, now + windowMillis);
+            runWindow(windowEnd);
+            now = windowEnd;
+            parity ^= 1;
+            windows++;
+        }
+    }
+    
+    private void runWindow(long windowEnd) throws InterruptedException {
+        int current = parity;
+        if (executor == null) {
+            regions[0].runWindow(regions, current, windowEnd);
+            return;
+        }
+        
+        List<Callable<Void>> tasks = new ArrayList<>(regions.length);
+        for (Region region : regions) {
+            tasks.add(() -> {
+                region.runWindow(regions, current, windowEnd);
+                return null;
+            });
+        }
+        // invokeAll is the sync point: every region has finished the window when it returns
+        for (Future<Void> result : executor.invokeAll(tasks)) {
+            try {
+                result.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Region failed: " + e.getCause(), e.getCause());
+            }
+        }
+    }
+    
+    public Intersection getIntersection(String id) {
+        int index = network.indexOf(id);
+        return index == RoadNetwork.NO_LINK ? null : regions[partition.regionOf(index)].getIntersection(index);
+    }
+    
+    public int getQueueLength(String id, Direction approach) {
+        int index = network.indexOf(id);
+        return index == RoadNetwork.NO_LINK ? 0 : regions[partition.regionOf(index)].getQueueLength(index, approach);
+    }
+    
+    public long getCurrentTimeMillis() {
+        return now;
+    }
+    
+    public RoadNetwork getNetwork() {
+        return network;
+    }
+    
+    public Partition getPartition() {
+        return partition;
+    }
+    
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+    
+    public long getWindows() {
+        return windows;
+    }
+    
+    // Vehicles generated on entry approaches
+    public long getEntered() {
+        long total = 0;
+        for (Region region : regions) {
+            total += region.getEntered();
+        }
+        return total;
+    }
+    
+    // Vehicles that left the network through an approach with no downstream link
+    public long getExited() {
+        long total = 0;
+        for (Region region : regions) {
+            total += region.getExited();
+        }
+        return total;
+    }
+    
+    public long getQueued() {
+        long total = 0;
+        for (Region region : regions) {
+            total += region.getQueued();
+        }
+        return total;
+    }
+    
+    // Vehicles handed from one region to another at sync points
+    public long getTransfers() {
+        long total = 0;
+        for (Region region : regions) {
+            total += region.getSent();
+        }
+        return total;
+    }
+    
+    public long getDropped() {
+        long total = 0;
+        for (Region region : regions) {
+            total += region.getDropped();
+        }
+        return total;
+    }
+    
+    public long getEventsProcessed() {
+        long total = 0;
+        for (Region region : regions) {
+            total += region.getEventsProcessed();
+        }
+        return total;
+    }
+    
+    // Mean wait per intersection passed, from joining a queue to discharging from it, in ms
+    public double getAverageDelayMillis() {
+        long discharged = 0;
+        long delay = 0;
+        for (Region region : regions) {
+            discharged += region.getDischarged();
+            delay += region.getTotalDelay();
+        }
+        return discharged == 0 ? 0 : (double) delay / discharged;
+    }
+    
+    @Override
+    public void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package network;
+
+import java.util.Arrays;
+
+// Splits a road network into regions of equal size. Intersections are ordered breadth-first
+// over the links (in either direction) and the order is cut into contiguous runs, so a region
+// is a connected patch and only the links along its edge cross to another region.
+public class Partition {
+    private final int regionCount;
+    private final int[] regionOf;
+    // Position of each intersection inside its region
+    private final int[] localIndex;
+    private final int[][] members;
+    private final int boundaryLinks;
+    private final int minBoundaryTravelMillis;
+    
+    private Partition(RoadNetwork network, int[] order, int regionCount) {
+        int size = network.size();
+        this.regionCount = regionCount;
+        this.regionOf = new int[size];
+        this.localIndex = new int[size];
+        this.members = new int[regionCount][];
+        for (int region = 0; region < regionCount; region++) {
+            int from = (int) ((long) size * region / regionCount);
+            int to = (int) ((long) size * (region + 1) / regionCount);
+            members[region] = Arrays.copyOfRange(order, from, to);
+            for (int i = 0; i < members[region].length; i++) {
+                regionOf[members[region][i]] = region;
+                localIndex[members[region][i]] = i;
+            }
+        }
+        
+        int crossing = 0;
+        int minTravel = Integer.MAX_VALUE;
+        for (int slot = 0; slot < size * RoadNetwork.APPROACHES; slot++) {
+            int target = network.getDownstream(slot);
+            if (target != RoadNetwork.NO_LINK
+                    && regionOf[slot / RoadNetwork.APPROACHES] != regionOf[target / RoadNetwork.APPROACHES]) {
+                crossing++;
+                minTravel = Math.min(minTravel, network.getTravelMillis(slot));
+            }
+        }
+        this.boundaryLinks = crossing;
+        this.minBoundaryTravelMillis = minTravel;
+    }
+    
+    public static Partition of(RoadNetwork network, int regionCount) {
+        if (regionCount <= 0) {
+            throw new IllegalArgumentException("Region count must be positive");
+        }
+        return new Partition(network, breadthFirstOrder(network), Math.min(regionCount, Math.max(network.size(), 1)));
+    }
+    
+    private static int[] breadthFirstOrder(RoadNetwork network) {
+        int size = network.size();
+        int approaches = RoadNetwork.APPROACHES;
+        // Undirected adjacency in compressed rows: offsets[i]..offsets[i + 1] index into neighbours
+        int[] degree = new int[size + 1];
+        for (int slot = 0; slot < size * approaches; slot++) {
+            int target = network.getDownstream(slot);
+            if (target != RoadNetwork.NO_LINK) {
+                degree[slot / approaches]++;
+                degree[target / approaches]++;
+            }
+        }
+        int[] offsets = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            offsets[i + 1] = offsets[i] + degree[i];
+        }
+        int[] neighbours = new int[offsets[size]];
+        int[] fill = Arrays.copyOf(offsets, size);
+        for (int slot = 0; slot < size * approaches; slot++) {
+            int target = network.getDownstream(slot);
+            if (target != RoadNetwork.NO_LINK) {
+                neighbours[fill[slot / approaches]++] = target / approaches;
+                neighbours[fill[target / approaches]++] = slot / approaches;
+            }
+        }
+        
+        int[] order = new int[size];
+        boolean[] visited = new boolean[size];
+        int head = 0;
+        int tail = 0;
+        for (int start = 0; start < size; start++) {
+            if (visited[start]) {
+                continue;
+            }
+            visited[start] = true;
+            order[tail++] = start;
+            while (head < tail) {
+                int node = order[head++];
+                for (int n = offsets[node]; n < offsets[node + 1]; n++) {
+                    if (!visited[neighbours[n]]) {
+                        visited[neighbours[n]] = true;
+                        order[tail++] = neighbours[n];
+                    }
+                }
+            }
+        }
+        return order;
+    }
+    
+    public int getRegionCount() {
+        return regionCount;
+    }
+    
+    public int regionOf(int index) {
+        return regionOf[index];
+    }
+    
+    int localIndex(int index) {
+        return localIndex[index];
+    }
+    
+    // Network indexes of a region's intersections
+    int[] members(int region) {
+        return members[region];
+    }
+    
+    public int getBoundaryLinks() {
+        return boundaryLinks;
+    }
+    
+    // Shortest travel time of any link between regions, or Integer.MAX_VALUE when none cross
+    public int getMinBoundaryTravelMillis() {
+        return minBoundaryTravelMillis;
+    }
+}
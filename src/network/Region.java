@@ -0,0 +1,287 @@
+package network;
+
+import engine.DiscreteEventScheduler;
+import engine.SteppedTask;
+import model.*;
+import service.PreemptionMetrics;
+import service.SignalController;
+import util.LongRingBuffer;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Function;
+
+// One region of a partitioned network, simulated on its own discrete-event engine by a single
+// thread. Queues are event-driven: while an approach is green and holds vehicles, exactly one
+// departure event is pending for it, and each departure sends the vehicle down the approach's
+// link. Vehicles bound for another region go into that region's mailbox instead of onto this
+// engine, and are delivered at the next sync point.
+class Region implements IntersectionListener {
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int APPROACHES = RoadNetwork.APPROACHES;
+    private static final int INITIAL_QUEUE = 4;
+    private static final int MAX_QUEUE = 4096;
+    
+    private final int id;
+    private final RoadNetwork network;
+    private final Partition partition;
+    private final DiscreteEventScheduler scheduler;
+    private final int[] members;
+    private final Intersection[] intersections;
+    private final long headwayMillis;
+    private final double meanEntryGapMillis;
+    
+    // Per local slot (local index * 4 + signal index)
+    private final LongRingBuffer[] waiting;
+    private final boolean[] green;
+    private final boolean[] departurePending;
+    private final long[] nextDeparture;
+    private final Runnable[] departures;
+    
+    // outboxes[parity][target region]: written during a window, drained by the target after it
+    private final Mailbox[][] outboxes;
+    private int currentParity;
+    
+    private long entered;
+    private long exited;
+    private long discharged;
+    private long totalDelay;
+    private long dropped;
+    private long sent;
+    
+    Region(int id, RoadNetwork network, Partition partition, Function<String, PhasePlan> plans,
+           PreemptionMetrics metrics, int saturationFlowPerHour, double entriesPerHour, long seed) {
+        this.id = id;
+        this.network = network;
+        this.partition = partition;
+        this.scheduler = new DiscreteEventScheduler();
+        this.members = partition.members(id);
+        this.intersections = new Intersection[members.length];
+        this.headwayMillis = Math.max(1, 3_600_000L / saturationFlowPerHour);
+        this.meanEntryGapMillis = entriesPerHour > 0 ? 3_600_000.0 / entriesPerHour : 0;
+        
+        int slots = members.length * APPROACHES;
+        this.waiting = new LongRingBuffer[slots];
+        this.green = new boolean[slots];
+        this.departurePending = new boolean[slots];
+        this.nextDeparture = new long[slots];
+        this.departures = new Runnable[slots];
+        this.outboxes = new Mailbox[2][partition.getRegionCount()];
+        for (Mailbox[] byTarget : outboxes) {
+            for (int target = 0; target < byTarget.length; target++) {
+                byTarget[target] = new Mailbox();
+            }
+        }
+        
+        for (int local = 0; local < members.length; local++) {
+            int index = members[local];
+            Intersection intersection = new Intersection(network.getId(index), network.getLocation(index), scheduler);
+            intersection.setIndex(index);
+            intersection.setListener(this);
+            intersections[local] = intersection;
+            for (int approach = 0; approach < APPROACHES; approach++) {
+                int slot = local * APPROACHES + approach;
+                waiting[slot] = new LongRingBuffer(INITIAL_QUEUE, MAX_QUEUE);
+                departures[slot] = () -> depart(slot);
+            }
+            
+            SignalController controller = new SignalController(intersection, metrics, plans.apply(intersection.getIntersectionId()));
+            SteppedTask stepper = new SteppedTask(controller, scheduler);
+            controller.setWaker(stepper::wakeUp);
+            stepper.start();
+            
+            if (meanEntryGapMillis > 0) {
+                for (int approach = 0; approach < APPROACHES; approach++) {
+                    int slot = RoadNetwork.slot(index, DIRECTIONS[approach]);
+                    if (network.isEntry(slot)) {
+                        // One stream per entry slot, so demand does not depend on the partition
+                        new EntryStream(local * APPROACHES + approach, new Random(seed * 31 + slot)).next();
+                    }
+                }
+            }
+        }
+    }
+    
+    // One simulation window: first the vehicles other regions sent during the previous window,
+    // then every local event up to the window's end
+    void runWindow(Region[] regions, int parity, long endMillis) {
+        int previous = parity ^ 1;
+        for (Region source : regions) {
+            Mailbox inbox = source.outboxes[previous][id];
+            for (int i = 0; i < inbox.size; i++) {
+                int slot = partition.localIndex(inbox.slots[i] / APPROACHES) * APPROACHES + inbox.slots[i] % APPROACHES;
+                scheduleArrival(slot, inbox.times[i]);
+            }
+            inbox.clear();
+        }
+        currentParity = parity;
+        scheduler.runUntil(endMillis);
+    }
+    
+    private void scheduleArrival(int slot, long time) {
+        scheduler.schedule(() -> intersections[slot / APPROACHES]
+            .incrementVehicleCount(DIRECTIONS[slot % APPROACHES], VehicleType.CAR, time), time - scheduler.currentTimeMillis());
+    }
+    
+    @Override
+    public void onVehicleArrival(Intersection intersection, Direction approach, VehicleType type, long time) {
+        int slot = partition.localIndex(intersection.getIndex()) * APPROACHES + approach.getSignalIndex();
+        if (!waiting[slot].addLast(time)) {
+            dropped++;
+            return;
+        }
+        scheduleDeparture(slot);
+    }
+    
+    @Override
+    public void onSignalChange(Intersection intersection, int signalIndex, SignalState oldState,
+                               SignalState newState, long time) {
+        boolean nowGreen = newState == SignalState.GREEN;
+        if ((oldState == SignalState.GREEN) == nowGreen) {
+            return;
+        }
+        int slot = partition.localIndex(intersection.getIndex()) * APPROACHES + signalIndex;
+        green[slot] = nowGreen;
+        if (nowGreen) {
+            nextDeparture[slot] = time + headwayMillis;
+            scheduleDeparture(slot);
+        }
+    }
+    
+    private void scheduleDeparture(int slot) {
+        if (!green[slot] || departurePending[slot] || waiting[slot].isEmpty()) {
+            return;
+        }
+        long now = scheduler.currentTimeMillis();
+        long due = Math.max(nextDeparture[slot], waiting[slot].peekFirst());
+        departurePending[slot] = true;
+        scheduler.schedule(departures[slot], due - now);
+    }
+    
+    // A pending departure is not cancelled on red; it finds the approach red and lapses
+    private void depart(int slot) {
+        departurePending[slot] = false;
+        LongRingBuffer queue = waiting[slot];
+        if (!green[slot] || queue.isEmpty()) {
+            return;
+        }
+        long now = scheduler.currentTimeMillis();
+        if (Math.max(nextDeparture[slot], queue.peekFirst()) > now) {
+            scheduleDeparture(slot);
+            return;
+        }
+        
+        long entryTime = queue.removeFirst();
+        discharged++;
+        totalDelay += now - entryTime;
+        nextDeparture[slot] = now + headwayMillis;
+        forward(slot, now);
+        scheduleDeparture(slot);
+    }
+    
+    private void forward(int slot, long now) {
+        int globalSlot = members[slot / APPROACHES] * APPROACHES + slot % APPROACHES;
+        int target = network.getDownstream(globalSlot);
+        if (target == RoadNetwork.NO_LINK) {
+            exited++;
+            return;
+        }
+        long arrival = now + network.getTravelMillis(globalSlot);
+        int targetRegion = partition.regionOf(target / APPROACHES);
+        if (targetRegion == id) {
+            scheduleArrival(partition.localIndex(target / APPROACHES) * APPROACHES + target % APPROACHES, arrival);
+        } else {
+            outboxes[currentParity][targetRegion].add(arrival, target);
+            sent++;
+        }
+    }
+    
+    Intersection getIntersection(int index) {
+        return intersections[partition.localIndex(index)];
+    }
+    
+    int getQueueLength(int index, Direction approach) {
+        return waiting[partition.localIndex(index) * APPROACHES + approach.getSignalIndex()].size();
+    }
+    
+    long getQueued() {
+        long queued = 0;
+        for (LongRingBuffer queue : waiting) {
+            queued += queue.size();
+        }
+        return queued;
+    }
+    
+    long getEntered() {
+        return entered;
+    }
+    
+    long getExited() {
+        return exited;
+    }
+    
+    long getDischarged() {
+        return discharged;
+    }
+    
+    long getTotalDelay() {
+        return totalDelay;
+    }
+    
+    long getDropped() {
+        return dropped;
+    }
+    
+    long getSent() {
+        return sent;
+    }
+    
+    long getEventsProcessed() {
+        return scheduler.getEventsProcessed();
+    }
+    
+    // Poisson arrivals on an approach no link feeds
+    private class EntryStream implements Runnable {
+        private final int slot;
+        private final Random random;
+        
+        EntryStream(int slot, Random random) {
+            this.slot = slot;
+            this.random = random;
+        }
+        
+        void next() {
+            long gap = (long) (-Math.log(1 - random.nextDouble()) * meanEntryGapMillis);
+            scheduler.schedule(this, gap);
+        }
+        
+        @Override
+        public void run() {
+            entered++;
+            intersections[slot / APPROACHES].incrementVehicleCount(DIRECTIONS[slot % APPROACHES], VehicleType.CAR,
+                scheduler.currentTimeMillis());
+            next();
+        }
+    }
+    
+    // Vehicles crossing to one region during one window: arrival time and downstream slot
+    private static class Mailbox {
+        private long[] times = new long[16];
+        private int[] slots = new int[16];
+        private int size;
+        
+        void add(long time, int slot) {
+            if (size == times.length) {
+                times = Arrays.copyOf(times, size * 2);
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            times[size] = time;
+            slots[size] = slot;
+            size++;
+        }
+        
+        void clear() {
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package network;
+
+import model.Direction;
+import util.CSVFileHandler;
+import util.FileOperationException;
+import util.InvalidSignalException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Intersections linked approach to approach. Every approach of every intersection is a slot
+// (index * 4 + signal index); vehicles discharged from a slot travel its link to the downstream
+// slot, or leave the network when it has none. Slots nothing links into are where vehicles
+// enter. Links are read from a CSV of
+//   FromID,Approach,ToID,ToApproach,TravelSeconds
+//   INT001,N,INT002,N,30
+// with approaches as suffixes (N, S, E, W); a vehicle on FromID's north approach that clears
+// the intersection reaches ToID's north approach 30 s later.
+public class RoadNetwork {
+    static final int APPROACHES = Direction.values().length;
+    public static final int NO_LINK = -1;
+    
+    private final String[] ids;
+    private final String[] locations;
+    private final Map<String, Integer> indexById;
+    private final int[] downstream;
+    private final int[] travelMillis;
+    private final boolean[] linkedInto;
+    private final int linkCount;
+    
+    private RoadNetwork(Builder builder) {
+        this.ids = builder.ids.toArray(new String[0]);
+        this.locations = builder.locations.toArray(new String[0]);
+        this.indexById = builder.indexById;
+        this.downstream = Arrays.copyOf(builder.downstream, ids.length * APPROACHES);
+        this.travelMillis = Arrays.copyOf(builder.travelMillis, ids.length * APPROACHES);
+        this.linkedInto = new boolean[downstream.length];
+        int links = 0;
+        for (int target : downstream) {
+            if (target != NO_LINK) {
+                linkedInto[target] = true;
+                links++;
+            }
+        }
+        this.linkCount = links;
+    }
+    
+    // rows x cols city grid, row 0 to the north, with straight-through links between neighbours.
+    // A vehicle on an approach is heading away from it: north-approach traffic moves south.
+    public static RoadNetwork grid(int rows, int cols, int travelSeconds) {
+        Builder builder = new Builder(rows * cols);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                builder.addIntersection(gridId(r, c), "Row " + r + " Col " + c);
+            }
+        }
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                if (r + 1 < rows) {
+                    builder.link(gridId(r, c), Direction.NORTH, gridId(r + 1, c), Direction.NORTH, travelSeconds);
+                    builder.link(gridId(r + 1, c), Direction.SOUTH, gridId(r, c), Direction.SOUTH, travelSeconds);
+                }
+                if (c + 1 < cols) {
+                    builder.link(gridId(r, c), Direction.WEST, gridId(r, c + 1), Direction.WEST, travelSeconds);
+                    builder.link(gridId(r, c + 1), Direction.EAST, gridId(r, c), Direction.EAST, travelSeconds);
+                }
+            }
+        }
+        return builder.build();
+    }
+    
+    public static String gridId(int row, int col) {
+        return "G" + row + "_" + col;
+    }
+    
+    // Intersections come from an intersections.csv (IntersectionID,Location,...), links from linksFile
+    public static RoadNetwork load(String intersectionsFile, String linksFile)
+            throws FileOperationException, InvalidSignalException {
+        Builder builder = new Builder(16);
+        CSVFileHandler.forEachRecord(intersectionsFile, record -> {
+            if (record.getRecordNumber() > 0 && record.size() >= 2 && builder.indexOf(record.getString(0)) == NO_LINK) {
+                builder.addIntersection(record.getString(0), record.getString(1));
+            }
+        });
+        
+        List<String> errors = new ArrayList<>();
+        CSVFileHandler.forEachRecord(linksFile, record -> {
+            if (record.getRecordNumber() == 0 || record.size() == 0) {
+                return;
+            }
+            try {
+                if (record.size() < 5) {
+                    throw new IllegalArgumentException("expected FromID,Approach,ToID,ToApproach,TravelSeconds");
+                }
+                builder.link(record.getString(0), direction(record.getString(1)), record.getString(2),
+                    direction(record.getString(3)), record.getInt(4));
+            } catch (RuntimeException e) {
+                errors.add(linksFile + " row " + record.getRecordNumber() + ": " + e.getMessage());
+            }
+        });
+        if (!errors.isEmpty()) {
+            throw new InvalidSignalException("Invalid road links: " + String.join("; ", errors));
+        }
+        return builder.build();
+    }
+    
+    private static Direction direction(String suffix) {
+        for (Direction direction : Direction.values()) {
+            if (direction.getSuffix().equalsIgnoreCase(suffix.trim())) {
+                return direction;
+            }
+        }
+        throw new IllegalArgumentException("unknown approach " + suffix);
+    }
+    
+    public int size() {
+        return ids.length;
+    }
+    
+    public int getLinkCount() {
+        return linkCount;
+    }
+    
+    public String getId(int index) {
+        return ids[index];
+    }
+    
+    public String getLocation(int index) {
+        return locations[index];
+    }
+    
+    // NO_LINK for an unknown ID
+    public int indexOf(String id) {
+        Integer index = indexById.get(id);
+        return index == null ? NO_LINK : index;
+    }
+    
+    public static int slot(int index, Direction approach) {
+        return index * APPROACHES + approach.getSignalIndex();
+    }
+    
+    // Downstream slot of a slot's link, or NO_LINK where vehicles leave the network
+    public int getDownstream(int slot) {
+        return downstream[slot];
+    }
+    
+    public int getTravelMillis(int slot) {
+        return travelMillis[slot];
+    }
+    
+    public boolean isEntry(int slot) {
+        return !linkedInto[slot];
+    }
+    
+    public static class Builder {
+        private final List<String> ids;
+        private final List<String> locations;
+        private final Map<String, Integer> indexById;
+        private int[] downstream;
+        private int[] travelMillis;
+        
+        public Builder(int expectedIntersections) {
+            this.ids = new ArrayList<>(expectedIntersections);
+            this.locations = new ArrayList<>(expectedIntersections);
+            this.indexById = new HashMap<>(expectedIntersections * 2);
+            this.downstream = new int[0];
+            this.travelMillis = new int[0];
+        }
+        
+        public Builder addIntersection(String id, String location) {
+            if (indexById.putIfAbsent(id, ids.size()) != null) {
+                throw new IllegalArgumentException("duplicate intersection " + id);
+            }
+            ids.add(id);
+            locations.add(location);
+            int slots = ids.size() * APPROACHES;
+            if (slots > downstream.length) {
+                int grown = Math.max(slots, downstream.length * 2);
+                int previous = downstream.length;
+                downstream = Arrays.copyOf(downstream, grown);
+                travelMillis = Arrays.copyOf(travelMillis, grown);
+                Arrays.fill(downstream, previous, grown, NO_LINK);
+            }
+            return this;
+        }
+        
+        // Each approach feeds at most one link; linking it again replaces the earlier link
+        public Builder link(String fromId, Direction approach, String toId, Direction toApproach, int travelSeconds) {
+            int from = indexOf(fromId);
+            int to = indexOf(toId);
+            if (from == NO_LINK || to == NO_LINK) {
+                throw new IllegalArgumentException("unknown intersection " + (from == NO_LINK ? fromId : toId));
+            }
+            if (travelSeconds <= 0) {
+                throw new IllegalArgumentException("travel time must be positive");
+            }
+            int slot = slot(from, approach);
+            downstream[slot] = slot(to, toApproach);
+            travelMillis[slot] = travelSeconds * 1000;
+            return this;
+        }
+        
+        int indexOf(String id) {
+            Integer index = indexById.get(id);
+            return index == null ? NO_LINK : index;
+        }
+        
+        public RoadNetwork build() {
+            return new RoadNetwork(this);
+        }
+    }
+}
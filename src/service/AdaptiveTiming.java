@@ -0,0 +1,260 @@
+package service;
+
+import engine.Steppable;
+import model.Direction;
+import model.Intersection;
+import model.PhasePlan;
+import util.Clock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+// Webster-style actuated timing. Every interval, each intersection's arrivals per approach
+// since the last recompute become flow ratios against the saturation flow; the cycle length
+// is then (1.5L + 5) / (1 - Y) and the effective green is split in proportion to each
+// phase's critical ratio. The batch runs over the registry on the fork-join pool, and new
+// plans reach controllers through setPlan, so they start at the next cycle boundary.
+public class AdaptiveTiming implements Steppable {
+    static final int MIN_GREEN_SECONDS = 5;
+    static final int MIN_CYCLE_SECONDS = 30;
+    static final int MAX_CYCLE_SECONDS = 150;
+    // Demand above this share of capacity runs the longest cycle
+    static final double MAX_FLOW_RATIO = 0.9;
+    private static final int MAX_CACHED_PLANS = 10_000;
+    
+    private static final Direction[] DIRECTIONS = Direction.values();
+    
+    private final IntersectionRegistry registry;
+    private final Function<String, PhasePlan> basePlans;
+    private final Clock clock;
+    private final long intervalMillis;
+    private final int saturationFlowPerHour;
+    private volatile boolean running;
+    private ScheduledExecutorService executor;
+    private long lastRecomputeTime;
+    private volatile long lastBatchNanos;
+    private volatile int lastRecomputed;
+    private volatile int lastChanged;
+    private final ConcurrentHashMap<TimingKey, PhasePlan> timedPlans;
+    
+    // basePlans gives the configured plan of an intersection, whose phases are retimed
+    AdaptiveTiming(IntersectionRegistry registry, Function<String, PhasePlan> basePlans, Clock clock,
+                   long intervalMillis, int saturationFlowPerHour) {
+        if (intervalMillis <= 0 || saturationFlowPerHour <= 0) {
+            throw new IllegalArgumentException("Interval and saturation flow must be positive");
+        }
+        this.registry = registry;
+        this.basePlans = basePlans;
+        this.clock = clock;
+        this.intervalMillis = intervalMillis;
+        this.saturationFlowPerHour = saturationFlowPerHour;
+        this.running = true;
+        this.lastRecomputeTime = clock.currentTimeMillis();
+        this.timedPlans = new ConcurrentHashMap<>();
+    }
+    
+    // Wall-clock modes recompute on their own thread; the batch itself fans out to the pool
+    void start() {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "adaptive-timing");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::recompute, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    void stop() {
+        running = false;
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+    
+    // Discrete-event runs recompute on the simulation clock
+    @Override
+    public long step() {
+        if (!running) {
+            return -1;
+        }
+        recompute();
+        return intervalMillis;
+    }
+    
+    // One batch over every registered intersection; returns how many got a new plan
+    public synchronized int recompute() {
+        long startNanos = System.nanoTime();
+        long now = clock.currentTimeMillis();
+        long elapsed = now - lastRecomputeTime;
+        lastRecomputeTime = now;
+        AtomicInteger recomputed = new AtomicInteger();
+        AtomicInteger changed = new AtomicInteger();
+        registry.forEach(true, handle -> {
+            recomputed.incrementAndGet();
+            if (retime(handle, elapsed)) {
+                changed.incrementAndGet();
+            }
+        });
+        lastBatchNanos = System.nanoTime() - startNanos;
+        lastRecomputed = recomputed.get();
+        lastChanged = changed.get();
+        return lastChanged;
+    }
+    
+    private boolean retime(IntersectionHandle handle, long elapsedMillis) {
+        Intersection intersection = handle.getIntersection();
+        long[] baseline = handle.getDemandBaseline();
+        if (baseline == null) {
+            baseline = new long[DIRECTIONS.length];
+            for (Direction direction : DIRECTIONS) {
+                baseline[direction.getSignalIndex()] = intersection.getVehicleCount(direction);
+            }
+            handle.setDemandBaseline(baseline);
+            return false;
+        }
+        
+        double[] flowRatios = new double[DIRECTIONS.length];
+        for (Direction direction : DIRECTIONS) {
+            int i = direction.getSignalIndex();
+            long count = intersection.getVehicleCount(direction);
+            double perHour = elapsedMillis <= 0 ? 0 : (count - baseline[i]) * 3_600_000.0 / elapsedMillis;
+            flowRatios[i] = perHour / saturationFlowPerHour;
+            baseline[i] = count;
+        }
+        
+        PhasePlan base = basePlans.apply(handle.getId());
+        int[] greens = websterGreens(base, flowRatios);
+        PhasePlan previous = handle.getAdaptivePlan();
+        if (greens == null || previous != null && hasGreens(previous, greens)) {
+            return false;
+        }
+        
+        PhasePlan plan = timedPlan(base, greens);
+        handle.setAdaptivePlan(plan);
+        SignalController controller = handle.getController();
+        if (controller != null) {
+            controller.setPlan(plan);
+        }
+        return true;
+    }
+    
+    private static boolean hasGreens(PhasePlan plan, int[] greens) {
+        List<PhasePlan.Phase> phases = plan.getPhases();
+        if (phases.size() != greens.length) {
+            return false;
+        }
+        for (int p = 0; p < greens.length; p++) {
+            if (phases.get(p).getGreenSeconds() != greens[p]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    // Demand clusters, so many intersections share a timing; each distinct one compiles once
+    private PhasePlan timedPlan(PhasePlan base, int[] greens) {
+        if (timedPlans.size() >= MAX_CACHED_PLANS) {
+            timedPlans.clear();
+        }
+        return timedPlans.computeIfAbsent(new TimingKey(base, greens), key -> withGreens(base, greens));
+    }
+    
+    public static PhasePlan webster(PhasePlan base, double[] flowRatios) {
+        int[] greens = websterGreens(base, flowRatios);
+        return greens == null ? null : withGreens(base, greens);
+    }
+    
+    // Webster green seconds for each of the base plan's phases, given flow ratios (demand over
+    // saturation flow per approach, by signal index); null when there was no demand to size them by
+    public static int[] websterGreens(PhasePlan base, double[] flowRatios) {
+        List<PhasePlan.Phase> phases = base.getPhases();
+        int[] servedBy = new int[flowRatios.length];
+        for (PhasePlan.Phase phase : phases) {
+            for (int i = 0; i < flowRatios.length; i++) {
+                if ((phase.getGreenMask() & (1 << i)) != 0) {
+                    servedBy[i]++;
+                }
+            }
+        }
+        
+        // Critical ratio per phase; an approach green in several phases shares its demand between them
+        double[] critical = new double[phases.size()];
+        double totalRatio = 0;
+        int lostSeconds = 0;
+        for (int p = 0; p < phases.size(); p++) {
+            PhasePlan.Phase phase = phases.get(p);
+            for (int i = 0; i < flowRatios.length; i++) {
+                if ((phase.getGreenMask() & (1 << i)) != 0) {
+                    critical[p] = Math.max(critical[p], flowRatios[i] / servedBy[i]);
+                }
+            }
+            totalRatio += critical[p];
+            lostSeconds += phase.getYellowSeconds() + phase.getAllRedSeconds();
+        }
+        if (totalRatio <= 0) {
+            return null;
+        }
+        
+        int minCycle = Math.max(MIN_CYCLE_SECONDS, lostSeconds + MIN_GREEN_SECONDS * phases.size());
+        double cycle = totalRatio >= MAX_FLOW_RATIO ? MAX_CYCLE_SECONDS : (1.5 * lostSeconds + 5) / (1 - totalRatio);
+        cycle = Math.min(Math.max(cycle, minCycle), Math.max(MAX_CYCLE_SECONDS, minCycle));
+        
+        double effectiveGreen = cycle - lostSeconds;
+        int[] greens = new int[phases.size()];
+        for (int p = 0; p < greens.length; p++) {
+            greens[p] = Math.max(MIN_GREEN_SECONDS, (int) Math.round(effectiveGreen * critical[p] / totalRatio));
+        }
+        return greens;
+    }
+    
+    private static PhasePlan withGreens(PhasePlan base, int[] greens) {
+        List<PhasePlan.Phase> timed = new ArrayList<>(greens.length);
+        for (int p = 0; p < greens.length; p++) {
+            timed.add(base.getPhases().get(p).withGreenSeconds(greens[p]));
+        }
+        return new PhasePlan(base.getPlanId(), timed);
+    }
+    
+    private static class TimingKey {
+        private final PhasePlan base;
+        private final int[] greens;
+        
+        TimingKey(PhasePlan base, int[] greens) {
+            this.base = base;
+            this.greens = greens;
+        }
+        
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof TimingKey && ((TimingKey) other).base == base
+                && Arrays.equals(((TimingKey) other).greens, greens);
+        }
+        
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(base) * 31 + Arrays.hashCode(greens);
+        }
+    }
+    
+    public long getIntervalMillis() {
+        return intervalMillis;
+    }
+    
+    public long getLastBatchMillis() {
+        return lastBatchNanos / 1_000_000;
+    }
+    
+    public int getLastRecomputed() {
+        return lastRecomputed;
+    }
+    
+    public int getLastChanged() {
+        return lastChanged;
+    }
+}
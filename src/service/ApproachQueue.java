@@ -0,0 +1,94 @@
+package service;
+
+import util.LongRingBuffer;
+
+// Vehicles waiting on one approach, as entry times in a primitive ring. While the approach is
+// green they leave one saturation headway apart, starting one headway after the green begins.
+// Departures are not scheduled: every arrival, transition or query first discharges whatever
+// would have left by then, so an idle approach costs nothing.
+class ApproachQueue {
+    private static final int INITIAL_QUEUE = 4;
+    private static final int MAX_QUEUE = 4096;
+    
+    private final long headwayMillis;
+    private final LongRingBuffer waiting;
+    private boolean green;
+    private long nextDeparture;
+    private long discharged;
+    private long totalDelay;
+    private int maxLength;
+    private long dropped;
+    
+    ApproachQueue(long headwayMillis, boolean green, long time) {
+        this.headwayMillis = headwayMillis;
+        this.waiting = new LongRingBuffer(INITIAL_QUEUE, MAX_QUEUE);
+        this.green = green;
+        this.nextDeparture = time;
+    }
+    
+    synchronized void arrive(long entryTime) {
+        discharge(entryTime);
+        if (green && waiting.isEmpty() && nextDeparture <= entryTime) {
+            depart(entryTime, entryTime);
+            return;
+        }
+        if (!waiting.addLast(entryTime)) {
+            dropped++;
+            return;
+        }
+        maxLength = Math.max(maxLength, waiting.size());
+    }
+    
+    synchronized void setGreen(boolean nowGreen, long time) {
+        discharge(time);
+        if (nowGreen && !green) {
+            nextDeparture = time + headwayMillis;
+        }
+        green = nowGreen;
+    }
+    
+    private void discharge(long now) {
+        if (!green) {
+            return;
+        }
+        while (!waiting.isEmpty()) {
+            long entryTime = waiting.peekFirst();
+            long departure = Math.max(nextDeparture, entryTime);
+            if (departure > now) {
+                return;
+            }
+            waiting.removeFirst();
+            depart(entryTime, departure);
+        }
+    }
+    
+    private void depart(long entryTime, long departure) {
+        discharged++;
+        totalDelay += departure - entryTime;
+        nextDeparture = departure + headwayMillis;
+    }
+    
+    synchronized int length(long now) {
+        discharge(now);
+        return waiting.size();
+    }
+    
+    synchronized long getDischarged(long now) {
+        discharge(now);
+        return discharged;
+    }
+    
+    // Summed over discharged vehicles, from entry to departure
+    synchronized long getTotalDelay(long now) {
+        discharge(now);
+        return totalDelay;
+    }
+    
+    synchronized int getMaxLength() {
+        return maxLength;
+    }
+    
+    synchronized long getDropped() {
+        return dropped;
+    }
+}
@@ -0,0 +1,62 @@
+package service;
+
+import metrics.WindowedCounter;
+import metrics.WindowedHistogram;
+import util.LongRingBuffer;
+
+// One approach of one intersection: windowed arrivals, windowed waits, and the entry times of
+// vehicles held at the signal. The queue only grows past its high-water mark, so steady-state
+// arrivals allocate nothing. Arrivals on green touch only the lock-free windows. Arrivals on
+// red take the approach's lock, which orders them against the drain when the signal greens:
+// a lock-free queue would have to hand each held vehicle to exactly one drain, and the lock is
+// only ever contended by that one drain per cycle.
+class ApproachStatistics {
+    private static final int INITIAL_QUEUE = 8;
+    private static final int MAX_QUEUE = 4096;
+    
+    private final WindowedCounter arrivals;
+    private final WindowedHistogram waits;
+    private final LongRingBuffer waiting;
+    private long dropped;
+    
+    ApproachStatistics(long windowMillis, int buckets, long maxWaitMillis, int waitUnitBits) {
+        this.arrivals = new WindowedCounter(windowMillis, buckets);
+        this.waits = new WindowedHistogram(windowMillis, buckets, maxWaitMillis, waitUnitBits);
+        this.waiting = new LongRingBuffer(INITIAL_QUEUE, MAX_QUEUE);
+    }
+    
+    // Vehicles arriving on green pass without waiting and record zero
+    void arrive(long entryTime, boolean green) {
+        arrivals.increment(entryTime);
+        if (green) {
+            waits.record(entryTime, 0);
+            return;
+        }
+        
+        synchronized (this) {
+            if (!waiting.addLast(entryTime)) {
+                dropped++;
+            }
+        }
+    }
+    
+    // The signal turned green: every held vehicle has waited until now
+    synchronized void release(long time) {
+        for (int i = 0; i < waiting.size(); i++) {
+            waits.record(time, Math.max(0, time - waiting.get(i)));
+        }
+        waiting.clear();
+    }
+    
+    WindowedCounter getArrivals() {
+        return arrivals;
+    }
+    
+    WindowedHistogram getWaits() {
+        return waits;
+    }
+    
+    synchronized long getDropped() {
+        return dropped;
+    }
+}
@@ -0,0 +1,237 @@
+package service;
+
+import model.*;
+import util.CSVFileHandler;
+import util.FileOperationException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Incremental checkpoints: arrivals and signal changes mark their intersection dirty, a
+// background thread periodically writes only the dirty rows to a numbered delta file, and
+// compaction folds the deltas into intersections.csv / signals.csv. Every file is written
+// to a temp file and atomically renamed. Deltas hold absolute values, so re-applying a
+// delta that was already folded (after a crash mid-compaction) changes nothing. An
+// intersection handed to another node is written as a removal row, which deletes its rows.
+public class CheckpointService implements IntersectionListener {
+    private static final String DELTA_PREFIX = "delta-";
+    private static final String DELTA_SUFFIX = ".csv";
+    private static final String INTERSECTION_ROW = "I";
+    private static final String SIGNAL_ROW = "S";
+    // X, intersection ID, then the IDs of its signals
+    private static final String REMOVAL_ROW = "X";
+    
+    private final File directory;
+    private final String intersectionsFile;
+    private final String signalsFile;
+    private final int compactEvery;
+    private final Queue<Intersection> dirtyIntersections;
+    private final List<Intersection> removed;
+    private ScheduledExecutorService executor;
+    private long nextDelta;
+    private int deltasSinceCompaction;
+    
+    public CheckpointService(String directory, String intersectionsFile, String signalsFile, int compactEvery)
+            throws FileOperationException {
+        this.directory = new File(directory);
+        this.intersectionsFile = intersectionsFile;
+        this.signalsFile = signalsFile;
+        this.compactEvery = Math.max(compactEvery, 1);
+        this.dirtyIntersections = new ConcurrentLinkedQueue<>();
+        this.removed = new ArrayList<>();
+        
+        if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+            throw new FileOperationException("Error creating checkpoint directory: " + directory,
+                new IOException("mkdirs failed"));
+        }
+        List<File> deltas = listDeltas(this.directory);
+        this.nextDelta = deltas.isEmpty() ? 0 : deltaNumber(deltas.get(deltas.size() - 1)) + 1;
+    }
+    
+    // Folds deltas left behind by an earlier run into the CSVs; call before loading them
+    public static void recover(String directory, String intersectionsFile, String signalsFile)
+            throws FileOperationException {
+        File dir = new File(directory);
+        if (dir.isDirectory()) {
+            fold(listDeltas(dir), intersectionsFile, signalsFile);
+        }
+    }
+    
+    public void start(long intervalMillis) {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> {
+            try {
+                checkpoint();
+            } catch (FileOperationException e) {
+                System.err.println("Checkpoint failed: " + e.getMessage());
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+    
+    // Stops the background thread and writes whatever is still dirty
+    public void stop() throws FileOperationException {
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        checkpoint();
+    }
+    
+    public void markDirty(Intersection intersection) {
+        if (intersection.markDirty()) {
+            dirtyIntersections.add(intersection);
+        }
+    }
+    
+    // For an intersection that is no longer held here: its pending rows are dropped and the
+    // next delta removes it from the CSVs. Call once it has stopped and lost its listener.
+    public synchronized void forget(Intersection intersection) {
+        dirtyIntersections.remove(intersection);
+        removed.add(intersection);
+    }
+    
+    @Override
+    public void onSignalChange(Intersection intersection, int signalIndex, SignalState oldState,
+                               SignalState newState, long time) {
+        markDirty(intersection);
+    }
+    
+    @Override
+    public void onVehicleArrival(Intersection intersection, Direction approach, VehicleType type, long time) {
+        markDirty(intersection);
+    }
+    
+    // Writes one delta with the rows of every intersection changed since the last one
+    public synchronized void checkpoint() throws FileOperationException {
+        List<Intersection> changed = new ArrayList<>();
+        Intersection intersection;
+        while ((intersection = dirtyIntersections.poll()) != null) {
+            // Cleared before reading, so a concurrent change re-queues the intersection
+            intersection.clearDirty();
+            changed.add(intersection);
+        }
+        if (changed.isEmpty() && removed.isEmpty()) {
+            return;
+        }
+        // Removals go first: forget() took the intersection out of the queue, so any row
+        // for the same ID below belongs to a later import
+        List<Intersection> gone = new ArrayList<>(removed);
+        removed.clear();
+        
+        File delta = new File(directory, String.format("%s%012d%s", DELTA_PREFIX, nextDelta++, DELTA_SUFFIX));
+        CSVFileHandler.writeRecords(delta.getPath(), out -> {
+            for (Intersection row : gone) {
+                out.field(REMOVAL_ROW);
+                out.field(row.getIntersectionId());
+                for (TrafficSignal signal : row.getSignals()) {
+                    out.field(signal.getSignalId());
+                }
+                out.endRecord();
+            }
+            for (Intersection row : changed) {
+                out.field(INTERSECTION_ROW);
+                row.writeCSV(out);
+                SignalSnapshot snapshot = row.snapshotSignals();
+                for (TrafficSignal signal : row.getSignals()) {
+                    out.field(SIGNAL_ROW);
+                    signal.writeCSV(out, snapshot);
+                }
+            }
+        });
+        
+        if (++deltasSinceCompaction >= compactEvery) {
+            compact();
+        }
+    }
+    
+    // Folds every delta written so far into the CSVs, then removes those deltas
+    public synchronized void compact() throws FileOperationException {
+        fold(listDeltas(directory), intersectionsFile, signalsFile);
+        deltasSinceCompaction = 0;
+    }
+    
+    private static void fold(List<File> deltas, String intersectionsFile, String signalsFile)
+            throws FileOperationException {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        
+        Map<String, String[]> intersections = readBase(intersectionsFile);
+        Map<String, String[]> signals = readBase(signalsFile);
+        for (File delta : deltas) {
+            CSVFileHandler.forEachRecord(delta.getPath(), record -> {
+                String[] fields = record.toArray();
+                String[] row = Arrays.copyOfRange(fields, 1, fields.length);
+                if (record.fieldEquals(0, INTERSECTION_ROW)) {
+                    intersections.put(row[0], row);
+                } else if (record.fieldEquals(0, SIGNAL_ROW)) {
+                    signals.put(row[0], row);
+                } else if (record.fieldEquals(0, REMOVAL_ROW)) {
+                    intersections.remove(row[0]);
+                    for (int i = 1; i < row.length; i++) {
+                        signals.remove(row[i]);
+                    }
+                }
+            });
+        }
+        
+        CSVFileHandler.writeRecords(intersectionsFile, out -> {
+            out.record("IntersectionID", "Location", "VehicleCount");
+            for (String[] row : intersections.values()) {
+                out.record(row);
+            }
+        });
+        CSVFileHandler.writeRecords(signalsFile, out -> {
+            out.record("SignalID", "Direction", "State", "Duration");
+            for (String[] row : signals.values()) {
+                out.record(row);
+            }
+        });
+        
+        for (File delta : deltas) {
+            if (!delta.delete()) {
+                System.err.println("Could not remove folded checkpoint " + delta);
+            }
+        }
+    }
+    
+    private static Map<String, String[]> readBase(String filename) throws FileOperationException {
+        Map<String, String[]> rows = new LinkedHashMap<>();
+        CSVFileHandler.forEachRecord(filename, record -> {
+            if (record.getRecordNumber() > 0 && record.size() > 0) {
+                rows.put(record.getString(0), record.toArray());
+            }
+        });
+        return rows;
+    }
+    
+    private static List<File> listDeltas(File directory) {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(DELTA_PREFIX) && name.endsWith(DELTA_SUFFIX));
+        List<File> deltas = files == null ? new ArrayList<>() : new ArrayList<>(Arrays.asList(files));
+        deltas.sort(null); // zero-padded numbers sort in write order
+        return deltas;
+    }
+    
+    private static long deltaNumber(File delta) {
+        String name = delta.getName();
+        return Long.parseLong(name.substring(DELTA_PREFIX.length(), name.length() - DELTA_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,19 @@
+package service;
+
+public enum ExecutionMode {
+    THREAD_PER_TASK,
+    VIRTUAL_THREADS,
+    TIMER_WHEEL,
+    DISCRETE_EVENT;
+    
+    public static final String PROPERTY = "traffic.execution";
+    
+    // Reads -Dtraffic.execution=..., falling back to one thread per controller/simulator
+    public static ExecutionMode fromSystemProperty() {
+        String value = System.getProperty(PROPERTY);
+        if (value == null || value.trim().isEmpty()) {
+            return THREAD_PER_TASK;
+        }
+        return valueOf(value.trim().toUpperCase().replace('-', '_'));
+    }
+}
@@ -0,0 +1,95 @@
+package service;
+
+import engine.TaskHandle;
+import model.Intersection;
+import model.PhasePlan;
+
+// Everything the manager tracks for one intersection. Lifecycle transitions run under the
+// handle's own monitor, so a start and a stop of the same intersection never interleave
+// while different intersections never contend; state reads take no lock.
+public class IntersectionHandle {
+    public enum State {
+        STOPPED,
+        RUNNING
+    }
+    
+    private final Intersection intersection;
+    private volatile State state;
+    private volatile SignalController controller;
+    private volatile TrafficSimulator simulator;
+    private TaskHandle signalTask;
+    private TaskHandle simulatorTask;
+    // Adaptive timing: arrivals per approach at the last recompute, written only by the batch
+    // task for this handle, and the plan it last pushed, cleared when the base plan changes
+    private long[] demandBaseline;
+    private volatile PhasePlan adaptivePlan;
+    
+    IntersectionHandle(Intersection intersection) {
+        this.intersection = intersection;
+        this.state = State.STOPPED;
+    }
+    
+    public Intersection getIntersection() {
+        return intersection;
+    }
+    
+    public String getId() {
+        return intersection.getIntersectionId();
+    }
+    
+    public State getState() {
+        return state;
+    }
+    
+    public boolean isRunning() {
+        return state == State.RUNNING;
+    }
+    
+    // The most recently started controller and simulator; null until the first start
+    public SignalController getController() {
+        return controller;
+    }
+    
+    public TrafficSimulator getSimulator() {
+        return simulator;
+    }
+    
+    // Callers hold the handle's monitor
+    void started(SignalController controller, TrafficSimulator simulator, TaskHandle signalTask, TaskHandle simulatorTask) {
+        this.controller = controller;
+        this.simulator = simulator;
+        this.signalTask = signalTask;
+        this.simulatorTask = simulatorTask;
+        this.state = State.RUNNING;
+    }
+    
+    long[] getDemandBaseline() {
+        return demandBaseline;
+    }
+    
+    void setDemandBaseline(long[] demandBaseline) {
+        this.demandBaseline = demandBaseline;
+    }
+    
+    PhasePlan getAdaptivePlan() {
+        return adaptivePlan;
+    }
+    
+    void setAdaptivePlan(PhasePlan adaptivePlan) {
+        this.adaptivePlan = adaptivePlan;
+    }
+    
+    synchronized boolean stop() {
+        if (state != State.RUNNING) {
+            return false;
+        }
+        controller.stop();
+        simulator.stop();
+        signalTask.cancel();
+        simulatorTask.cancel();
+        signalTask = null;
+        simulatorTask = null;
+        state = State.STOPPED;
+        return true;
+    }
+}
@@ -0,0 +1,110 @@
+package service;
+
+import model.Intersection;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+// One concurrent map of intersection handles in place of parallel per-field maps. Lookups
+// never lock, iteration is weakly consistent (it sees a live, possibly changing registry and
+// never throws ConcurrentModificationException), and bulk operations can fan out across the
+// fork-join pool through the map's own parallel traversal.
+public class IntersectionRegistry {
+    // Below this many handles a bulk operation runs on the calling thread
+    private static final long PARALLELISM_THRESHOLD = 1024;
+    
+    private final ConcurrentHashMap<String, IntersectionHandle> handles;
+    private final Map<String, Intersection> intersections;
+    
+    public IntersectionRegistry() {
+        this.handles = new ConcurrentHashMap<>();
+        this.intersections = new IntersectionView();
+    }
+    
+    public IntersectionHandle get(String id) {
+        return handles.get(id);
+    }
+    
+    public Intersection getIntersection(String id) {
+        IntersectionHandle handle = handles.get(id);
+        return handle == null ? null : handle.getIntersection();
+    }
+    
+    // Returns the handle already registered under the same ID, or null if this one was added
+    IntersectionHandle putIfAbsent(IntersectionHandle handle) {
+        return handles.putIfAbsent(handle.getId(), handle);
+    }
+    
+    IntersectionHandle remove(String id) {
+        return handles.remove(id);
+    }
+    
+    public int size() {
+        return handles.size();
+    }
+    
+    public Collection<IntersectionHandle> handles() {
+        return handles.values();
+    }
+    
+    // Read-only live view keyed by intersection ID
+    public Map<String, Intersection> intersections() {
+        return intersections;
+    }
+    
+    void forEach(boolean parallel, Consumer<IntersectionHandle> action) {
+        handles.forEachValue(parallel ? PARALLELISM_THRESHOLD : Long.MAX_VALUE, action);
+    }
+    
+    private class IntersectionView extends AbstractMap<String, Intersection> {
+        
+        @Override
+        public Intersection get(Object id) {
+            IntersectionHandle handle = handles.get(id);
+            return handle == null ? null : handle.getIntersection();
+        }
+        
+        @Override
+        public boolean containsKey(Object id) {
+            return handles.containsKey(id);
+        }
+        
+        @Override
+        public int size() {
+            return handles.size();
+        }
+        
+        @Override
+        public Set<Entry<String, Intersection>> entrySet() {
+            return new AbstractSet<Entry<String, Intersection>>() {
+                @Override
+                public Iterator<Entry<String, Intersection>> iterator() {
+                    Iterator<IntersectionHandle> values = handles.values().iterator();
+                    return new Iterator<Entry<String, Intersection>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return values.hasNext();
+                        }
+                        
+                        @Override
+                        public Entry<String, Intersection> next() {
+                            IntersectionHandle handle = values.next();
+                            return new SimpleImmutableEntry<>(handle.getId(), handle.getIntersection());
+                        }
+                    };
+                }
+                
+                @Override
+                public int size() {
+                    return handles.size();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package service;
+
+import model.*;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Fans intersection events out to every registered listener; iteration never locks
+public class ListenerChain implements IntersectionListener {
+    private final CopyOnWriteArrayList<IntersectionListener> listeners;
+    
+    public ListenerChain() {
+        this.listeners = new CopyOnWriteArrayList<>();
+    }
+    
+    public void add(IntersectionListener listener) {
+        listeners.addIfAbsent(listener);
+    }
+    
+    public void remove(IntersectionListener listener) {
+        listeners.remove(listener);
+    }
+    
+    @Override
+    public void onSignalChange(Intersection intersection, int signalIndex, SignalState oldState,
+                               SignalState newState, long time) {
+        for (IntersectionListener listener : listeners) {
+            listener.onSignalChange(intersection, signalIndex, oldState, newState, time);
+        }
+    }
+    
+    @Override
+    public void onVehicleArrival(Intersection intersection, Direction approach, VehicleType type, long time) {
+        for (IntersectionListener listener : listeners) {
+            listener.onVehicleArrival(intersection, approach, type, time);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package service;
+
+import model.Direction;
+import model.PhasePlan;
+import util.CSVFileHandler;
+import util.CSVRecord;
+import util.FileOperationException;
+import util.InvalidSignalException;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Named phase plans and which intersection runs which. Plans are read from a CSV with one row
+// per phase, in cycle order:
+//   PlanID,Greens,GreenSeconds,YellowSeconds,AllRedSeconds
+//   PROTECTED_N,N,12,4,1
+// where Greens lists the approaches' suffixes (N, S, E, W). Assignments are a second CSV of
+// IntersectionID,PlanID rows. A plan named DEFAULT replaces the built-in two-phase plan for
+// unassigned intersections; missing files leave everything on the defaults.
+public class PhasePlans {
+    private final Map<String, PhasePlan> plans;
+    private final ConcurrentHashMap<String, PhasePlan> assignments;
+    private volatile PhasePlan defaultPlan;
+    
+    public PhasePlans() {
+        this.plans = new ConcurrentHashMap<>();
+        this.assignments = new ConcurrentHashMap<>();
+        this.defaultPlan = PhasePlan.DEFAULT;
+        plans.put(defaultPlan.getPlanId(), defaultPlan);
+    }
+    
+    public static PhasePlans load(String plansFile, String assignmentsFile) throws FileOperationException, InvalidSignalException {
+        Map<String, List<PhasePlan.Phase>> phases = new LinkedHashMap<>();
+        List<String> errors = new ArrayList<>();
+        CSVFileHandler.forEachRecord(plansFile, record -> {
+            if (record.getRecordNumber() == 0 || record.size() == 0) {
+                return;
+            }
+            try {
+                phases.computeIfAbsent(record.getString(0), id -> new ArrayList<>()).add(parsePhase(record));
+            } catch (RuntimeException e) {
+                errors.add(plansFile + " row " + record.getRecordNumber() + ": " + e.getMessage());
+            }
+        });
+        
+        PhasePlans loaded = new PhasePlans();
+        for (Map.Entry<String, List<PhasePlan.Phase>> entry : phases.entrySet()) {
+            try {
+                loaded.add(new PhasePlan(entry.getKey(), entry.getValue()));
+            } catch (IllegalArgumentException e) {
+                errors.add(plansFile + ": " + e.getMessage());
+            }
+        }
+        
+        CSVFileHandler.forEachRecord(assignmentsFile, record -> {
+            if (record.getRecordNumber() == 0 || record.size() < 2) {
+                return;
+            }
+            PhasePlan plan = loaded.get(record.getString(1));
+            if (plan == null) {
+                errors.add(assignmentsFile + " row " + record.getRecordNumber() + ": unknown plan " + record.getString(1));
+            } else {
+                loaded.assign(record.getString(0), plan);
+            }
+        });
+        
+        if (!errors.isEmpty()) {
+            throw new InvalidSignalException("Invalid phase plans: " + String.join("; ", errors));
+        }
+        return loaded;
+    }
+    
+    private static PhasePlan.Phase parsePhase(CSVRecord record) {
+        if (record.size() < 5) {
+            throw new IllegalArgumentException("expected PlanID,Greens,GreenSeconds,YellowSeconds,AllRedSeconds");
+        }
+        Set<Direction> greens = EnumSet.noneOf(Direction.class);
+        String letters = record.getString(1).trim();
+        for (int i = 0; i < letters.length(); i++) {
+            greens.add(direction(letters.charAt(i)));
+        }
+        return new PhasePlan.Phase(greens, record.getInt(2), record.getInt(3), record.getInt(4));
+    }
+    
+    private static Direction direction(char suffix) {
+        for (Direction direction : Direction.values()) {
+            if (direction.getSuffix().charAt(0) == Character.toUpperCase(suffix)) {
+                return direction;
+            }
+        }
+        throw new IllegalArgumentException("unknown approach '" + suffix + "'");
+    }
+    
+    public void add(PhasePlan plan) {
+        plans.put(plan.getPlanId(), plan);
+        if (plan.getPlanId().equals(PhasePlan.DEFAULT.getPlanId())) {
+            defaultPlan = plan;
+        }
+    }
+    
+    public PhasePlan get(String planId) {
+        return plans.get(planId);
+    }
+    
+    public void assign(String intersectionId, PhasePlan plan) {
+        assignments.put(intersectionId, plan);
+    }
+    
+    public PhasePlan planFor(String intersectionId) {
+        PhasePlan plan = assignments.get(intersectionId);
+        return plan != null ? plan : defaultPlan;
+    }
+    
+    public int size() {
+        return plans.size();
+    }
+    
+    public int getAssignmentCount() {
+        return assignments.size();
+    }
+}
@@ -0,0 +1,29 @@
+package service;
+
+import metrics.LogLinearHistogram;
+
+public class PreemptionMetrics {
+    private final LogLinearHistogram responseNanos;
+    private final LogLinearHistogram arrivalToGreenMillis;
+    
+    public PreemptionMetrics() {
+        this.responseNanos = new LogLinearHistogram();
+        this.arrivalToGreenMillis = new LogLinearHistogram();
+    }
+    
+    // Software latency: emergency arrival until the controller applied the first preemption transition
+    public LogLinearHistogram getResponseNanos() {
+        return responseNanos;
+    }
+    
+    // Arrival until the vehicle's approach showed green, including any mandatory yellow clearance
+    public LogLinearHistogram getArrivalToGreenMillis() {
+        return arrivalToGreenMillis;
+    }
+    
+    @Override
+    public String toString() {
+        return "Preemption response (ns): " + responseNanos
+            + "\nPreemption arrival-to-green (ms): " + arrivalToGreenMillis;
+    }
+}
@@ -1,19 +1,63 @@
 package service;
 
+import engine.Steppable;
+import logging.EventLog;
+import logging.EventType;
 import model.*;
 import util.InvalidSignalException;
 
-import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 
-public class SignalController implements Runnable {
+public class SignalController implements Runnable, Steppable {
+    public static final int PREEMPTION_PRIORITY = 10;
+    
+    private static final long RETRY_MILLIS = SignalState.YELLOW.getDefaultDuration() * 1000L;
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final int NO_REQUEST = -1;
+    
     private Intersection intersection;
     private volatile boolean running;
-    private int cycleIndex;
+    // The compiled plan is walked step by step; a new plan waits in pendingTable until the
+    // cycle wraps, so a swap never cuts a phase short
+    private PhaseTable table;
+    private volatile PhaseTable pendingTable;
+    private int currentStep;
+    private int nextStep;
+    private long phaseEndTime;
+    
+    // Emergency preemption: requests come from simulator threads, the rest is controller-owned
+    private final AtomicInteger requestedApproach;
+    private volatile long requestNanos;
+    private volatile long requestTime;
+    private volatile Runnable waker;
+    private final ReentrantLock holdLock;
+    private final Condition preempted;
+    private PreemptionMetrics metrics;
+    private Direction preemptingApproach;
+    private long preemptionNanos;
+    private long preemptionTime;
     
     public SignalController(Intersection intersection) {
+        this(intersection, new PreemptionMetrics());
+    }
+    
+    public SignalController(Intersection intersection, PreemptionMetrics metrics) {
+        this(intersection, metrics, PhasePlan.DEFAULT);
+    }
+    
+    public SignalController(Intersection intersection, PreemptionMetrics metrics, PhasePlan plan) {
         this.intersection = intersection;
         this.running = true;
-        this.cycleIndex = 0;
+        this.table = plan.getTable();
+        this.currentStep = -1;
+        this.nextStep = 0;
+        this.metrics = metrics;
+        this.requestedApproach = new AtomicInteger(NO_REQUEST);
+        this.holdLock = new ReentrantLock();
+        this.preempted = holdLock.newCondition();
     }
     
     @Override
@@ -22,7 +66,7 @@ public class SignalController implements Runnable {
         
         while (running) {
             try {
-                controlSignalCycle();
+                holdPhase(advancePhase());
             } catch (InvalidSignalException e) {
                 System.err.println("Signal Error: " + e.getMessage());
             } catch (InterruptedException e) {
@@ -32,48 +76,147 @@ public class SignalController implements Runnable {
         }
     }
     
-    private void controlSignalCycle() throws InvalidSignalException, InterruptedException {
-        List<TrafficSignal> signals = intersection.getSignals();
+    @Override
+    public long step() {
+        if (!running) {
+            return -1;
+        }
+        
+        try {
+            return advancePhase();
+        } catch (InvalidSignalException e) {
+            System.err.println("Signal Error: " + e.getMessage());
+            return RETRY_MILLIS;
+        }
+    }
+    
+    // Takes effect when the running cycle completes, without stopping the controller
+    public void setPlan(PhasePlan plan) {
+        pendingTable = plan.getTable();
+    }
+    
+    // Scheduler-driven controllers are woken through their task instead of the hold condition
+    public void setWaker(Runnable waker) {
+        this.waker = waker;
+    }
+    
+    // Called on the arrival thread; wakes the controller immediately rather than waiting for the phase to end
+    public void requestPreemption(Direction approach) {
+        requestNanos = System.nanoTime();
+        requestTime = intersection.getClock().currentTimeMillis();
+        requestedApproach.set(approach.getSignalIndex());
+        
+        holdLock.lock();
+        try {
+            preempted.signalAll();
+        } finally {
+            holdLock.unlock();
+        }
+        
+        Runnable currentWaker = waker;
+        if (currentWaker != null) {
+            currentWaker.run();
+        }
+    }
+    
+    private void holdPhase(long millis) throws InterruptedException {
+        long remaining = TimeUnit.MILLISECONDS.toNanos(millis);
+        holdLock.lock();
+        try {
+            while (remaining > 0 && running && requestedApproach.get() == NO_REQUEST) {
+                remaining = preempted.awaitNanos(remaining);
+            }
+        } finally {
+            holdLock.unlock();
+        }
+    }
+    
+    // Applies the next step (or a preemption transition) and returns how long it should be held
+    private long advancePhase() throws InvalidSignalException {
+        if (intersection.getSignals().size() != table.getWidth()) {
+            throw new InvalidSignalException("Phase plan expects " + table.getWidth() + " signals, intersection has "
+                + intersection.getSignals().size());
+        }
         
-        if (signals.isEmpty()) {
-            throw new InvalidSignalException("No signals found at intersection");
+        int approach = requestedApproach.getAndSet(NO_REQUEST);
+        if (approach != NO_REQUEST) {
+            return preempt(DIRECTIONS[approach]);
         }
         
-        // North-South Green, East-West Red
-        if (cycleIndex == 0) {
-            setSignalStates(signals.get(0), SignalState.GREEN, signals.get(1), SignalState.GREEN,
-                          signals.get(2), SignalState.RED, signals.get(3), SignalState.RED);
-            Thread.sleep(25000); // 25 seconds
-            
-            // Yellow transition
-            setSignalStates(signals.get(0), SignalState.YELLOW, signals.get(1), SignalState.YELLOW,
-                          signals.get(2), SignalState.RED, signals.get(3), SignalState.RED);
-            Thread.sleep(5000); // 5 seconds
+        PhaseTable pending = pendingTable;
+        if (pending != null && preemptingApproach == null && (currentStep == -1 || nextStep == 0)) {
+            if (currentStep != -1 && currentStep < table.getCycleLength()
+                    && (table.getGreenMask(currentStep) & ~pending.getGreenMask(0)) != 0) {
+                // A green held over the wrap would go straight to red in the new plan: clear it through
+                // the outgoing plan's yellow and all-red first, the swap follows when that wraps to step 0
+                return applyStep(table.getCutStep(currentStep));
+            }
+            table = pending;
+            pendingTable = null;
+            nextStep = 0;
+        }
+        return applyStep(nextStep);
+    }
+    
+    private long preempt(Direction approach) {
+        // A preemption already in progress is served first; later requests only re-check it
+        boolean newPreemption = preemptingApproach == null;
+        if (newPreemption) {
+            preemptingApproach = approach;
+            preemptionNanos = requestNanos;
+            preemptionTime = requestTime;
+            EventLog.log(EventType.PREEMPTION, requestTime, intersection, approach.ordinal(), 0);
         }
         
-        // East-West Green, North-South Red
-        else {
-            setSignalStates(signals.get(0), SignalState.RED, signals.get(1), SignalState.RED,
-                          signals.get(2), SignalState.GREEN, signals.get(3), SignalState.GREEN);
-            Thread.sleep(25000);
-            
-            // Yellow transition
-            setSignalStates(signals.get(0), SignalState.RED, signals.get(1), SignalState.RED,
-                          signals.get(2), SignalState.YELLOW, signals.get(3), SignalState.YELLOW);
-            Thread.sleep(5000);
+        long hold;
+        if (currentStep == -1) {
+            hold = applyStep(table.getTargetStep(preemptingApproach));
+        } else if (table.isGreen(currentStep, preemptingApproach)) {
+            // Approach already green; restart its green, or let a held-over green run into the next phase
+            hold = table.isGreenStep(currentStep) ? applyStep(currentStep) : remainingHold();
+        } else if (table.hasGreen(currentStep)) {
+            // Cut the conflicting greens through a full yellow; the preempted green follows it
+            hold = applyStep(table.getCutStep(currentStep));
+        } else {
+            // Never shorten a running clearance interval, just finish it and go to the preempted green
+            hold = remainingHold();
+            boolean clearing = table.hasYellow(currentStep) && table.getClearanceStep() != PhaseTable.NONE;
+            nextStep = clearing ? table.getClearanceStep() : table.getTargetStep(preemptingApproach);
         }
         
-        cycleIndex = (cycleIndex + 1) % 2;
+        if (newPreemption) {
+            metrics.getResponseNanos().record(System.nanoTime() - preemptionNanos);
+        }
+        return hold;
+    }
+    
+    private long remainingHold() {
+        return Math.max(0, phaseEndTime - intersection.getClock().currentTimeMillis());
     }
     
-    private void setSignalStates(TrafficSignal s1, SignalState state1, TrafficSignal s2, SignalState state2,
-                                 TrafficSignal s3, SignalState state3, TrafficSignal s4, SignalState state4) {
-        s1.changeState(state1);
-        s2.changeState(state2);
-        s3.changeState(state3);
-        s4.changeState(state4);
+    private long applyStep(int step) {
+        // All signals switch in one write section, so no reader sees conflicting greens
+        intersection.changeSignalStates(table.getStates(step));
+        long holdMillis = table.getHoldMillis(step);
         
-        System.out.println("[" + intersection.getIntersectionId() + "] Signals updated");
+        long now = intersection.getClock().currentTimeMillis();
+        currentStep = step;
+        nextStep = table.getNext(step);
+        if (nextStep == PhaseTable.PREEMPTION_TARGET) {
+            nextStep = preemptingApproach != null ? table.getTargetStep(preemptingApproach) : 0;
+        }
+        phaseEndTime = now + holdMillis;
+        EventLog.log(EventType.SIGNALS_UPDATED, now, intersection, table.getPhase(step), step);
+        
+        if (preemptingApproach != null && table.isGreenStep(step) && table.isGreen(step, preemptingApproach)) {
+            metrics.getArrivalToGreenMillis().record(now - preemptionTime);
+            preemptingApproach = null;
+        }
+        return holdMillis;
+    }
+    
+    public PreemptionMetrics getPreemptionMetrics() {
+        return metrics;
     }
     
     public void stop() {
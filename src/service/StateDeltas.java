@@ -0,0 +1,130 @@
+package service;
+
+import model.*;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Which intersections changed since the last drain. Events set one bit per intersection
+// (by its dense index), so any number of signal changes and arrivals between two drains
+// coalesce into a single entry, and an intersection whose bit is already set costs one read.
+// A single consumer drains the bits and reads the current state, which is always absolute,
+// so a reader that missed drains can catch up from a full pass (forEach).
+public class StateDeltas implements IntersectionListener {
+    private static final int SEGMENT_BITS = 10;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    
+    public interface Visitor {
+        
+        // intersection is null when the one at this index has been removed
+        void visit(int index, Intersection intersection);
+    }
+    
+    // Indices are dense, so bits and members live in fixed-size segments created on first use
+    private static final class Segment {
+        final AtomicLongArray dirty = new AtomicLongArray(SEGMENT_SIZE / Long.SIZE);
+        final AtomicReferenceArray<Intersection> members = new AtomicReferenceArray<>(SEGMENT_SIZE);
+    }
+    
+    private volatile Segment[] segments;
+    
+    public StateDeltas() {
+        this.segments = new Segment[16];
+    }
+    
+    public void register(Intersection intersection) {
+        int index = intersection.getIndex();
+        segment(index).members.set(index & (SEGMENT_SIZE - 1), intersection);
+        mark(index);
+    }
+    
+    public void unregister(Intersection intersection) {
+        int index = intersection.getIndex();
+        segment(index).members.compareAndSet(index & (SEGMENT_SIZE - 1), intersection, null);
+        mark(index);
+    }
+    
+    @Override
+    public void onSignalChange(Intersection intersection, int signalIndex, SignalState oldState,
+                               SignalState newState, long time) {
+        mark(intersection.getIndex());
+    }
+    
+    @Override
+    public void onVehicleArrival(Intersection intersection, Direction approach, VehicleType type, long time) {
+        mark(intersection.getIndex());
+    }
+    
+    private void mark(int index) {
+        AtomicLongArray dirty = segment(index).dirty;
+        int word = (index & (SEGMENT_SIZE - 1)) >>> 6;
+        long bit = 1L << index;
+        long current = dirty.get(word);
+        while ((current & bit) == 0 && !dirty.weakCompareAndSetVolatile(word, current, current | bit)) {
+            current = dirty.get(word);
+        }
+    }
+    
+    private Segment segment(int index) {
+        int number = index >>> SEGMENT_BITS;
+        Segment[] current = segments;
+        Segment segment = number < current.length ? current[number] : null;
+        return segment != null ? segment : createSegment(number);
+    }
+    
+    private synchronized Segment createSegment(int number) {
+        Segment[] current = segments;
+        if (number >= current.length) {
+            Segment[] grown = new Segment[Math.max(number + 1, current.length * 2)];
+            System.arraycopy(current, 0, grown, 0, current.length);
+            current = grown;
+        }
+        if (current[number] == null) {
+            current[number] = new Segment();
+        }
+        segments = current;
+        return current[number];
+    }
+    
+    // Clears every bit and visits the marked intersections in index order; one caller at a time
+    public int drain(Visitor visitor) {
+        int visited = 0;
+        Segment[] current = segments;
+        for (int number = 0; number < current.length; number++) {
+            Segment segment = current[number];
+            if (segment == null) {
+                continue;
+            }
+            for (int word = 0; word < SEGMENT_SIZE / Long.SIZE; word++) {
+                if (segment.dirty.get(word) == 0) {
+                    continue;
+                }
+                long bits = segment.dirty.getAndSet(word, 0);
+                while (bits != 0) {
+                    int offset = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    visitor.visit((number << SEGMENT_BITS) + offset, segment.members.get(offset));
+                    visited++;
+                }
+            }
+        }
+        return visited;
+    }
+    
+    // Visits every registered intersection in index order without touching the bits
+    public void forEach(Visitor visitor) {
+        Segment[] current = segments;
+        for (int number = 0; number < current.length; number++) {
+            Segment segment = current[number];
+            if (segment == null) {
+                continue;
+            }
+            for (int offset = 0; offset < SEGMENT_SIZE; offset++) {
+                Intersection intersection = segment.members.get(offset);
+                if (intersection != null) {
+                    visitor.visit((number << SEGMENT_BITS) + offset, intersection);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package service;
+
+import model.*;
+import util.CSVFileHandler;
+import util.CSVRecord;
+import util.CSVShards;
+import util.Clock;
+import util.FileOperationException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Cold start: each CSV is cut into record-aligned byte ranges that are parsed concurrently
+// on the fork-join pool. Intersections are built per shard and handed back in file order;
+// signal rows then restore state into the already-built intersections, which are only read.
+class StateLoader {
+    private static final int SHARDS_PER_THREAD = 4;
+    private static final Direction[] DIRECTIONS = Direction.values();
+    private static final SignalState[] STATES = SignalState.values();
+    
+    private final Clock clock;
+    private final SignalStore store;
+    private final ForkJoinPool pool;
+    private final AtomicInteger skippedRows;
+    
+    // A null store builds intersections with their own signal objects
+    StateLoader(Clock clock, SignalStore store) {
+        this.clock = clock;
+        this.store = store;
+        this.pool = ForkJoinPool.commonPool();
+        this.skippedRows = new AtomicInteger();
+    }
+    
+    // One list per shard, in file order, with vehicle counts already restored
+    List<List<Intersection>> loadIntersections(String filename) throws FileOperationException {
+        CSVShards shards = CSVFileHandler.split(filename, pool.getParallelism() * SHARDS_PER_THREAD, true);
+        List<Callable<List<Intersection>>> tasks = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            long start = shards.getStart(i);
+            long end = shards.getEnd(i);
+            tasks.add(() -> {
+                List<Intersection> loaded = new ArrayList<>();
+                CSVFileHandler.forEachRecord(filename, start, end, record -> {
+                    Intersection intersection = parseIntersection(record);
+                    if (intersection != null) {
+                        loaded.add(intersection);
+                    }
+                });
+                return loaded;
+            });
+        }
+        return invokeAll(tasks);
+    }
+    
+    // Restores state and duration of every signal whose intersection is registered; returns the count
+    int restoreSignals(String filename, Map<String, Intersection> intersections) throws FileOperationException {
+        CSVShards shards = CSVFileHandler.split(filename, pool.getParallelism() * SHARDS_PER_THREAD, true);
+        long now = clock.currentTimeMillis();
+        List<Callable<Integer>> tasks = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            long start = shards.getStart(i);
+            long end = shards.getEnd(i);
+            tasks.add(() -> {
+                int[] restored = new int[1];
+                CSVFileHandler.forEachRecord(filename, start, end, record -> {
+                    if (restoreSignal(record, intersections, now)) {
+                        restored[0]++;
+                    }
+                });
+                return restored[0];
+            });
+        }
+        
+        int total = 0;
+        for (int restored : invokeAll(tasks)) {
+            total += restored;
+        }
+        return total;
+    }
+    
+    int getSkippedRows() {
+        return skippedRows.get();
+    }
+    
+    private Intersection parseIntersection(CSVRecord record) {
+        if (record.size() < 2) {
+            skippedRows.incrementAndGet();
+            return null;
+        }
+        
+        Intersection intersection = new Intersection(record.getString(0), record.getString(1), clock, store);
+        if (record.size() >= 3 && record.get(2).length() > 0) {
+            try {
+                intersection.restoreVehicleCount(record.getLong(2));
+            } catch (NumberFormatException e) {
+                skippedRows.incrementAndGet();
+            }
+        }
+        return intersection;
+    }
+    
+    private boolean restoreSignal(CSVRecord record, Map<String, Intersection> intersections, long now) {
+        if (record.size() < 4) {
+            skippedRows.incrementAndGet();
+            return false;
+        }
+        
+        // Signal IDs are "<intersection>_<suffix>"; the direction column picks the signal
+        String signalId = record.getString(0);
+        int separator = signalId.lastIndexOf('_');
+        Intersection intersection = separator > 0 ? intersections.get(signalId.substring(0, separator)) : null;
+        Direction direction = match(record, 1, DIRECTIONS);
+        SignalState state = match(record, 2, STATES);
+        if (intersection == null || direction == null || state == null) {
+            skippedRows.incrementAndGet();
+            return false;
+        }
+        
+        try {
+            intersection.getSignals().get(direction.getSignalIndex()).restore(state, record.getInt(3), now);
+            return true;
+        } catch (NumberFormatException | ArithmeticException e) {
+            skippedRows.incrementAndGet();
+            return false;
+        }
+    }
+    
+    private static <E extends Enum<E>> E match(CSVRecord record, int index, E[] values) {
+        for (E value : values) {
+            if (record.fieldEquals(index, value.name())) {
+                return value;
+            }
+        }
+        return null;
+    }
+    
+    private <T> List<T> invokeAll(List<Callable<T>> tasks) throws FileOperationException {
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<T> future : pool.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new FileOperationException("Interrupted while loading data", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof FileOperationException) {
+                throw (FileOperationException) e.getCause();
+            }
+            throw new FileOperationException("Error loading data", e.getCause());
+        }
+        return results;
+    }
+}
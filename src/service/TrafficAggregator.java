@@ -0,0 +1,141 @@
+package service;
+
+import metrics.TopK;
+import model.*;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Report figures maintained as arrivals happen instead of recomputed per report: a striped
+// grand total, one striped total per location and top-K leaders for both. Each arrival costs
+// two counter increments, one map lookup and usually one volatile read per top-K.
+public class TrafficAggregator implements IntersectionListener {
+    private final LongAdder totalVehicles;
+    private final AtomicInteger intersectionCount;
+    private final ConcurrentHashMap<String, LocationTotal> locations;
+    private final TopK<Intersection> busiestIntersections;
+    private final TopK<LocationTotal> busiestLocations;
+    
+    public TrafficAggregator(int topK) {
+        this.totalVehicles = new LongAdder();
+        this.intersectionCount = new AtomicInteger();
+        this.locations = new ConcurrentHashMap<>();
+        this.busiestIntersections = new TopK<>(topK, Intersection::getVehicleCount);
+        this.busiestLocations = new TopK<>(topK, LocationTotal::getCount);
+    }
+    
+    // Counts the intersection, including any total restored from disk, before it sees arrivals
+    public void register(Intersection intersection) {
+        long count = intersection.getVehicleCount();
+        intersectionCount.incrementAndGet();
+        totalVehicles.add(count);
+        LocationTotal location = locations.compute(intersection.getLocation(), (name, total) -> {
+            LocationTotal current = total != null ? total : new LocationTotal(name);
+            current.intersections++;
+            return current;
+        });
+        location.count.add(count);
+        busiestIntersections.offer(intersection, count);
+        busiestLocations.offer(location, location.getCount());
+    }
+    
+    @Override
+    public void onSignalChange(Intersection intersection, int signalIndex, SignalState oldState,
+                               SignalState newState, long time) {
+    }
+    
+    @Override
+    public void onVehicleArrival(Intersection intersection, Direction approach, VehicleType type, long time) {
+        totalVehicles.increment();
+        LocationTotal location = locations.get(intersection.getLocation());
+        if (location != null) {
+            location.count.increment();
+            busiestLocations.offer(location, location.getCount());
+        }
+        busiestIntersections.offer(intersection, intersection.getVehicleCount());
+    }
+    
+    // Takes an intersection that moved elsewhere out of every figure. True if it or its location
+    // was a leader, in which case the caller re-ranks the remaining intersections.
+    public boolean unregister(Intersection intersection) {
+        long count = intersection.getVehicleCount();
+        intersectionCount.decrementAndGet();
+        totalVehicles.add(-count);
+        boolean leaderRemoved = busiestIntersections.remove(intersection);
+        LocationTotal location = locations.get(intersection.getLocation());
+        if (location != null) {
+            location.count.add(-count);
+            leaderRemoved |= busiestLocations.remove(location);
+            locations.computeIfPresent(intersection.getLocation(), (name, total) -> --total.intersections == 0 ? null : total);
+        }
+        return leaderRemoved;
+    }
+    
+    // Offers every remaining intersection and location again after leaders were removed
+    public void rerank(Collection<Intersection> intersections) {
+        for (Intersection intersection : intersections) {
+            busiestIntersections.offer(intersection, intersection.getVehicleCount());
+        }
+        for (LocationTotal location : locations.values()) {
+            busiestLocations.offer(location, location.getCount());
+        }
+    }
+    
+    public long getTotalVehicles() {
+        return totalVehicles.sum();
+    }
+    
+    public int getIntersectionCount() {
+        return intersectionCount.get();
+    }
+    
+    public long getLocationTotal(String location) {
+        LocationTotal total = locations.get(location);
+        return total == null ? 0 : total.getCount();
+    }
+    
+    public int getLocationCount() {
+        return locations.size();
+    }
+    
+    // Vehicles per location, for merging with figures from intersections held elsewhere
+    public Map<String, Long> getLocationTotals() {
+        Map<String, Long> totals = new HashMap<>(locations.size() * 2);
+        for (LocationTotal location : locations.values()) {
+            totals.put(location.name, location.getCount());
+        }
+        return totals;
+    }
+    
+    // O(K log K) regardless of how many intersections are registered
+    public TrafficReport report() {
+        TrafficReport report = new TrafficReport(getTotalVehicles(), getIntersectionCount(), getLocationCount());
+        for (Intersection intersection : busiestIntersections.ranked()) {
+            report.addBusiestIntersection(intersection.getIntersectionId(), intersection.getVehicleCount());
+        }
+        for (LocationTotal location : busiestLocations.ranked()) {
+            report.addBusiestLocation(location.name, location.getCount());
+        }
+        return report;
+    }
+    
+    private static class LocationTotal {
+        private final String name;
+        private final LongAdder count;
+        // Changed only inside the locations map's compute functions
+        private int intersections;
+        
+        LocationTotal(String name) {
+            this.name = name;
+            this.count = new LongAdder();
+        }
+        
+        long getCount() {
+            return count.sum();
+        }
+    }
+}
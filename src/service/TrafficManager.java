@@ -1,131 +1,618 @@
 package service;
 
+import demand.DemandModel;
+import demand.UniformDemand;
+import engine.*;
+import journal.EventJournal;
 import model.*;
 import util.*;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 public class TrafficManager {
-    private Map<String, Intersection> intersections;
-    private Map<String, Thread> signalThreads;
-    private Map<String, Thread> simulatorThreads;
-    private Map<String, SignalController> controllers;
-    private Map<String, TrafficSimulator> simulators;
+    public static final String INTERSECTIONS_FILE = "intersections.csv";
+    public static final String SIGNALS_FILE = "signals.csv";
+    public static final String PHASE_PLANS_FILE = "phase_plans.csv";
+    public static final String PLAN_ASSIGNMENTS_FILE = "phase_plan_assignments.csv";
+    public static final int REPORT_TOP_K = 10;
+    
+    private final IntersectionRegistry registry;
+    private final ExecutionMode executionMode;
+    private Scheduler scheduler;
+    private ThreadTaskRunner threadRunner;
+    private Clock clock;
+    private final Long seed;
+    private final PreemptionMetrics preemptionMetrics;
+    private final AtomicInteger nextIndex;
+    private volatile EventJournal journal;
+    private volatile CheckpointService checkpoints;
+    private final ListenerChain listeners;
+    private final TrafficAggregator aggregator;
+    private volatile TrafficStatistics statistics;
+    private volatile TrafficQueues queues;
+    private volatile StateDeltas stateDeltas;
+    private volatile SignalStore signalStore;
+    private volatile PhasePlans phasePlans;
+    private volatile AdaptiveTiming adaptiveTiming;
+    private TaskHandle adaptiveTask;
+    private volatile DemandModel demandModel;
     
     public TrafficManager() {
-        this.intersections = new HashMap<>();
-        this.signalThreads = new HashMap<>();
-        this.simulatorThreads = new HashMap<>();
-        this.controllers = new HashMap<>();
-        this.simulators = new HashMap<>();
+        this(ExecutionMode.THREAD_PER_TASK);
+    }
+    
+    public TrafficManager(ExecutionMode executionMode) {
+        this(executionMode, null);
+    }
+    
+    // A non-null seed makes every simulator's arrivals reproducible
+    public TrafficManager(ExecutionMode executionMode, Long seed) {
+        this.executionMode = executionMode;
+        this.seed = seed;
+        this.preemptionMetrics = new PreemptionMetrics();
+        this.listeners = new ListenerChain();
+        this.aggregator = new TrafficAggregator(REPORT_TOP_K);
+        listeners.add(aggregator);
+        this.registry = new IntersectionRegistry();
+        this.nextIndex = new AtomicInteger();
+        this.phasePlans = new PhasePlans();
+        this.demandModel = new UniformDemand(UniformDemand.DEFAULT_MEAN_GAP_MILLIS);
+        switch (executionMode) {
+            case TIMER_WHEEL:
+                this.scheduler = new TimerWheelScheduler();
+                break;
+            case DISCRETE_EVENT:
+                this.scheduler = new DiscreteEventScheduler();
+                break;
+            case VIRTUAL_THREADS:
+                this.threadRunner = ThreadTaskRunner.virtualThreads();
+                break;
+            default:
+                this.threadRunner = ThreadTaskRunner.platformThreads();
+                break;
+        }
+        this.clock = scheduler != null ? scheduler.getClock() : Clock.SYSTEM;
     }
     
-    public void addIntersection(String id, String location) {
-        Intersection intersection = new Intersection(id, location);
-        intersections.put(id, intersection);
+    // Safe to call from several threads; an ID that is already registered is left untouched
+    public boolean addIntersection(String id, String location) {
+        Intersection intersection = registry.get(id) == null ? new Intersection(id, location, clock, signalStore) : null;
+        if (intersection == null || !register(intersection)) {
+            System.out.println("Intersection already exists: " + id);
+            return false;
+        }
+        CheckpointService currentCheckpoints = checkpoints;
+        if (currentCheckpoints != null) {
+            currentCheckpoints.markDirty(intersection);
+        }
         System.out.println("Added intersection: " + id + " at " + location);
+        return true;
+    }
+    
+    // The new handle stays locked until it is wired up, so a concurrent start waits for it
+    private boolean register(Intersection intersection) {
+        IntersectionHandle handle = new IntersectionHandle(intersection);
+        synchronized (handle) {
+            if (registry.putIfAbsent(handle) != null) {
+                return false;
+            }
+            intersection.setIndex(nextIndex.getAndIncrement());
+            EventJournal currentJournal = journal;
+            if (currentJournal != null) {
+                currentJournal.defineIntersection(intersection, clock.currentTimeMillis());
+            }
+            aggregator.register(intersection);
+            TrafficStatistics currentStatistics = statistics;
+            if (currentStatistics != null) {
+                currentStatistics.register(intersection);
+            }
+            TrafficQueues currentQueues = queues;
+            if (currentQueues != null) {
+                currentQueues.register(intersection);
+            }
+            StateDeltas currentDeltas = stateDeltas;
+            if (currentDeltas != null) {
+                currentDeltas.register(intersection);
+            }
+            intersection.setListener(listeners);
+        }
+        return true;
+    }
+    
+    // Registers an intersection moved from another node, keeping its vehicle total
+    public boolean importIntersection(String id, String location, long vehicleCount) {
+        if (registry.get(id) != null) {
+            return false;
+        }
+        Intersection intersection = new Intersection(id, location, clock, signalStore);
+        intersection.restoreVehicleCount(vehicleCount);
+        if (!register(intersection)) {
+            return false;
+        }
+        CheckpointService currentCheckpoints = checkpoints;
+        if (currentCheckpoints != null) {
+            currentCheckpoints.markDirty(intersection);
+        }
+        return true;
+    }
+    
+    // Stops and forgets the given intersections so another node can take them over, including
+    // in the checkpoint files; returns the ones that were registered, with their final counts
+    public List<Intersection> releaseIntersections(Collection<String> ids) {
+        List<Intersection> released = new ArrayList<>(ids.size());
+        boolean leaderRemoved = false;
+        for (String id : ids) {
+            IntersectionHandle handle = registry.get(id);
+            if (handle == null) {
+                continue;
+            }
+            synchronized (handle) {
+                handle.stop();
+                registry.remove(id);
+            }
+            Intersection intersection = handle.getIntersection();
+            intersection.setListener(null);
+            CheckpointService currentCheckpoints = checkpoints;
+            if (currentCheckpoints != null) {
+                currentCheckpoints.forget(intersection);
+            }
+            leaderRemoved |= aggregator.unregister(intersection);
+            TrafficStatistics currentStatistics = statistics;
+            if (currentStatistics != null) {
+                currentStatistics.unregister(intersection);
+            }
+            TrafficQueues currentQueues = queues;
+            if (currentQueues != null) {
+                currentQueues.unregister(intersection);
+            }
+            StateDeltas currentDeltas = stateDeltas;
+            if (currentDeltas != null) {
+                currentDeltas.unregister(intersection);
+            }
+            released.add(intersection);
+        }
+        if (leaderRemoved) {
+            aggregator.rerank(registry.intersections().values());
+        }
+        return released;
     }
     
     public void startIntersection(String id) throws InvalidSignalException {
-        Intersection intersection = intersections.get(id);
-        if (intersection == null) {
+        IntersectionHandle handle = registry.get(id);
+        if (handle == null) {
             throw new InvalidSignalException("Intersection not found: " + id);
         }
-        
-        // Start signal controller
-        SignalController controller = new SignalController(intersection);
-        controllers.put(id, controller);
-        Thread signalThread = new Thread(controller);
-        signalThreads.put(id, signalThread);
-        signalThread.start();
-        
-        // Start traffic simulator
-        TrafficSimulator simulator = new TrafficSimulator(intersection);
-        simulators.put(id, simulator);
-        Thread simThread = new Thread(simulator);
-        simulatorThreads.put(id, simThread);
-        simThread.start();
+        start(handle);
+    }
+    
+    // Atomic per intersection; starting one that is already running changes nothing
+    private boolean start(IntersectionHandle handle) {
+        synchronized (handle) {
+            if (handle.isRunning()) {
+                return false;
+            }
+            
+            Intersection intersection = handle.getIntersection();
+            String id = handle.getId();
+            SignalController controller = new SignalController(intersection, preemptionMetrics, phasePlans.planFor(id));
+            // Each simulator owns its stream, seeded from the ID so runs repeat whatever the start order
+            SplittableRandom random = seed == null ? new SplittableRandom() : new SplittableRandom(seed * 31 + id.hashCode());
+            TrafficSimulator simulator = new TrafficSimulator(intersection, random, controller, demandModel);
+            
+            TaskHandle signalTask;
+            TaskHandle simulatorTask;
+            if (scheduler != null) {
+                // Phase changes and arrivals become timer tasks on the shared scheduler
+                SteppedTask signalStepper = new SteppedTask(controller, scheduler);
+                controller.setWaker(signalStepper::wakeUp);
+                signalStepper.start();
+                signalTask = signalStepper;
+                
+                SteppedTask simulatorStepper = new SteppedTask(simulator, scheduler);
+                simulatorStepper.start();
+                simulatorTask = simulatorStepper;
+            } else {
+                // Blocking loops, one platform or virtual thread each
+                signalTask = threadRunner.start(controller);
+                simulatorTask = threadRunner.start(simulator);
+            }
+            handle.started(controller, simulator, signalTask, simulatorTask);
+            return true;
+        }
+    }
+    
+    // Average arrivals per minute at each intersection started from now on, in the original uniform pattern
+    public void setArrivalRate(double arrivalsPerMinute) {
+        demandModel = UniformDemand.perMinute(arrivalsPerMinute);
+    }
+    
+    // Arrival model for intersections started from now on
+    public void setDemandModel(DemandModel demandModel) {
+        this.demandModel = Objects.requireNonNull(demandModel);
+    }
+    
+    public DemandModel getDemandModel() {
+        return demandModel;
     }
     
     public void stopIntersection(String id) {
-        SignalController controller = controllers.get(id);
+        IntersectionHandle handle = registry.get(id);
+        if (handle != null) {
+            handle.stop();
+        }
+    }
+    
+    // Bulk lifecycle operations fan out across the fork-join pool, except on the
+    // single-threaded discrete-event engine
+    public void startAll() {
+        registry.forEach(parallelLifecycle(), this::start);
+    }
+    
+    public void stopAll() {
+        registry.forEach(parallelLifecycle(), IntersectionHandle::stop);
+    }
+    
+    private boolean parallelLifecycle() {
+        return !(scheduler instanceof DiscreteEventScheduler);
+    }
+    
+    // Records every signal transition and arrival from now on in the given journal directory
+    public void enableJournal(String directory) throws FileOperationException {
+        journal = new EventJournal(directory);
+        for (Intersection intersection : registry.intersections().values()) {
+            journal.defineIntersection(intersection, clock.currentTimeMillis());
+        }
+        listeners.add(journal);
+    }
+    
+    public void closeJournal() throws FileOperationException {
+        if (journal != null) {
+            listeners.remove(journal);
+            journal.close();
+            journal = null;
+        }
+    }
+    
+    public void loadPhasePlans() throws FileOperationException, InvalidSignalException {
+        loadPhasePlans(PHASE_PLANS_FILE, PLAN_ASSIGNMENTS_FILE);
+    }
+    
+    // Replaces every plan and assignment; running controllers switch at the end of their cycle
+    public void loadPhasePlans(String plansFile, String assignmentsFile) throws FileOperationException, InvalidSignalException {
+        phasePlans = PhasePlans.load(plansFile, assignmentsFile);
+        for (IntersectionHandle handle : registry.handles()) {
+            handle.setAdaptivePlan(null);
+            SignalController controller = handle.getController();
+            if (controller != null) {
+                controller.setPlan(phasePlans.planFor(handle.getId()));
+            }
+        }
+        System.out.println("Loaded " + phasePlans.size() + " phase plans, " + phasePlans.getAssignmentCount() + " assigned");
+    }
+    
+    // Runs the plan at one intersection from now on; a running controller switches at the end of its cycle
+    public void setPhasePlan(String id, PhasePlan plan) throws InvalidSignalException {
+        IntersectionHandle handle = registry.get(id);
+        if (handle == null) {
+            throw new InvalidSignalException("Intersection not found: " + id);
+        }
+        phasePlans.assign(id, plan);
+        handle.setAdaptivePlan(null);
+        SignalController controller = handle.getController();
         if (controller != null) {
-            controller.stop();
+            controller.setPlan(plan);
         }
-        
-        TrafficSimulator simulator = simulators.get(id);
-        if (simulator != null) {
-            simulator.stop();
+    }
+    
+    public PhasePlans getPhasePlans() {
+        return phasePlans;
+    }
+    
+    // Retimes every intersection's plan from its recent demand at the given interval
+    public synchronized void enableAdaptiveTiming(long intervalMillis, int saturationFlowPerHour) {
+        disableAdaptiveTiming();
+        adaptiveTiming = new AdaptiveTiming(registry, id -> phasePlans.planFor(id), clock, intervalMillis, saturationFlowPerHour);
+        if (scheduler instanceof DiscreteEventScheduler) {
+            SteppedTask task = new SteppedTask(adaptiveTiming, scheduler);
+            task.start();
+            adaptiveTask = task;
+        } else {
+            adaptiveTiming.start();
         }
     }
     
-    public void stopAll() {
-        for (String id : intersections.keySet()) {
-            stopIntersection(id);
+    public synchronized void disableAdaptiveTiming() {
+        if (adaptiveTiming != null) {
+            adaptiveTiming.stop();
+            if (adaptiveTask != null) {
+                adaptiveTask.cancel();
+                adaptiveTask = null;
+            }
+            adaptiveTiming = null;
         }
     }
     
+    // Null unless enableAdaptiveTiming was called
+    public AdaptiveTiming getAdaptiveTiming() {
+        return adaptiveTiming;
+    }
+    
+    // Queues arrivals per approach and discharges them at the given flow while the approach is green
+    public void enableQueues(int saturationFlowPerHour) {
+        queues = new TrafficQueues(clock, saturationFlowPerHour);
+        for (Intersection intersection : registry.intersections().values()) {
+            queues.register(intersection);
+        }
+        listeners.add(queues);
+    }
+    
+    // Null unless enableQueues was called
+    public TrafficQueues getQueues() {
+        return queues;
+    }
+    
+    // Keeps the signals of intersections added from now on in one struct-of-arrays store
+    // instead of four objects each; call before adding or loading any intersection
+    public void enableCompactSignals(int expectedIntersections) {
+        if (registry.size() > 0) {
+            throw new IllegalStateException("Compact signals must be enabled before intersections are added");
+        }
+        signalStore = new SignalStore(expectedIntersections * Direction.values().length);
+    }
+    
+    // Null unless enableCompactSignals was called
+    public SignalStore getSignalStore() {
+        return signalStore;
+    }
+    
+    // Marks intersections whose signals or counts change, for streaming to dashboards
+    public synchronized StateDeltas enableStateDeltas() {
+        if (stateDeltas == null) {
+            // Published first so intersections added meanwhile are not missed; registering twice is harmless
+            StateDeltas deltas = new StateDeltas();
+            stateDeltas = deltas;
+            listeners.add(deltas);
+            for (Intersection intersection : registry.intersections().values()) {
+                deltas.register(intersection);
+            }
+        }
+        return stateDeltas;
+    }
+    
+    // Null unless enableStateDeltas was called
+    public StateDeltas getStateDeltas() {
+        return stateDeltas;
+    }
+    
+    // Tracks arrivals per minute and wait-on-red times over a sliding window of the given length
+    public void enableStatistics(long windowMillis, int buckets) {
+        statistics = new TrafficStatistics(clock, windowMillis, buckets);
+        for (Intersection intersection : registry.intersections().values()) {
+            statistics.register(intersection);
+        }
+        listeners.add(statistics);
+    }
+    
+    // Null unless enableStatistics was called
+    public TrafficStatistics getStatistics() {
+        return statistics;
+    }
+    
+    // Writes changed intersections to delta files in the background and folds them into the CSVs
+    public void enableCheckpointing(String directory, long intervalMillis, int compactEvery) throws FileOperationException {
+        checkpoints = new CheckpointService(directory, INTERSECTIONS_FILE, SIGNALS_FILE, compactEvery);
+        listeners.add(checkpoints);
+        checkpoints.start(intervalMillis);
+    }
+    
+    // Folds checkpoint deltas left by a previous run into the CSVs before they are loaded
+    public void recoverCheckpoints(String directory) throws FileOperationException {
+        CheckpointService.recover(directory, INTERSECTIONS_FILE, SIGNALS_FILE);
+    }
+    
+    // Writes the last delta and folds every delta into the CSVs, so a clean exit leaves none
+    // for the next start to recover
+    public void disableCheckpointing() throws FileOperationException {
+        if (checkpoints != null) {
+            listeners.remove(checkpoints);
+            checkpoints.stop();
+            checkpoints.compact();
+            checkpoints = null;
+        }
+    }
+    
+    // Stops every intersection, waits up to the timeout for the threads behind the execution
+    // mode to finish, then writes the last checkpoint and closes the journal. Returns false if
+    // the threads were still running when the timeout ran out.
+    public boolean shutdown(long timeoutMillis) throws InterruptedException {
+        disableAdaptiveTiming();
+        stopAll();
+        boolean terminated;
+        if (scheduler != null) {
+            scheduler.shutdown();
+            terminated = scheduler.awaitTermination(timeoutMillis);
+        } else {
+            threadRunner.shutdown();
+            terminated = threadRunner.awaitTermination(timeoutMillis);
+        }
+        
+        // Once the threads have stopped no step writes to these; a straggler left by a timeout
+        // has its journal records dropped rather than written to a closed segment
+        try {
+            disableCheckpointing();
+        } catch (FileOperationException e) {
+            System.err.println("Error writing final checkpoint: " + e.getMessage());
+        }
+        try {
+            closeJournal();
+        } catch (FileOperationException e) {
+            System.err.println("Error closing journal: " + e.getMessage());
+        }
+        return terminated;
+    }
+    
     public void saveData() throws FileOperationException {
-        // Save intersections
-        List<String> intersectionData = new ArrayList<>();
-        intersectionData.add("IntersectionID,Location,VehicleCount");
-        for (Intersection intersection : intersections.values()) {
-            intersectionData.add(intersection.toCSV());
+        if (checkpoints != null) {
+            // Flush the last changes as a delta and fold everything into the CSVs
+            checkpoints.checkpoint();
+            checkpoints.compact();
+            return;
         }
-        CSVFileHandler.writeToFile("intersections.csv", intersectionData);
+        
+        // Save intersections, streamed straight from the model
+        CSVFileHandler.writeRecords(INTERSECTIONS_FILE, out -> {
+            out.record("IntersectionID", "Location", "VehicleCount");
+            for (Intersection intersection : registry.intersections().values()) {
+                intersection.writeCSV(out);
+            }
+        });
         
         // Save signals
-        List<String> signalData = new ArrayList<>();
-        signalData.add("SignalID,Direction,State,Duration");
-        for (Intersection intersection : intersections.values()) {
-            for (TrafficSignal signal : intersection.getSignals()) {
-                signalData.add(signal.toCSV());
+        CSVFileHandler.writeRecords(SIGNALS_FILE, out -> {
+            out.record("SignalID", "Direction", "State", "Duration");
+            for (Intersection intersection : registry.intersections().values()) {
+                intersection.writeSignalsCSV(out);
             }
-        }
-        CSVFileHandler.writeToFile("signals.csv", signalData);
+        });
     }
     
     public void loadData() throws FileOperationException {
-        List<String[]> records = CSVFileHandler.readFromFile("intersections.csv");
+        loadData(INTERSECTIONS_FILE, SIGNALS_FILE);
+    }
+    
+    // Restores intersections with their vehicle counts, then every signal's state and duration.
+    // Both files are parsed in parallel shards; intersections then register serially in file
+    // order, so the dense indices the compact formats, journal and state stream use are stable.
+    public void loadData(String intersectionsFile, String signalsFile) throws FileOperationException {
+        long startNanos = System.nanoTime();
+        StateLoader loader = new StateLoader(clock, signalStore);
         
-        for (int i = 1; i < records.size(); i++) {
-            String[] fields = records.get(i);
-            if (fields.length >= 2) {
-                addIntersection(fields[0], fields[1]);
+        int loaded = 0;
+        for (List<Intersection> shard : loader.loadIntersections(intersectionsFile)) {
+            for (Intersection intersection : shard) {
+                if (register(intersection)) {
+                    loaded++;
+                }
             }
         }
+        
+        int signals = loader.restoreSignals(signalsFile, registry.intersections());
+        long millis = (System.nanoTime() - startNanos) / 1_000_000;
+        System.out.println("Restored " + loaded + " intersections and " + signals + " signals in " + millis + " ms"
+            + (loader.getSkippedRows() > 0 ? " (" + loader.getSkippedRows() + " malformed rows skipped)" : ""));
+    }
+    
+    // Figures are maintained incrementally, so this costs O(K) however many intersections exist
+    public TrafficReport getReport() {
+        return aggregator.report();
+    }
+    
+    // Vehicles per location over every intersection held here
+    public Map<String, Long> getLocationTotals() {
+        return aggregator.getLocationTotals();
     }
     
     public void generateReport() {
+        TrafficReport report = getReport();
         System.out.println("\n========== TRAFFIC REPORT ==========");
         
-        // Total vehicles using streams
-        int totalVehicles = intersections.values().stream()
-            .mapToInt(Intersection::getVehicleCount)
-            .sum();
+        System.out.println("Total Vehicles: " + report.getTotalVehicles());
+        System.out.println("Total Intersections: " + report.getTotalIntersections());
         
-        System.out.println("Total Vehicles: " + totalVehicles);
-        System.out.println("Total Intersections: " + intersections.size());
+        List<TrafficReport.Entry> busiest = report.getBusiestIntersections();
+        if (!busiest.isEmpty()) {
+            System.out.println("Busiest Intersection: " + busiest.get(0));
+        }
         
-        // Busiest intersection
-        Optional<Intersection> busiest = intersections.values().stream()
-            .max(Comparator.comparingInt(Intersection::getVehicleCount));
+        System.out.println("\nTop " + busiest.size() + " Intersections:");
+        for (TrafficReport.Entry entry : busiest) {
+            System.out.println("  " + entry + describeWindow(registry.getIntersection(entry.getName())));
+        }
         
-        busiest.ifPresent(i -> 
-            System.out.println("Busiest Intersection: " + i.getIntersectionId() + 
-                             " (" + i.getVehicleCount() + " vehicles)"));
+        System.out.println("\nTop " + report.getBusiestLocations().size() + " of " + report.getTotalLocations() + " Locations:");
+        for (TrafficReport.Entry entry : report.getBusiestLocations()) {
+            System.out.println("  " + entry);
+        }
         
-        // List all intersections
-        System.out.println("\nIntersection Details:");
-        intersections.values().stream()
-            .sorted(Comparator.comparing(Intersection::getIntersectionId))
-            .forEach(System.out::println);
+        if (statistics != null) {
+            System.out.println("\nWait on red, busiest intersections, last " + statistics.getWindowMillis() / 1000
+                + "s (ms): " + statistics.getWaitTimes(busiestIntersections(busiest)));
+        }
+        
+        if (queues != null) {
+            List<Intersection> leaders = busiestIntersections(busiest);
+            System.out.println(String.format("\nQueues, busiest intersections: %d waiting, %d discharged at %d veh/h, average delay %.1fs",
+                queues.getQueueLength(leaders), queues.getDischarged(leaders), queues.getSaturationFlowPerHour(),
+                queues.getAverageDelayMillis(leaders) / 1000));
+        }
+        
+        AdaptiveTiming timing = adaptiveTiming;
+        if (timing != null) {
+            System.out.println("\nAdaptive timing: " + timing.getLastChanged() + " of " + timing.getLastRecomputed()
+                + " intersections retimed in the last batch (" + timing.getLastBatchMillis() + " ms)");
+        }
+        
+        System.out.println("\n" + preemptionMetrics);
         
         System.out.println("====================================\n");
     }
     
+    private String describeWindow(Intersection intersection) {
+        if (intersection == null) {
+            return "";
+        }
+        String window = statistics == null ? "" : String.format(" - %.1f arrivals/min, wait p90=%dms",
+            statistics.getArrivalsPerMinute(intersection), statistics.getWaitTimes(intersection).getPercentile(90));
+        return queues == null ? window : window + (window.isEmpty() ? " - " : ", ") + queues.getQueueLength(intersection) + " queued";
+    }
+    
+    private List<Intersection> busiestIntersections(List<TrafficReport.Entry> busiest) {
+        List<Intersection> found = new ArrayList<>(busiest.size());
+        for (TrafficReport.Entry entry : busiest) {
+            Intersection intersection = registry.getIntersection(entry.getName());
+            if (intersection != null) {
+                found.add(intersection);
+            }
+        }
+        return found;
+    }
+    
+    // Advances a DISCRETE_EVENT run by the given amount of simulated time
+    public long runSimulation(long durationMillis) {
+        if (!(scheduler instanceof DiscreteEventScheduler)) {
+            throw new IllegalStateException("Simulation runs require " + ExecutionMode.DISCRETE_EVENT + " mode");
+        }
+        
+        DiscreteEventScheduler events = (DiscreteEventScheduler) scheduler;
+        long before = events.getEventsProcessed();
+        events.runUntil(events.currentTimeMillis() + durationMillis);
+        return events.getEventsProcessed() - before;
+    }
+    
+    public PreemptionMetrics getPreemptionMetrics() {
+        return preemptionMetrics;
+    }
+    
+    public Clock getClock() {
+        return clock;
+    }
+    
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+    
+    // Read-only live view of the registry
     public Map<String, Intersection> getIntersections() {
-        return intersections;
+        return registry.intersections();
+    }
+    
+    public IntersectionHandle getHandle(String id) {
+        return registry.get(id);
+    }
+    
+    public IntersectionRegistry getRegistry() {
+        return registry;
     }
 }
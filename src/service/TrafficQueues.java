@@ -0,0 +1,147 @@
+package service;
+
+import model.*;
+import util.Clock;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Per-approach vehicle queues: arrivals join the queue of their approach, and while that
+// approach is green vehicles discharge at the saturation flow rate. Arrivals and transitions
+// arrive through the listener chain; queries discharge up to the current time first.
+public class TrafficQueues implements IntersectionListener {
+    private final Clock clock;
+    private final int saturationFlowPerHour;
+    private final long headwayMillis;
+    private final ConcurrentHashMap<Intersection, ApproachQueue[]> queues;
+    
+    // Saturation flow in vehicles per hour per approach; 1800 is a typical single lane
+    public TrafficQueues(Clock clock, int saturationFlowPerHour) {
+        if (saturationFlowPerHour <= 0) {
+            throw new IllegalArgumentException("Saturation flow must be positive");
+        }
+        this.clock = clock;
+        this.saturationFlowPerHour = saturationFlowPerHour;
+        this.headwayMillis = Math.max(1, 3_600_000L / saturationFlowPerHour);
+        this.queues = new ConcurrentHashMap<>();
+    }
+    
+    public void register(Intersection intersection) {
+        long now = clock.currentTimeMillis();
+        ApproachQueue[] approaches = new ApproachQueue[Direction.values().length];
+        for (int i = 0; i < approaches.length; i++) {
+            approaches[i] = new ApproachQueue(headwayMillis, intersection.getSignalState(i) == SignalState.GREEN, now);
+        }
+        queues.putIfAbsent(intersection, approaches);
+    }
+    
+    public void unregister(Intersection intersection) {
+        queues.remove(intersection);
+    }
+    
+    @Override
+    public void onVehicleArrival(Intersection intersection, Direction approach, VehicleType type, long time) {
+        ApproachQueue[] approaches = queues.get(intersection);
+        if (approaches != null) {
+            approaches[approach.getSignalIndex()].arrive(time);
+        }
+    }
+    
+    @Override
+    public void onSignalChange(Intersection intersection, int signalIndex, SignalState oldState,
+                               SignalState newState, long time) {
+        if ((oldState == SignalState.GREEN) != (newState == SignalState.GREEN)) {
+            ApproachQueue[] approaches = queues.get(intersection);
+            if (approaches != null) {
+                approaches[signalIndex].setGreen(newState == SignalState.GREEN, time);
+            }
+        }
+    }
+    
+    public int getQueueLength(Intersection intersection, Direction approach) {
+        ApproachQueue[] approaches = queues.get(intersection);
+        return approaches == null ? 0 : approaches[approach.getSignalIndex()].length(clock.currentTimeMillis());
+    }
+    
+    public long getQueueLength(Intersection intersection) {
+        return getQueueLength(Collections.singleton(intersection));
+    }
+    
+    // Vehicles currently waiting on every approach of every given intersection
+    public long getQueueLength(Collection<Intersection> intersections) {
+        long now = clock.currentTimeMillis();
+        long length = 0;
+        for (Intersection intersection : intersections) {
+            ApproachQueue[] approaches = queues.get(intersection);
+            if (approaches != null) {
+                for (ApproachQueue approach : approaches) {
+                    length += approach.length(now);
+                }
+            }
+        }
+        return length;
+    }
+    
+    // Longest queue the approach has held
+    public int getMaxQueueLength(Intersection intersection, Direction approach) {
+        ApproachQueue[] approaches = queues.get(intersection);
+        return approaches == null ? 0 : approaches[approach.getSignalIndex()].getMaxLength();
+    }
+    
+    public long getDischarged(Intersection intersection, Direction approach) {
+        ApproachQueue[] approaches = queues.get(intersection);
+        return approaches == null ? 0 : approaches[approach.getSignalIndex()].getDischarged(clock.currentTimeMillis());
+    }
+    
+    // Vehicles that have left every approach of every given intersection
+    public long getDischarged(Collection<Intersection> intersections) {
+        long now = clock.currentTimeMillis();
+        long discharged = 0;
+        for (Intersection intersection : intersections) {
+            ApproachQueue[] approaches = queues.get(intersection);
+            if (approaches != null) {
+                for (ApproachQueue approach : approaches) {
+                    discharged += approach.getDischarged(now);
+                }
+            }
+        }
+        return discharged;
+    }
+    
+    // Mean time from entry to departure over every discharged vehicle, in ms
+    public double getAverageDelayMillis(Collection<Intersection> intersections) {
+        long now = clock.currentTimeMillis();
+        long discharged = 0;
+        long delay = 0;
+        for (Intersection intersection : intersections) {
+            ApproachQueue[] approaches = queues.get(intersection);
+            if (approaches != null) {
+                for (ApproachQueue approach : approaches) {
+                    delay += approach.getTotalDelay(now);
+                    discharged += approach.getDischarged(now);
+                }
+            }
+        }
+        return discharged == 0 ? 0 : (double) delay / discharged;
+    }
+    
+    public double getAverageDelayMillis(Intersection intersection) {
+        return getAverageDelayMillis(Collections.singleton(intersection));
+    }
+    
+    // Arrivals not queued because their approach already held the maximum queue
+    public long getDropped() {
+        long dropped = 0;
+        for (ApproachQueue[] approaches : queues.values()) {
+            for (ApproachQueue approach : approaches) {
+                dropped += approach.getDropped();
+            }
+        }
+        return dropped;
+    }
+    
+    public int getSaturationFlowPerHour() {
+        return saturationFlowPerHour;
+    }
+}
@@ -0,0 +1,105 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Point-in-time report from the aggregator; leader lists are busiest first
+public class TrafficReport {
+    private static final Comparator<Entry> BUSIEST_FIRST = Comparator.comparingLong(Entry::getVehicles).reversed();
+    
+    private final long totalVehicles;
+    private final int totalIntersections;
+    private final int totalLocations;
+    private final List<Entry> busiestIntersections;
+    private final List<Entry> busiestLocations;
+    
+    public TrafficReport(long totalVehicles, int totalIntersections, int totalLocations) {
+        this.totalVehicles = totalVehicles;
+        this.totalIntersections = totalIntersections;
+        this.totalLocations = totalLocations;
+        this.busiestIntersections = new ArrayList<>();
+        this.busiestLocations = new ArrayList<>();
+    }
+    
+    // Combines reports from nodes holding disjoint sets of intersections. Intersection leaders
+    // merge exactly, since each node reports its own top K; a location can span nodes, so
+    // locations are ranked from every node's full per-location totals instead.
+    public static TrafficReport merge(List<TrafficReport> reports, List<Map<String, Long>> locationTotals, int topK) {
+        long vehicles = 0;
+        int intersections = 0;
+        List<Entry> candidates = new ArrayList<>();
+        for (TrafficReport report : reports) {
+            vehicles += report.totalVehicles;
+            intersections += report.totalIntersections;
+            candidates.addAll(report.busiestIntersections);
+        }
+        Map<String, Long> locations = new HashMap<>();
+        for (Map<String, Long> totals : locationTotals) {
+            totals.forEach((location, count) -> locations.merge(location, count, Long::sum));
+        }
+        
+        TrafficReport merged = new TrafficReport(vehicles, intersections, locations.size());
+        candidates.sort(BUSIEST_FIRST);
+        merged.busiestIntersections.addAll(candidates.subList(0, Math.min(topK, candidates.size())));
+        List<Entry> ranked = new ArrayList<>(locations.size());
+        locations.forEach((location, count) -> ranked.add(new Entry(location, count)));
+        ranked.sort(BUSIEST_FIRST);
+        merged.busiestLocations.addAll(ranked.subList(0, Math.min(topK, ranked.size())));
+        return merged;
+    }
+    
+    public void addBusiestIntersection(String id, long vehicles) {
+        busiestIntersections.add(new Entry(id, vehicles));
+    }
+    
+    public void addBusiestLocation(String location, long vehicles) {
+        busiestLocations.add(new Entry(location, vehicles));
+    }
+    
+    public long getTotalVehicles() {
+        return totalVehicles;
+    }
+    
+    public int getTotalIntersections() {
+        return totalIntersections;
+    }
+    
+    public int getTotalLocations() {
+        return totalLocations;
+    }
+    
+    public List<Entry> getBusiestIntersections() {
+        return Collections.unmodifiableList(busiestIntersections);
+    }
+    
+    public List<Entry> getBusiestLocations() {
+        return Collections.unmodifiableList(busiestLocations);
+    }
+    
+    public static class Entry {
+        private final String name;
+        private final long vehicles;
+        
+        Entry(String name, long vehicles) {
+            this.name = name;
+            this.vehicles = vehicles;
+        }
+        
+        public String getName() {
+            return name;
+        }
+        
+        public long getVehicles() {
+            return vehicles;
+        }
+        
+        @Override
+        public String toString() {
+            return name + " (" + vehicles + " vehicles)";
+        }
+    }
+}
@@ -1,19 +1,49 @@
 package service;
 
+import demand.DemandModel;
+import demand.UniformDemand;
+import engine.Steppable;
+import logging.EventLog;
+import logging.EventType;
 import model.*;
 
-import java.util.Random;
+import java.util.SplittableRandom;
 
-public class TrafficSimulator implements Runnable {
+public class TrafficSimulator implements Runnable, Steppable {
+    // Arrivals generated per refill; small enough that idle simulators hold little
+    private static final int BATCH_SIZE = 16;
+    
     private Intersection intersection;
     private volatile boolean running;
-    private Random random;
-    private int vehicleCounter;
+    private final DemandModel.Source source;
+    private final long[] arrivals;
+    private int position;
+    private int size;
+    private boolean started;
+    private long vehicleCounter;
+    private SignalController controller;
     
     public TrafficSimulator(Intersection intersection) {
+        this(intersection, new SplittableRandom());
+    }
+    
+    public TrafficSimulator(Intersection intersection, SplittableRandom random) {
+        this(intersection, random, null);
+    }
+    
+    // Emergency arrivals preempt the given controller; null disables preemption
+    public TrafficSimulator(Intersection intersection, SplittableRandom random, SignalController controller) {
+        this(intersection, random, controller, new UniformDemand(UniformDemand.DEFAULT_MEAN_GAP_MILLIS));
+    }
+    
+    // random must not be shared: the source draws from it on whichever thread steps this simulator
+    public TrafficSimulator(Intersection intersection, SplittableRandom random, SignalController controller,
+                            DemandModel demand) {
         this.intersection = intersection;
+        this.controller = controller;
         this.running = true;
-        this.random = new Random();
+        this.source = demand.open(intersection, random, intersection.getClock().currentTimeMillis());
+        this.arrivals = new long[BATCH_SIZE];
         this.vehicleCounter = 0;
     }
     
@@ -23,8 +53,11 @@ public class TrafficSimulator implements Runnable {
         
         while (running) {
             try {
-                simulateVehicleArrival();
-                Thread.sleep(2000 + random.nextInt(3000)); // Random interval 2-5 seconds
+                long delay = step();
+                if (delay < 0) {
+                    break;
+                }
+                Thread.sleep(delay);
             } catch (InterruptedException e) {
                 System.out.println("Traffic simulator interrupted");
                 break;
@@ -32,22 +65,50 @@ public class TrafficSimulator implements Runnable {
         }
     }
     
-    private void simulateVehicleArrival() {
-        vehicleCounter++;
-        String vehicleId = intersection.getIntersectionId() + "_V" + vehicleCounter;
+    // Lets every arrival due at the same millisecond in and returns the gap to the next one;
+    // the first step only waits when the source's first arrival lies in the future
+    @Override
+    public long step() {
+        if (!running || !hasArrival()) {
+            return -1;
+        }
         
-        Vehicle vehicle;
-        if (random.nextInt(10) == 0) { // 10% chance of emergency vehicle
-            vehicle = new EmergencyVehicle(vehicleId);
-        } else {
-            vehicle = new Car(vehicleId);
+        long due = DemandModel.time(arrivals[position]);
+        long now = intersection.getClock().currentTimeMillis();
+        if (!started) {
+            started = true;
+            if (due > now) {
+                return due - now;
+            }
+        }
+        do {
+            simulateVehicleArrival(arrivals[position++], now);
+        } while (hasArrival() && DemandModel.time(arrivals[position]) == due);
+        return hasArrival() ? DemandModel.time(arrivals[position]) - due : -1;
+    }
+    
+    private boolean hasArrival() {
+        if (position < size) {
+            return true;
         }
+        size = source.fill(arrivals);
+        position = 0;
+        return size > 0;
+    }
+    
+    // Vehicles are never materialised here: the ID, type, approach and entry time stay
+    // primitives (see PackedVehicle), so a steady-state arrival allocates nothing
+    private void simulateVehicleArrival(long arrival, long now) {
+        long vehicleId = PackedVehicle.id(intersection.getIndex(), ++vehicleCounter);
+        VehicleType type = DemandModel.type(arrival);
+        Direction approach = DemandModel.approach(arrival);
+        intersection.incrementVehicleCount(approach, type, now);
         
-        vehicle.setCurrentIntersection(intersection.getIntersectionId());
-        intersection.incrementVehicleCount();
+        if (controller != null && type.getPriority() >= SignalController.PREEMPTION_PRIORITY) {
+            controller.requestPreemption(approach);
+        }
         
-        System.out.println("Vehicle " + vehicle.getVehicleId() + " (" + vehicle.getType() + 
-                         ") arrived at " + intersection.getIntersectionId());
+        EventLog.log(EventType.VEHICLE_ARRIVAL, now, intersection, vehicleId, PackedVehicle.details(type, approach));
     }
     
     public void stop() {
@@ -0,0 +1,136 @@
+package service;
+
+import metrics.LogLinearHistogram;
+import model.*;
+import util.Clock;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Sliding-window statistics per intersection and approach: arrivals per minute, and how long
+// vehicles waited from their entry time until their approach turned green. Arrivals and
+// transitions arrive through the listener chain; queries merge the windows of any set of
+// intersections into a fresh histogram.
+public class TrafficStatistics implements IntersectionListener {
+    // Waits beyond about 4 minutes share the histogram's top bucket
+    public static final long MAX_WAIT_MILLIS = 1L << 18;
+    // Waits are bucketed in units of 1024 ms: 49 buckets per histogram instead of 129 at 1 ms
+    public static final int WAIT_UNIT_BITS = 10;
+    
+    private final Clock clock;
+    private final long windowMillis;
+    private final int buckets;
+    private final ConcurrentHashMap<Intersection, ApproachStatistics[]> approaches;
+    
+    public TrafficStatistics(Clock clock, long windowMillis, int buckets) {
+        this.clock = clock;
+        this.windowMillis = windowMillis;
+        this.buckets = buckets;
+        this.approaches = new ConcurrentHashMap<>();
+    }
+    
+    public void register(Intersection intersection) {
+        ApproachStatistics[] statistics = new ApproachStatistics[Direction.values().length];
+        for (int i = 0; i < statistics.length; i++) {
+            statistics[i] = new ApproachStatistics(windowMillis, buckets, MAX_WAIT_MILLIS, WAIT_UNIT_BITS);
+        }
+        approaches.putIfAbsent(intersection, statistics);
+    }
+    
+    public void unregister(Intersection intersection) {
+        approaches.remove(intersection);
+    }
+    
+    @Override
+    public void onVehicleArrival(Intersection intersection, Direction approach, VehicleType type, long time) {
+        ApproachStatistics[] statistics = approaches.get(intersection);
+        if (statistics != null) {
+            int index = approach.getSignalIndex();
+            statistics[index].arrive(time, intersection.getSignalState(index) == SignalState.GREEN);
+        }
+    }
+    
+    @Override
+    public void onSignalChange(Intersection intersection, int signalIndex, SignalState oldState,
+                               SignalState newState, long time) {
+        if (newState == SignalState.GREEN) {
+            ApproachStatistics[] statistics = approaches.get(intersection);
+            if (statistics != null) {
+                statistics[signalIndex].release(time);
+            }
+        }
+    }
+    
+    public double getArrivalsPerMinute(Intersection intersection, Direction approach) {
+        ApproachStatistics[] statistics = approaches.get(intersection);
+        return statistics == null ? 0 : statistics[approach.getSignalIndex()].getArrivals()
+            .ratePerMinute(clock.currentTimeMillis());
+    }
+    
+    public double getArrivalsPerMinute(Intersection intersection) {
+        return getArrivalsPerMinute(Collections.singleton(intersection));
+    }
+    
+    // Combined rate of every approach of every given intersection
+    public double getArrivalsPerMinute(Collection<Intersection> intersections) {
+        long now = clock.currentTimeMillis();
+        double rate = 0;
+        for (Intersection intersection : intersections) {
+            ApproachStatistics[] statistics = approaches.get(intersection);
+            if (statistics != null) {
+                for (ApproachStatistics approach : statistics) {
+                    rate += approach.getArrivals().ratePerMinute(now);
+                }
+            }
+        }
+        return rate;
+    }
+    
+    public LogLinearHistogram getWaitTimes(Intersection intersection, Direction approach) {
+        LogLinearHistogram waits = newWaitHistogram();
+        ApproachStatistics[] statistics = approaches.get(intersection);
+        if (statistics != null) {
+            statistics[approach.getSignalIndex()].getWaits().mergeInto(waits, clock.currentTimeMillis());
+        }
+        return waits;
+    }
+    
+    public LogLinearHistogram getWaitTimes(Intersection intersection) {
+        return getWaitTimes(Collections.singleton(intersection));
+    }
+    
+    // Wait distribution (ms) across every approach of every given intersection
+    public LogLinearHistogram getWaitTimes(Collection<Intersection> intersections) {
+        long now = clock.currentTimeMillis();
+        LogLinearHistogram waits = newWaitHistogram();
+        for (Intersection intersection : intersections) {
+            ApproachStatistics[] statistics = approaches.get(intersection);
+            if (statistics != null) {
+                for (ApproachStatistics approach : statistics) {
+                    approach.getWaits().mergeInto(waits, now);
+                }
+            }
+        }
+        return waits;
+    }
+    
+    // Vehicles not measured because an approach already held the maximum queue
+    public long getDroppedWaits() {
+        long dropped = 0;
+        for (ApproachStatistics[] statistics : approaches.values()) {
+            for (ApproachStatistics approach : statistics) {
+                dropped += approach.getDropped();
+            }
+        }
+        return dropped;
+    }
+    
+    public long getWindowMillis() {
+        return windowMillis;
+    }
+    
+    private LogLinearHistogram newWaitHistogram() {
+        return new LogLinearHistogram(MAX_WAIT_MILLIS, WAIT_UNIT_BITS);
+    }
+}
@@ -0,0 +1,159 @@
+package stream;
+
+import model.Intersection;
+import model.SignalState;
+import service.StateDeltas;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+
+// Builds the binary WebSocket frames of the state stream. Every frame is encoded once and
+// shared by all connections. Payload (big-endian, varints are unsigned LEB128):
+//   u8 kind (1 delta, 2 keyframe), varint tick, varint clock millis, varint record count,
+//   then records in index order: varint index gap (index - previous index - 1),
+//   u8 record type (0 update, 1 define, 2 removed),
+//   define only: varint-length UTF-8 ID, varint-length UTF-8 location,
+//   update and define: u8 signals (2 bits per signal index, low bits first: 0 red, 1 yellow,
+//   2 green), varint vehicle total.
+// Values are absolute, so a client that applies a frame twice or skips to a keyframe stays right.
+final class DeltaEncoder {
+    static final int DELTA = 1;
+    static final int KEYFRAME = 2;
+    static final int UPDATE = 0;
+    static final int DEFINE = 1;
+    static final int REMOVED = 2;
+    
+    private final StateDeltas deltas;
+    // Indices the stream has defined so far; touched only by the encoding thread
+    private final BitSet defined;
+    private final Writer body;
+    private final Writer header;
+    
+    DeltaEncoder(StateDeltas deltas) {
+        this.deltas = deltas;
+        this.defined = new BitSet();
+        this.body = new Writer(1 << 16);
+        this.header = new Writer(32);
+    }
+    
+    // The changes since the previous call, or null when nothing changed
+    ByteBuffer delta(long tick, long time) {
+        body.reset();
+        int[] records = new int[1];
+        int[] previous = {-1};
+        deltas.drain((index, intersection) -> {
+            if (intersection == null) {
+                if (defined.get(index)) {
+                    defined.clear(index);
+                    body.varint(index - previous[0] - 1);
+                    body.u8(REMOVED);
+                    previous[0] = index;
+                    records[0]++;
+                }
+                return;
+            }
+            boolean known = defined.get(index);
+            defined.set(index);
+            record(index - previous[0] - 1, intersection, !known);
+            previous[0] = index;
+            records[0]++;
+        });
+        return records[0] == 0 ? null : frame(DELTA, tick, time, records[0]);
+    }
+    
+    // Every current intersection with its ID, for new and resynchronising connections
+    ByteBuffer keyframe(long tick, long time) {
+        body.reset();
+        int[] records = new int[1];
+        int[] previous = {-1};
+        deltas.forEach((index, intersection) -> {
+            record(index - previous[0] - 1, intersection, true);
+            previous[0] = index;
+            records[0]++;
+        });
+        return frame(KEYFRAME, tick, time, records[0]);
+    }
+    
+    private void record(int gap, Intersection intersection, boolean define) {
+        body.varint(gap);
+        body.u8(define ? DEFINE : UPDATE);
+        if (define) {
+            body.string(intersection.getIntersectionId());
+            body.string(intersection.getLocation());
+        }
+        int signals = 0;
+        for (int i = 0; i < 4; i++) {
+            signals |= code(intersection.getSignalState(i)) << (i * 2);
+        }
+        body.u8(signals);
+        body.varint(intersection.getVehicleCount());
+    }
+    
+    private static int code(SignalState state) {
+        switch (state) {
+            case YELLOW:
+                return 1;
+            case GREEN:
+                return 2;
+            default:
+                return 0;
+        }
+    }
+    
+    private ByteBuffer frame(int kind, long tick, long time, int records) {
+        header.reset();
+        header.u8(kind);
+        header.varint(tick);
+        header.varint(time);
+        header.varint(records);
+        int length = header.size + body.size;
+        ByteBuffer frame = ByteBuffer.allocate(WebSocket.headerLength(length) + length);
+        WebSocket.writeHeader(frame, WebSocket.BINARY, length);
+        frame.put(header.bytes, 0, header.size).put(body.bytes, 0, body.size).flip();
+        return frame.asReadOnlyBuffer();
+    }
+    
+    // Growable byte sink reused across frames
+    private static final class Writer {
+        byte[] bytes;
+        int size;
+        
+        Writer(int capacity) {
+            this.bytes = new byte[capacity];
+        }
+        
+        void reset() {
+            size = 0;
+        }
+        
+        void u8(int value) {
+            ensure(1);
+            bytes[size++] = (byte) value;
+        }
+        
+        void varint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                bytes[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[size++] = (byte) value;
+        }
+        
+        void string(String value) {
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            varint(utf8.length);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, bytes, size, utf8.length);
+            size += utf8.length;
+        }
+        
+        private void ensure(int extra) {
+            if (size + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+            }
+        }
+    }
+}
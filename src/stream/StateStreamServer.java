@@ -0,0 +1,432 @@
+package stream;
+
+import service.StateDeltas;
+import service.TrafficManager;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+
+// Streams signal states and vehicle totals to dashboards over WebSocket (GET /stream). One
+// selector thread serves every connection without blocking: each tick it drains the
+// manager's StateDeltas into one delta frame (see DeltaEncoder) and queues that same buffer
+// on every connection. A new connection starts with a keyframe. A connection with more than
+// maxBufferedBytes of deltas queued beyond one keyframe is not fed further deltas: its backlog
+// is dropped (a frame already on the wire is finished) and it gets a fresh keyframe once it
+// has drained, so a slow client costs bounded memory and skips ahead instead of falling behind.
+public class StateStreamServer implements AutoCloseable {
+    public static final long DEFAULT_TICK_MILLIS = 100;
+    public static final int DEFAULT_MAX_BUFFERED_BYTES = 1 << 20;
+    // Kept small so a stalled reader shows up in our queue instead of in kernel buffers
+    private static final int SEND_BUFFER_BYTES = 256 << 10;
+    private static final int MAX_REQUEST_BYTES = 8192;
+    
+    private final TrafficManager manager;
+    private final StateDeltas deltas;
+    private final DeltaEncoder encoder;
+    private final long tickMillis;
+    private final int maxBufferedBytes;
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final List<Connection> streams;
+    private volatile boolean running;
+    private Thread thread;
+    private long tick;
+    private int keyframeBytes;
+    private volatile int streamCount;
+    private volatile long resyncs;
+    private volatile long framesQueued;
+    
+    // One HTTP request, then (after the upgrade) a WebSocket stream
+    private static final class Connection {
+        final SocketChannel channel;
+        final ByteBuffer in;
+        final ArrayDeque<ByteBuffer> out;
+        SelectionKey key;
+        long queuedBytes;
+        boolean streaming;
+        boolean needsKeyframe;
+        boolean closeAfterWrite;
+        
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+            this.in = ByteBuffer.allocate(MAX_REQUEST_BYTES);
+            this.out = new ArrayDeque<>();
+        }
+    }
+    
+    public StateStreamServer(TrafficManager manager, int port) throws IOException {
+        this(manager, port, DEFAULT_TICK_MILLIS, DEFAULT_MAX_BUFFERED_BYTES);
+    }
+    
+    // Port 0 picks a free port; see getPort()
+    public StateStreamServer(TrafficManager manager, int port, long tickMillis, int maxBufferedBytes) throws IOException {
+        if (tickMillis <= 0 || maxBufferedBytes <= 0) {
+            throw new IllegalArgumentException("Tick and buffer limit must be positive");
+        }
+        this.manager = manager;
+        this.deltas = manager.enableStateDeltas();
+        this.encoder = new DeltaEncoder(deltas);
+        this.tickMillis = tickMillis;
+        this.maxBufferedBytes = maxBufferedBytes;
+        this.streams = new ArrayList<>();
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+    
+    public void start() {
+        running = true;
+        thread = new Thread(this::loop, "state-stream");
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    private void loop() {
+        long tickNanos = tickMillis * 1_000_000;
+        long nextTick = System.nanoTime() + tickNanos;
+        try {
+            while (running) {
+                long waitMillis = (nextTick - System.nanoTime()) / 1_000_000;
+                if (waitMillis > 0) {
+                    selector.select(waitMillis);
+                } else {
+                    selector.selectNow();
+                }
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    handle(key);
+                }
+                long now = System.nanoTime();
+                if (now - nextTick >= 0) {
+                    tick();
+                    // A late tick is not made up for; the next delta covers the gap
+                    nextTick = Math.max(nextTick + tickNanos, now);
+                }
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) {
+                System.err.println("State stream stopped: " + e.getMessage());
+            }
+        }
+    }
+    
+    private void handle(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.isAcceptable()) {
+            accept();
+            return;
+        }
+        Connection connection = (Connection) key.attachment();
+        try {
+            if (key.isReadable()) {
+                read(connection);
+            }
+            // Handshake answers, pongs and close replies go out right away
+            if (key.isValid() && (key.isWritable() || !connection.out.isEmpty())) {
+                write(connection);
+            }
+        } catch (IOException e) {
+            close(connection);
+        } catch (RuntimeException e) {
+            // One misbehaving client must not stop the selector thread every dashboard depends on
+            System.err.println("State stream client dropped: " + e);
+            close(connection);
+        }
+    }
+    
+    private void accept() {
+        try {
+            SocketChannel channel;
+            while ((channel = serverChannel.accept()) != null) {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                channel.setOption(StandardSocketOptions.SO_SNDBUF, SEND_BUFFER_BYTES);
+                Connection connection = new Connection(channel);
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            }
+        } catch (IOException e) {
+            System.err.println("State stream accept failed: " + e.getMessage());
+        }
+    }
+    
+    private void read(Connection connection) throws IOException {
+        if (connection.channel.read(connection.in) < 0) {
+            close(connection);
+            return;
+        }
+        connection.in.flip();
+        if (!connection.streaming) {
+            readRequest(connection);
+        }
+        // Frames may follow the upgrade request in the same read
+        if (connection.streaming) {
+            readFrames(connection);
+        }
+        connection.in.compact();
+    }
+    
+    private void readRequest(Connection connection) {
+        ByteBuffer in = connection.in;
+        int end = headerEnd(in);
+        if (end < 0) {
+            if (in.limit() == in.capacity()) {
+                respond(connection, "431 Request Header Fields Too Large");
+            }
+            return;
+        }
+        String request = StandardCharsets.ISO_8859_1.decode(in.slice().limit(end - in.position())).toString();
+        in.position(end);
+        
+        String[] lines = request.split("\r\n");
+        String[] requestLine = lines[0].split(" ");
+        String key = null;
+        boolean upgrade = false;
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String name = lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = lines[i].substring(colon + 1).trim();
+            if (name.equals("sec-websocket-key")) {
+                key = value;
+            } else if (name.equals("upgrade")) {
+                upgrade = value.equalsIgnoreCase("websocket");
+            }
+        }
+        if (requestLine.length < 2 || !requestLine[0].equals("GET")) {
+            respond(connection, "405 Method Not Allowed");
+        } else if (!requestLine[1].equals("/stream") && !requestLine[1].startsWith("/stream?")) {
+            respond(connection, "404 Not Found");
+        } else if (!upgrade || key == null) {
+            respond(connection, "426 Upgrade Required");
+        } else {
+            String response = "HTTP/1.1 101 Switching Protocols\r\nUpgrade: websocket\r\nConnection: Upgrade\r\n"
+                + "Sec-WebSocket-Accept: " + WebSocket.acceptKey(key) + "\r\n\r\n";
+            enqueue(connection, ByteBuffer.wrap(response.getBytes(StandardCharsets.ISO_8859_1)));
+            connection.streaming = true;
+            connection.needsKeyframe = true;
+            streams.add(connection);
+            streamCount = streams.size();
+        }
+    }
+    
+    // Position just past the blank line ending the headers, or -1
+    private static int headerEnd(ByteBuffer in) {
+        for (int i = in.position(); i + 3 < in.limit(); i++) {
+            if (in.get(i) == '\r' && in.get(i + 1) == '\n' && in.get(i + 2) == '\r' && in.get(i + 3) == '\n') {
+                return i + 4;
+            }
+        }
+        return -1;
+    }
+    
+    private void respond(Connection connection, String status) {
+        String response = "HTTP/1.1 " + status + "\r\nContent-Length: 0\r\nConnection: close\r\n\r\n";
+        enqueue(connection, ByteBuffer.wrap(response.getBytes(StandardCharsets.ISO_8859_1)));
+        connection.closeAfterWrite = true;
+        connection.in.position(connection.in.limit());
+    }
+    
+    // Client frames are masked; only close and ping need an answer, anything else is skipped
+    private void readFrames(Connection connection) {
+        ByteBuffer in = connection.in;
+        while (in.remaining() >= 2 && !connection.closeAfterWrite) {
+            int start = in.position();
+            int opcode = in.get(start) & 0x0F;
+            boolean masked = (in.get(start + 1) & 0x80) != 0;
+            long length = in.get(start + 1) & 0x7F;
+            int headerLength = 2;
+            if (length == 126) {
+                if (in.remaining() < 4) {
+                    return;
+                }
+                length = in.getShort(start + 2) & 0xFFFF;
+                headerLength = 4;
+            } else if (length == 127) {
+                if (in.remaining() < 10) {
+                    return;
+                }
+                length = in.getLong(start + 2);
+                headerLength = 10;
+            }
+            int maskLength = masked ? 4 : 0;
+            if (length < 0) {
+                // RFC 6455 requires the most significant bit of a 64-bit length to be 0
+                enqueue(connection, WebSocket.control(WebSocket.CLOSE, new byte[] {0x03, (byte) 0xEA}));
+                connection.closeAfterWrite = true;
+                return;
+            }
+            if (length > in.capacity() - headerLength - maskLength) {
+                // Larger than anything a dashboard should send
+                enqueue(connection, WebSocket.control(WebSocket.CLOSE, new byte[] {0x03, (byte) 0xF1}));
+                connection.closeAfterWrite = true;
+                return;
+            }
+            if (in.remaining() < headerLength + maskLength + length) {
+                return;
+            }
+            
+            byte[] payload = new byte[(int) length];
+            int payloadStart = start + headerLength + maskLength;
+            for (int i = 0; i < payload.length; i++) {
+                byte mask = masked ? in.get(start + headerLength + (i & 3)) : 0;
+                payload[i] = (byte) (in.get(payloadStart + i) ^ mask);
+            }
+            in.position(payloadStart + payload.length);
+            
+            if (opcode == WebSocket.CLOSE) {
+                enqueue(connection, WebSocket.control(WebSocket.CLOSE, payload.length >= 2 ? Arrays.copyOf(payload, 2) : payload));
+                connection.closeAfterWrite = true;
+            } else if (opcode == WebSocket.PING && payload.length <= 125) {
+                enqueue(connection, WebSocket.control(WebSocket.PONG, payload));
+            }
+        }
+    }
+    
+    private void tick() {
+        tick++;
+        long time = manager.getClock().currentTimeMillis();
+        ByteBuffer delta = encoder.delta(tick, time);
+        ByteBuffer keyframe = null;
+        // A keyframe does not count against the limit, so a client that just joined is not cut off at once
+        long limit = (long) keyframeBytes + maxBufferedBytes;
+        for (int i = streams.size() - 1; i >= 0; i--) {
+            Connection connection = streams.get(i);
+            if (connection.needsKeyframe) {
+                // Deltas are skipped until the backlog is gone; the keyframe then covers them
+                if (connection.out.isEmpty()) {
+                    if (keyframe == null) {
+                        keyframe = encoder.keyframe(tick, time);
+                        keyframeBytes = keyframe.remaining();
+                    }
+                    enqueue(connection, keyframe.duplicate());
+                    connection.needsKeyframe = false;
+                }
+            } else if (delta != null) {
+                if (connection.queuedBytes + delta.remaining() > limit) {
+                    dropBacklog(connection);
+                } else {
+                    enqueue(connection, delta.duplicate());
+                }
+            }
+            try {
+                write(connection);
+            } catch (IOException e) {
+                close(connection);
+            }
+        }
+    }
+    
+    private void dropBacklog(Connection connection) {
+        ByteBuffer inFlight = connection.out.peekFirst();
+        boolean partial = inFlight != null && inFlight.position() > 0;
+        connection.out.clear();
+        connection.queuedBytes = 0;
+        if (partial) {
+            connection.out.add(inFlight);
+            connection.queuedBytes = inFlight.remaining();
+        }
+        connection.needsKeyframe = true;
+        resyncs++;
+    }
+    
+    private void enqueue(Connection connection, ByteBuffer buffer) {
+        connection.out.add(buffer);
+        connection.queuedBytes += buffer.remaining();
+        framesQueued++;
+    }
+    
+    private void write(Connection connection) throws IOException {
+        ArrayDeque<ByteBuffer> out = connection.out;
+        while (!out.isEmpty()) {
+            ByteBuffer head = out.peekFirst();
+            int written = connection.channel.write(head);
+            connection.queuedBytes -= written;
+            if (head.hasRemaining()) {
+                break;
+            }
+            out.pollFirst();
+        }
+        if (!connection.key.isValid()) {
+            return;
+        }
+        if (out.isEmpty() && connection.closeAfterWrite) {
+            close(connection);
+        } else {
+            connection.key.interestOps(out.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+    }
+    
+    private void close(Connection connection) {
+        connection.key.cancel();
+        try {
+            connection.channel.close();
+        } catch (IOException e) {
+            // Already gone
+        }
+        if (connection.streaming && streams.remove(connection)) {
+            streamCount = streams.size();
+        }
+    }
+    
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+    
+    // Open WebSocket streams
+    public int getStreamCount() {
+        return streamCount;
+    }
+    
+    // Times a slow stream's backlog was dropped for a keyframe
+    public long getResyncCount() {
+        return resyncs;
+    }
+    
+    public long getFramesQueued() {
+        return framesQueued;
+    }
+    
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        if (thread != null) {
+            try {
+                thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        for (SelectionKey key : selector.keys()) {
+            try {
+                key.channel().close();
+            } catch (IOException e) {
+                // Closing anyway
+            }
+        }
+        selector.close();
+    }
+}
@@ -0,0 +1,52 @@
+package stream;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+// The slice of RFC 6455 the stream needs: the handshake answer and unmasked server frames.
+final class WebSocket {
+    static final int BINARY = 0x2;
+    static final int CLOSE = 0x8;
+    static final int PING = 0x9;
+    static final int PONG = 0xA;
+    
+    private static final String GUID = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
+    
+    private WebSocket() {
+    }
+    
+    static String acceptKey(String key) {
+        try {
+            MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
+            return Base64.getEncoder().encodeToString(sha1.digest((key.trim() + GUID).getBytes(StandardCharsets.ISO_8859_1)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available", e);
+        }
+    }
+    
+    static int headerLength(int payloadLength) {
+        return payloadLength < 126 ? 2 : payloadLength <= 0xFFFF ? 4 : 10;
+    }
+    
+    // A final, unmasked frame header
+    static void writeHeader(ByteBuffer frame, int opcode, int payloadLength) {
+        frame.put((byte) (0x80 | opcode));
+        if (payloadLength < 126) {
+            frame.put((byte) payloadLength);
+        } else if (payloadLength <= 0xFFFF) {
+            frame.put((byte) 126).putShort((short) payloadLength);
+        } else {
+            frame.put((byte) 127).putLong(payloadLength);
+        }
+    }
+    
+    static ByteBuffer control(int opcode, byte[] payload) {
+        ByteBuffer frame = ByteBuffer.allocate(2 + payload.length);
+        writeHeader(frame, opcode, payload.length);
+        frame.put(payload).flip();
+        return frame;
+    }
+}
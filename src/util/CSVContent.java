@@ -0,0 +1,8 @@
+package util;
+
+import java.io.IOException;
+
+public interface CSVContent {
+    
+    void writeTo(CSVWriter out) throws IOException;
+}
@@ -1,28 +1,57 @@
 package util;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class CSVFileHandler {
+    private static final int CHUNK_SIZE = 64 * 1024;
     
     public static void writeToFile(String filename, List<String> data) throws FileOperationException {
-        FileWriter writer = null;
+        writeRecords(filename, out -> {
+            for (String line : data) {
+                out.raw(line);
+            }
+        });
+    }
+    
+    // Streams records to a temp file, syncs it and atomically renames it over the target,
+    // so a crash mid-write leaves the previous file intact
+    public static void writeRecords(String filename, CSVContent content) throws FileOperationException {
+        File target = new File(filename);
+        File temp = new File(target.getPath() + ".tmp");
+        FileOutputStream stream = null;
         BufferedWriter bufferedWriter = null;
+        boolean written = false;
         
         try {
-            writer = new FileWriter(filename);
-            bufferedWriter = new BufferedWriter(writer);
+            stream = new FileOutputStream(temp);
+            bufferedWriter = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), CHUNK_SIZE);
             
-            for (String line : data) {
-                
-                bufferedWriter.write(line);
-                
-                bufferedWriter.newLine();
-            }
+            content.writeTo(new CSVWriter(bufferedWriter));
+            bufferedWriter.flush();
+            stream.getFD().sync();
+            bufferedWriter.close();
+            bufferedWriter = null;
             
-            System.out.println("Data written to " + filename);
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            written = true;
             
+            System.out.println("Data written to " + filename);
+        
         } catch (IOException e) {
             throw new FileOperationException("Error writing to file: " + filename, e);
         } finally {
@@ -30,54 +59,173 @@ public class CSVFileHandler {
                 if (bufferedWriter != null) {
                     bufferedWriter.close();
                 }
-                if (writer != null) {
-                    writer.close();
+                if (stream != null) {
+                    stream.close();
                 }
             } catch (IOException e) {
                 System.err.println("Error closing file: " + e.getMessage());
             }
+            if (!written) {
+                temp.delete();
+            }
         }
     }
     
     public static List<String[]> readFromFile(String filename) throws FileOperationException {
         List<String[]> records = new ArrayList<>();
-        FileReader reader = null;
-        BufferedReader bufferedReader = null;
+        forEachRecord(filename, record -> records.add(record.toArray()));
+        return records;
+    }
+    
+    // Streams the file through a reused record view; a missing file has no records
+    public static void forEachRecord(String filename, CSVRecordVisitor visitor) throws FileOperationException {
+        forEachRecord(filename, 0, Long.MAX_VALUE, visitor);
+    }
+    
+    // Streams only the records in [start, end); both offsets must be record boundaries, such as
+    // those returned by split(). Record numbers count from the start of the range.
+    public static void forEachRecord(String filename, long start, long end, CSVRecordVisitor visitor)
+            throws FileOperationException {
+        File file = new File(filename);
+        if (!file.exists()) {
+            return;
+        }
         
+        FileChannel channel = null;
         try {
-            File file = new File(filename);
-            if (!file.exists()) {
-                return records;
-            }
-            
-            reader = new FileReader(file);
-            bufferedReader = new BufferedReader(reader);
+            channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
             
-            String line;
-            while ((line = bufferedReader.readLine()) != null) {
-                String[] fields = line.split(",");
-                records.add(fields);
+            ChunkDecoder decoder = new ChunkDecoder(visitor);
+            ByteBuffer bytes = ByteBuffer.allocateDirect(CHUNK_SIZE);
+            long position = start;
+            while (position < end) {
+                bytes.limit((int) Math.min(bytes.capacity(), bytes.position() + (end - position)));
+                int read = channel.read(bytes, position);
+                if (read == -1) {
+                    break;
+                }
+                position += read;
+                bytes.flip();
+                decoder.decode(bytes, false);
+                bytes.compact();
+            }
+            bytes.flip();
+            decoder.decode(bytes, true);
+        
+        } catch (IOException e) {
+            throw new FileOperationException("Error reading from file: " + filename, e);
+        } finally {
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+            } catch (IOException e) {
+                System.err.println("Error closing file: " + e.getMessage());
             }
+        }
+    }
+    
+    // Cuts the file into about `parts` byte ranges that each start on a record boundary, so
+    // they can be parsed independently. One pass over the raw bytes tracks quotes, so a line
+    // break inside a quoted field is never taken as a boundary. The header, if asked to skip
+    // it, is left out of every range.
+    public static CSVShards split(String filename, int parts, boolean skipHeader) throws FileOperationException {
+        File file = new File(filename);
+        if (!file.exists()) {
+            return new CSVShards(new long[] {0, 0});
+        }
+        
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+            long size = channel.size();
+            int count = (int) Math.max(1, Math.min(parts, size / CHUNK_SIZE));
+            long[] boundaries = new long[count + 1];
+            int next = 1;
+            boolean quoted = false;
+            boolean headerPending = skipHeader;
             
-            System.out.println("Data read from " + filename);
+            ByteBuffer bytes = ByteBuffer.allocateDirect(CHUNK_SIZE);
+            long offset = 0;
+            while (channel.read(bytes) != -1) {
+                bytes.flip();
+                while (bytes.hasRemaining()) {
+                    byte b = bytes.get();
+                    offset++;
+                    if (b == '"') {
+                        quoted = !quoted;
+                    } else if (b == '\n' && !quoted) {
+                        if (headerPending) {
+                            boundaries[0] = offset;
+                            headerPending = false;
+                        } else if (next < count && offset >= size * next / count && offset > boundaries[next - 1]) {
+                            boundaries[next++] = offset;
+                        }
+                    }
+                }
+                bytes.clear();
+            }
+            if (headerPending) {
+                boundaries[0] = size;
+            }
             
+            long[] shards = Arrays.copyOf(boundaries, next + 1);
+            shards[next] = size;
+            return new CSVShards(shards);
+        
         } catch (IOException e) {
             throw new FileOperationException("Error reading from file: " + filename, e);
         } finally {
             try {
-                if (bufferedReader != null) {
-                    bufferedReader.close();
-                }
-                if (reader != null) {
-                    reader.close();
+                if (channel != null) {
+                    channel.close();
                 }
             } catch (IOException e) {
                 System.err.println("Error closing file: " + e.getMessage());
             }
         }
+    }
+    
+    // UTF-8 bytes -> chars -> parser, one fixed chunk at a time
+    private static class ChunkDecoder {
+        private final CharsetDecoder decoder;
+        private final CharBuffer chars;
+        private final CSVParser parser;
         
-        return records;
+        ChunkDecoder(CSVRecordVisitor visitor) {
+            this.decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+            this.chars = CharBuffer.allocate(CHUNK_SIZE);
+            this.parser = new CSVParser(visitor);
+        }
+        
+        void decode(ByteBuffer bytes, boolean endOfInput) throws IOException, FileOperationException {
+            while (true) {
+                CoderResult result = decoder.decode(bytes, chars, endOfInput);
+                if (result.isError()) {
+                    result.throwException();
+                }
+                drain();
+                if (result.isUnderflow()) {
+                    break;
+                }
+            }
+            
+            if (endOfInput) {
+                CoderResult result = decoder.flush(chars);
+                if (result.isError()) {
+                    throw new CharacterCodingException();
+                }
+                drain();
+                parser.finish();
+            }
+        }
+        
+        private void drain() throws FileOperationException {
+            chars.flip();
+            parser.accept(chars.array(), chars.position(), chars.remaining());
+            chars.clear();
+        }
     }
 }
-
-
@@ -0,0 +1,98 @@
+package util;
+
+// RFC 4180 state machine fed one char at a time, so records may span read chunks
+class CSVParser {
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTE_IN_QUOTED = 3;
+    
+    private final CSVRecord record;
+    private final CSVRecordVisitor visitor;
+    private int state;
+    private int fieldStart;
+    private boolean inRecord;
+    private long recordNumber;
+    
+    CSVParser(CSVRecordVisitor visitor) {
+        this.record = new CSVRecord();
+        this.visitor = visitor;
+        this.state = FIELD_START;
+    }
+    
+    void accept(char[] chars, int offset, int length) throws FileOperationException {
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            char c = chars[i];
+            switch (state) {
+                case QUOTED:
+                    if (c == '"') {
+                        state = QUOTE_IN_QUOTED;
+                    } else {
+                        record.append(c);
+                    }
+                    break;
+                case QUOTE_IN_QUOTED:
+                    if (c == '"') {
+                        record.append('"');
+                        state = QUOTED;
+                    } else {
+                        state = UNQUOTED;
+                        delimiterOrChar(c);
+                    }
+                    break;
+                case FIELD_START:
+                    if (c == '"') {
+                        startRecord();
+                        state = QUOTED;
+                    } else {
+                        delimiterOrChar(c);
+                    }
+                    break;
+                default:
+                    delimiterOrChar(c);
+                    break;
+            }
+        }
+    }
+    
+    // Flushes a final record that has no trailing line break
+    void finish() throws FileOperationException {
+        if (inRecord) {
+            endRecord();
+        }
+    }
+    
+    private void delimiterOrChar(char c) throws FileOperationException {
+        if (c == ',') {
+            startRecord();
+            record.endField(fieldStart);
+            fieldStart = record.length();
+            state = FIELD_START;
+        } else if (c == '\n') {
+            if (inRecord) {
+                endRecord();
+            }
+        } else if (c != '\r') {
+            startRecord();
+            record.append(c);
+            state = UNQUOTED;
+        }
+    }
+    
+    private void startRecord() {
+        if (!inRecord) {
+            record.reset(recordNumber);
+            fieldStart = 0;
+            inRecord = true;
+        }
+    }
+    
+    private void endRecord() throws FileOperationException {
+        record.endField(fieldStart);
+        visitor.visit(record);
+        recordNumber++;
+        inRecord = false;
+        state = FIELD_START;
+    }
+}
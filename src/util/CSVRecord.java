@@ -0,0 +1,163 @@
+package util;
+
+import java.util.Arrays;
+
+// One parsed CSV record. Fields are views into a reused buffer: they are only valid
+// inside the visitor call, and nothing is turned into a String unless asked for.
+public class CSVRecord {
+    private char[] buffer;
+    private int length;
+    private int[] fieldStarts;
+    private int[] fieldEnds;
+    private FieldView[] views;
+    private int fieldCount;
+    private long recordNumber;
+    
+    CSVRecord() {
+        this.buffer = new char[256];
+        this.fieldStarts = new int[16];
+        this.fieldEnds = new int[16];
+        this.views = new FieldView[16];
+    }
+    
+    public int size() {
+        return fieldCount;
+    }
+    
+    // Zero-based position of the record in the file, header included
+    public long getRecordNumber() {
+        return recordNumber;
+    }
+    
+    public CharSequence get(int index) {
+        checkIndex(index);
+        FieldView view = views[index];
+        if (view == null) {
+            view = new FieldView(index);
+            views[index] = view;
+        }
+        return view;
+    }
+    
+    public String getString(int index) {
+        checkIndex(index);
+        return new String(buffer, fieldStarts[index], fieldEnds[index] - fieldStarts[index]);
+    }
+    
+    public long getLong(int index) {
+        checkIndex(index);
+        int start = fieldStarts[index];
+        int end = fieldEnds[index];
+        while (start < end && buffer[start] == ' ') {
+            start++;
+        }
+        while (end > start && buffer[end - 1] == ' ') {
+            end--;
+        }
+        boolean negative = start < end && buffer[start] == '-';
+        int position = negative ? start + 1 : start;
+        if (position == end) {
+            throw new NumberFormatException("Not a number in field " + index + ": \"" + getString(index) + "\"");
+        }
+        
+        long value = 0;
+        for (; position < end; position++) {
+            int digit = buffer[position] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Not a number in field " + index + ": \"" + getString(index) + "\"");
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+    
+    public int getInt(int index) {
+        return Math.toIntExact(getLong(index));
+    }
+    
+    public boolean fieldEquals(int index, String expected) {
+        checkIndex(index);
+        int start = fieldStarts[index];
+        if (fieldEnds[index] - start != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (buffer[start + i] != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    public String[] toArray() {
+        String[] fields = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            fields[i] = getString(i);
+        }
+        return fields;
+    }
+    
+    private void checkIndex(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("Field " + index + " of " + fieldCount);
+        }
+    }
+    
+    // Parser-side mutators
+    
+    void reset(long recordNumber) {
+        this.recordNumber = recordNumber;
+        this.length = 0;
+        this.fieldCount = 0;
+    }
+    
+    void append(char c) {
+        if (length == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        buffer[length++] = c;
+    }
+    
+    void endField(int start) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+            views = Arrays.copyOf(views, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = length;
+        fieldCount++;
+    }
+    
+    int length() {
+        return length;
+    }
+    
+    private class FieldView implements CharSequence {
+        private final int index;
+        
+        FieldView(int index) {
+            this.index = index;
+        }
+        
+        @Override
+        public int length() {
+            return fieldEnds[index] - fieldStarts[index];
+        }
+        
+        @Override
+        public char charAt(int position) {
+            return buffer[fieldStarts[index] + position];
+        }
+        
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            return new String(buffer, fieldStarts[index] + start, end - start);
+        }
+        
+        @Override
+        public String toString() {
+            return getString(index);
+        }
+    }
+}
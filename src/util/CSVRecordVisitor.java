@@ -0,0 +1,6 @@
+package util;
+
+public interface CSVRecordVisitor {
+    
+    void visit(CSVRecord record) throws FileOperationException;
+}
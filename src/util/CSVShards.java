@@ -0,0 +1,22 @@
+package util;
+
+// Byte ranges of a CSV file that start and end on record boundaries, from CSVFileHandler.split()
+public class CSVShards {
+    private final long[] boundaries;
+    
+    CSVShards(long[] boundaries) {
+        this.boundaries = boundaries;
+    }
+    
+    public int size() {
+        return boundaries.length - 1;
+    }
+    
+    public long getStart(int shard) {
+        return boundaries[shard];
+    }
+    
+    public long getEnd(int shard) {
+        return boundaries[shard + 1];
+    }
+}
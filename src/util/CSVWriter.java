@@ -0,0 +1,74 @@
+package util;
+
+import java.io.IOException;
+import java.io.Writer;
+
+// Streams RFC 4180 records: fields are quoted only when they contain a separator, quote or line break
+public class CSVWriter {
+    private final Writer writer;
+    private boolean firstField;
+    
+    CSVWriter(Writer writer) {
+        this.writer = writer;
+        this.firstField = true;
+    }
+    
+    public CSVWriter field(CharSequence value) throws IOException {
+        separate();
+        if (value == null) {
+            return this;
+        }
+        
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.append(value);
+            return this;
+        }
+        
+        writer.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+        return this;
+    }
+    
+    public CSVWriter field(long value) throws IOException {
+        separate();
+        writer.write(Long.toString(value));
+        return this;
+    }
+    
+    public void endRecord() throws IOException {
+        writer.write('\n');
+        firstField = true;
+    }
+    
+    public void record(String... fields) throws IOException {
+        for (String field : fields) {
+            field(field);
+        }
+        endRecord();
+    }
+    
+    // Writes an already formatted line as-is
+    public void raw(CharSequence line) throws IOException {
+        writer.append(line);
+        endRecord();
+    }
+    
+    private void separate() throws IOException {
+        if (!firstField) {
+            writer.write(',');
+        }
+        firstField = false;
+    }
+}
@@ -0,0 +1,7 @@
+package util;
+
+public interface Clock {
+    Clock SYSTEM = System::currentTimeMillis;
+    
+    long currentTimeMillis();
+}
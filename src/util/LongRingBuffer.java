@@ -0,0 +1,67 @@
+package util;
+
+// FIFO of primitive longs in a power-of-two ring. It grows by doubling up to a fixed maximum
+// and never shrinks, so once a queue has reached its working size adds allocate nothing.
+// Not thread-safe; owners guard it with their own lock.
+public class LongRingBuffer {
+    private long[] values;
+    private int head;
+    private int size;
+    private final int maxCapacity;
+    
+    public LongRingBuffer(int initialCapacity, int maxCapacity) {
+        this.values = new long[initialCapacity <= 1 ? 1 : Integer.highestOneBit(initialCapacity - 1) << 1];
+        this.maxCapacity = maxCapacity;
+    }
+    
+    // False, leaving the buffer unchanged, if it already holds maxCapacity values
+    public boolean addLast(long value) {
+        if (size == values.length) {
+            if (values.length >= maxCapacity) {
+                return false;
+            }
+            grow();
+        }
+        values[(head + size) & (values.length - 1)] = value;
+        size++;
+        return true;
+    }
+    
+    private void grow() {
+        long[] grown = new long[values.length * 2];
+        for (int i = 0; i < size; i++) {
+            grown[i] = values[(head + i) & (values.length - 1)];
+        }
+        values = grown;
+        head = 0;
+    }
+    
+    public long peekFirst() {
+        return values[head];
+    }
+    
+    public long removeFirst() {
+        long value = values[head];
+        head = (head + 1) & (values.length - 1);
+        size--;
+        return value;
+    }
+    
+    // i-th value from the head, without removing it
+    public long get(int i) {
+        return values[(head + i) & (values.length - 1)];
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    public boolean isEmpty() {
+        return size == 0;
+    }
+    
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+}